@@ -0,0 +1,144 @@
+package ru.hse.edu.vmpendischuk.jigsaw.client.controllers;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import ru.hse.edu.vmpendischuk.jigsaw.util.Shape;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cache of the drag view images (pictures of a shape being dragged).
+ * <p>
+ * There are only 31 shapes, so the image of every shape is drawn once per size of the shape display grid
+ *   and reused by every drag. The images are drawn pixel by pixel into writable images, which does not
+ *   involve the scene graph, so all images of a size are drawn on a background thread ahead of time.
+ */
+final class DragViewCache {
+    // The amount of rows (and columns) of the shape display grid.
+    private static final int GRID_SIZE = 3;
+    // The fill color of a shape cell (the "active-rectangle-pane" style).
+    private static final Color CELL_COLOR = Color.DODGERBLUE;
+    // The border color of a shape cell (the "rectangle-pane" style).
+    private static final Color BORDER_COLOR = Color.BLACK;
+    // The background thread used to draw the images ahead of time, shared by all games.
+    private static final Executor renderExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "jigsaw-drag-view-render");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // The images of the shapes indexed by shape id, for every size of the shape display grid.
+    private final Map<GridSize, AtomicReferenceArray<Image>> images = new ConcurrentHashMap<>();
+
+    /**
+     * The size of the shape display grid in pixels.
+     *
+     * @param width the width of the grid.
+     * @param height the height of the grid.
+     */
+    private record GridSize(int width, int height) {
+        /**
+         * Returns the grid size the given grid dimensions are rounded to.
+         *
+         * @param width the width of the grid.
+         * @param height the height of the grid.
+         * @return the grid size.
+         */
+        static GridSize of(double width, double height) {
+            return new GridSize((int) Math.ceil(width), (int) Math.ceil(height));
+        }
+    }
+
+    /**
+     * Draws the images of all shapes for the given grid size on the background thread.
+     *
+     * @param width the width of the shape display grid.
+     * @param height the height of the shape display grid.
+     */
+    void prepare(double width, double height) {
+        GridSize size = GridSize.of(width, height);
+        AtomicReferenceArray<Image> sizeImages = imagesOf(size);
+
+        renderExecutor.execute(() -> {
+            for (int id = 1; id <= Shape.COUNT; ++id) {
+                sizeImages.compareAndSet(id, null, render(Shape.of(id), size));
+            }
+        });
+    }
+
+    /**
+     * Returns the drag view image of the shape for the given grid size.
+     * <p>
+     * The image is drawn on the calling thread only if it has not been prepared yet.
+     *
+     * @param shape the shape.
+     * @param width the width of the shape display grid.
+     * @param height the height of the shape display grid.
+     * @return the image of the shape in the top left corner of the grid.
+     */
+    Image get(Shape shape, double width, double height) {
+        GridSize size = GridSize.of(width, height);
+        AtomicReferenceArray<Image> sizeImages = imagesOf(size);
+        Image image = sizeImages.get(shape.getId());
+
+        if (image == null) {
+            image = render(shape, size);
+            if (!sizeImages.compareAndSet(shape.getId(), null, image)) {
+                image = sizeImages.get(shape.getId());
+            }
+        }
+
+        return image;
+    }
+
+    /**
+     * Returns the images of the shapes for the given grid size.
+     *
+     * @param size the grid size.
+     * @return the images of the shapes indexed by shape id.
+     */
+    private AtomicReferenceArray<Image> imagesOf(GridSize size) {
+        return images.computeIfAbsent(size, key -> new AtomicReferenceArray<>(Shape.COUNT + 1));
+    }
+
+    /**
+     * Draws the image of the shape as it is displayed by the shape display grid.
+     *
+     * @param shape the shape.
+     * @param size the grid size.
+     * @return the image, transparent outside the shape's cells.
+     */
+    private static Image render(Shape shape, GridSize size) {
+        WritableImage image = new WritableImage(size.width(), size.height());
+        PixelWriter writer = image.getPixelWriter();
+        int[][] model = shape.getModel();
+
+        for (int row = 0; row < shape.getHeight(); ++row) {
+            for (int col = 0; col < shape.getWidth(); ++col) {
+                if (model[row][col] == 0) {
+                    continue;
+                }
+
+                int left = col * size.width() / GRID_SIZE;
+                int right = (col + 1) * size.width() / GRID_SIZE;
+                int top = row * size.height() / GRID_SIZE;
+                int bottom = (row + 1) * size.height() / GRID_SIZE;
+
+                for (int y = top; y < bottom; ++y) {
+                    for (int x = left; x < right; ++x) {
+                        boolean border = x == left || x == right - 1 || y == top || y == bottom - 1;
+                        writer.setColor(x, y, border ? BORDER_COLOR : CELL_COLOR);
+                    }
+                }
+            }
+        }
+
+        return image;
+    }
+}
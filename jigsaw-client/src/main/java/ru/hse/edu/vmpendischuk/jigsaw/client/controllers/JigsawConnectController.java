@@ -12,8 +12,9 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import ru.hse.edu.vmpendischuk.jigsaw.client.JigsawApplication;
-import ru.hse.edu.vmpendischuk.jigsaw.client.network.*;
-import ru.hse.edu.vmpendischuk.jigsaw.client.network.CallbackHandler;
+import ru.hse.edu.vmpendischuk.jigsaw.client.network.AsyncJigsawClient;
+import ru.hse.edu.vmpendischuk.jigsaw.client.network.DefaultJigsawClient;
+import ru.hse.edu.vmpendischuk.jigsaw.client.network.RequestRejectedException;
 
 import java.io.IOException;
 
@@ -25,7 +26,7 @@ import java.io.IOException;
  */
 public class JigsawConnectController {
     // The client instance used to communicate with the server.
-    private final JigsawClient client = DefaultJigsawClient.getInstance();
+    private final AsyncJigsawClient client = DefaultJigsawClient.getInstance();
 
     // Label used to display a server connection error.
     @FXML
@@ -82,29 +83,20 @@ public class JigsawConnectController {
         connectionLoadingVBox.setVisible(true);
 
         // Connecting to the server.
-        new Thread(() -> client.connect(ipField.getText(), port, new CallbackHandler() {
-            @Override
-            public void onSuccess() {
-                // Switching to the registration controls.
-                Platform.runLater(() -> {
-                    connectionLoadingVBox.setVisible(false);
-
-                    welcomeVBox.setVisible(true);
-                    continueHBox.setVisible(true);
-                });
-            }
+        client.connectAsync(ipField.getText(), port).whenCompleteAsync((ignored, failure) -> {
+            connectionLoadingVBox.setVisible(false);
 
-            @Override
-            public void onError(String errorMessage) {
+            if (failure != null) {
                 // Displaying the connection error.
-                Platform.runLater(() -> {
-                    connectionLoadingVBox.setVisible(false);
-
-                    connectionErrorLabel.setText(errorMessage);
-                    connectionErrorLabel.setVisible(true);
-                });
+                connectionErrorLabel.setText("Could not connect to the server");
+                connectionErrorLabel.setVisible(true);
+                return;
             }
-        })).start();
+
+            // Switching to the registration controls.
+            welcomeVBox.setVisible(true);
+            continueHBox.setVisible(true);
+        }, Platform::runLater);
     }
 
     /**
@@ -130,26 +122,18 @@ public class JigsawConnectController {
         playerLoadingVBox.setVisible(true);
 
         // Registering player on the server.
-        new Thread(() -> client.registerPlayer(usernameField.getText(), new CallbackHandler() {
-            @Override
-            public void onSuccess() {
-                // Starting the game.
-                Platform.runLater(() -> {
-                    playerLoadingVBox.setVisible(false);
-
-                    startGame(((Node) event.getSource()).getScene());
-                });
-            }
-
-            @Override
-            public void onError(String errorMessage) {
+        client.registerPlayerAsync(usernameField.getText()).whenCompleteAsync((ignored, failure) -> {
+            if (failure != null) {
                 // Displaying the registration error.
-                Platform.runLater(() -> {
-                    registerErrorLabel.setText(errorMessage);
-                    registerErrorLabel.setVisible(true);
-                });
+                registerErrorLabel.setText(RequestRejectedException.messageOf(failure, "Could not get server status"));
+                registerErrorLabel.setVisible(true);
+                return;
             }
-        })).start();
+
+            // Starting the game.
+            playerLoadingVBox.setVisible(false);
+            startGame(((Node) event.getSource()).getScene());
+        }, Platform::runLater);
     }
 
     /**
@@ -6,19 +6,20 @@ import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
 import javafx.scene.Scene;
-import javafx.scene.SnapshotParameters;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Label;
+import javafx.scene.image.Image;
 import javafx.scene.input.*;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Pane;
-import javafx.scene.paint.Color;
 import javafx.stage.Stage;
 import ru.hse.edu.vmpendischuk.jigsaw.client.game.GameManager;
 import ru.hse.edu.vmpendischuk.jigsaw.client.JigsawApplication;
 import ru.hse.edu.vmpendischuk.jigsaw.client.network.DefaultJigsawClient;
 import ru.hse.edu.vmpendischuk.jigsaw.client.network.JigsawClient;
 import ru.hse.edu.vmpendischuk.jigsaw.client.time.StopWatch;
+import ru.hse.edu.vmpendischuk.jigsaw.util.GameField;
+import ru.hse.edu.vmpendischuk.jigsaw.util.Shape;
 
 import java.io.IOException;
 import java.util.logging.Level;
@@ -29,9 +30,20 @@ import java.util.logging.Logger;
  * <p>
  * Contains handlers required for gameplay (drag-and-drop action handlers)
  *   as well as the Jigsaw game manager instance.
+ * <p>
+ * The cells of both grids are created once, a redraw only restyles the field cells
+ *   that have changed since the previous redraw and the shape cells if the shape has changed.
  */
 public class JigsawGameController {
     private static final Logger logger = Logger.getLogger(JigsawGameController.class.getName());
+    // The amount of rows (and columns) of the shape display grid.
+    private static final int SHAPE_GRID_SIZE = 3;
+    // The style class of a taken field cell and of a shape cell.
+    private static final String ACTIVE_STYLE = "active-rectangle-pane";
+    // The style class of a free field cell.
+    private static final String INACTIVE_STYLE = "inactive-rectangle-pane";
+    // The drag view images of the shapes, shared by all games.
+    private static final DragViewCache dragViewCache = new DragViewCache();
     private final JigsawClient client = DefaultJigsawClient.getInstance();
 
     // GridPane used to display the game field.
@@ -63,6 +75,16 @@ public class JigsawGameController {
     private final GameManager gameManager = new GameManager();
     // StopWatch instance used to measure the amount of time passed since the start.
     private StopWatch stopWatch;
+    // The cells of the game field grid, indexed by row and column.
+    private final Pane[][] fieldCells = new Pane[GameField.SIZE][GameField.SIZE];
+    // The cells of the shape display grid, indexed by row and column.
+    private final Pane[][] shapeCells = new Pane[SHAPE_GRID_SIZE][SHAPE_GRID_SIZE];
+    // The low word of the field state displayed by the game field grid.
+    private long displayedLowWord;
+    // The high word of the field state displayed by the game field grid.
+    private long displayedHighWord;
+    // The shape displayed by the shape display grid.
+    private Shape displayedShape;
 
     /**
      * Initializes a new {@code JigsawGameController} instance.
@@ -94,23 +116,8 @@ public class JigsawGameController {
     @FXML
     public void initialize() {
         // Starting the stopwatch.
-        stopWatch = new StopWatch(timeLabel, client.getMaxDuration(), () -> {
-            // Alert shown on game timeout.
-            Alert alert = new Alert(Alert.AlertType.INFORMATION);
-            alert.setTitle("Game timeout");
-
-            alert.setHeaderText(null);
-            alert.setContentText("The time is out, your game is over!");
-
-            alert.show();
-
-            // Switching to the result screen.
-            try {
-                goToGameResults(timeLabel.getScene());
-            } catch (IOException ex) {
-                logger.log(Level.SEVERE, "Could not load results view", ex);
-            }
-        });
+        stopWatch = new StopWatch(timeLabel, client.getMaxDuration(),
+                () -> endGame("Game timeout", "The time is out, your game is over!"));
         stopWatch.start();
 
         // Initializing labels.
@@ -129,7 +136,11 @@ public class JigsawGameController {
             otherUsernameLabel.setText(otherUsername);
         }
 
+        // Drawing the drag view images ahead of the first drag.
+        dragViewCache.prepare(shapeGrid.getPrefWidth(), shapeGrid.getPrefHeight());
+
         // Drawing the field.
+        createCells();
         redraw();
     }
 
@@ -155,9 +166,8 @@ public class JigsawGameController {
             dragboard.setContent(content);
 
             // Setting the drag view (displayed shape).
-            SnapshotParameters parameters = new SnapshotParameters();
-            parameters.setFill(Color.TRANSPARENT);
-            dragboard.setDragView(shapeGrid.snapshot(parameters, null), event.getX(), event.getY());
+            Image dragView = dragViewCache.get(gameManager.currentShape, shapeGrid.getWidth(), shapeGrid.getHeight());
+            dragboard.setDragView(dragView, event.getX(), event.getY());
         }
     }
 
@@ -205,6 +215,11 @@ public class JigsawGameController {
             // Redrawing both grids.
             redraw();
             event.setDropCompleted(true);
+
+            // Finishing the game right away if the new shape does not fit anywhere.
+            if (gameManager.currentShape != null && !gameManager.hasLegalMove()) {
+                endGame("No moves left", "There is no place left for the shape, your game is over!");
+            }
         } else {
             // If the dragboard does not contain required information.
             event.setDropCompleted(false);
@@ -213,49 +228,90 @@ public class JigsawGameController {
     }
 
     /**
-     * Redraws the game field grid and the shape display grid.
+     * Creates the cells of the game field grid and of the shape display grid.
      */
-    private void redraw() {
-        grid.getChildren().clear();
-
-        // Filling the game state grid.
-        for (int i = 0; i < 9; ++i) {
-            for (int j = 0; j < 9; ++j) {
-                Pane rect = new Pane();
-                if (gameManager.gameFieldState[j][i] == 1) {
-                    rect.getStyleClass().addAll("rectangle-pane", "active-rectangle-pane");
-                } else {
-                    rect.getStyleClass().addAll("rectangle-pane", "inactive-rectangle-pane");
-                }
-                rect.setMaxWidth(Double.MAX_VALUE);
-                rect.setMaxHeight(Double.MAX_VALUE);
-                GridPane.setFillWidth(rect, true);
-                GridPane.setFillHeight(rect, true);
-                grid.add(rect, i, j, 1, 1);
+    private void createCells() {
+        for (int i = 0; i < GameField.SIZE; ++i) {
+            for (int j = 0; j < GameField.SIZE; ++j) {
+                fieldCells[i][j] = createCell(INACTIVE_STYLE);
+                grid.add(fieldCells[i][j], j, i, 1, 1);
             }
         }
 
-        shapeGrid.getChildren().clear();
-
-        // Filling the shape display grid.
-        int[][] currentShapeModel = gameManager.currentShape.getModel();
-        for (int i = 0; i < 3; ++i) {
-            for (int j = 0; j < 3; ++j) {
-                if (j < currentShapeModel.length && i < currentShapeModel[0].length &&currentShapeModel[j][i] == 1) {
-                    Pane rect = new Pane();
-                    rect.getStyleClass().addAll("rectangle-pane", "active-rectangle-pane");
-                    rect.setMaxWidth(Double.MAX_VALUE);
-                    rect.setMaxHeight(Double.MAX_VALUE);
-                    GridPane.setFillWidth(rect, true);
-                    GridPane.setFillHeight(rect, true);
-                    shapeGrid.add(rect, i, j);
+        for (int i = 0; i < SHAPE_GRID_SIZE; ++i) {
+            for (int j = 0; j < SHAPE_GRID_SIZE; ++j) {
+                // The hidden cells are not picked, so a drag only starts on the shape itself.
+                shapeCells[i][j] = createCell(ACTIVE_STYLE);
+                shapeCells[i][j].setVisible(false);
+                shapeGrid.add(shapeCells[i][j], j, i);
+            }
+        }
+    }
+
+    /**
+     * Creates a grid cell.
+     *
+     * @param style the style class of the cell's state.
+     * @return the cell.
+     */
+    private static Pane createCell(String style) {
+        Pane rect = new Pane();
+        rect.getStyleClass().addAll("rectangle-pane", style);
+        rect.setMaxWidth(Double.MAX_VALUE);
+        rect.setMaxHeight(Double.MAX_VALUE);
+        GridPane.setFillWidth(rect, true);
+        GridPane.setFillHeight(rect, true);
+        return rect;
+    }
+
+    /**
+     * Redraws the game field grid and the shape display grid.
+     */
+    private void redraw() {
+        GameField gameField = gameManager.gameField;
+
+        // Restyling the field cells whose bits differ from the displayed state.
+        long lowWord = gameField.getLowWord();
+        long highWord = gameField.getHighWord();
+        restyleChangedCells(lowWord ^ displayedLowWord, 0);
+        restyleChangedCells(highWord ^ displayedHighWord, Long.SIZE);
+        displayedLowWord = lowWord;
+        displayedHighWord = highWord;
+
+        // Showing the cells of the new shape.
+        Shape currentShape = gameManager.currentShape;
+        if (currentShape != displayedShape) {
+            int[][] currentShapeModel = currentShape.getModel();
+            for (int i = 0; i < SHAPE_GRID_SIZE; ++i) {
+                for (int j = 0; j < SHAPE_GRID_SIZE; ++j) {
+                    shapeCells[i][j].setVisible(i < currentShape.getHeight() && j < currentShape.getWidth()
+                            && currentShapeModel[i][j] == 1);
                 }
             }
+            displayedShape = currentShape;
         }
 
         shapesLabel.setText("Score: " + gameManager.shapesPlaced);
     }
 
+    /**
+     * Restyles the field cells that correspond to the set bits of a field state word.
+     *
+     * @param changedCells the bits of the cells that have changed.
+     * @param firstCell the index of the cell that corresponds to the lowest bit of the word.
+     */
+    private void restyleChangedCells(long changedCells, int firstCell) {
+        while (changedCells != 0) {
+            int cell = firstCell + Long.numberOfTrailingZeros(changedCells);
+            int row = cell / GameField.SIZE;
+            int col = cell % GameField.SIZE;
+
+            fieldCells[row][col].getStyleClass().set(1,
+                    gameManager.gameField.isTaken(row, col) ? ACTIVE_STYLE : INACTIVE_STYLE);
+            changedCells &= changedCells - 1;
+        }
+    }
+
     /**
      * Finish button click handler.
      *
@@ -267,6 +323,30 @@ public class JigsawGameController {
         goToGameResults(((Node)event.getSource()).getScene());
     }
 
+    /**
+     * Notifies the player that the game is over and switches to the Jigsaw game results screen.
+     *
+     * @param title the title of the notification.
+     * @param message the reason why the game is over.
+     */
+    private void endGame(String title, String message) {
+        // Alert shown when the game ends without the player pressing Finish.
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle(title);
+
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+
+        alert.show();
+
+        // Switching to the result screen.
+        try {
+            goToGameResults(timeLabel.getScene());
+        } catch (IOException ex) {
+            logger.log(Level.SEVERE, "Could not load results view", ex);
+        }
+    }
+
     /**
      * Initializes and switches to the Jigsaw game results screen.
      *
@@ -274,6 +354,9 @@ public class JigsawGameController {
      * @throws IOException if the result view FXML could not be loaded.
      */
     private void goToGameResults(Scene scene) throws IOException {
+        // No more shapes are needed, the results request must not race with a shape request.
+        gameManager.stopShapePrefetch();
+
         // Initializing the result scene.
         Stage stage = (Stage) scene.getWindow();
         FXMLLoader fxmlLoader = new FXMLLoader(JigsawApplication.class.getResource("jigsaw-results-view.fxml"));
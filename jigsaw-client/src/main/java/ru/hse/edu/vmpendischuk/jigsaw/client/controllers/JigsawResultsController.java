@@ -15,8 +15,9 @@ import javafx.scene.control.TableView;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import ru.hse.edu.vmpendischuk.jigsaw.client.JigsawApplication;
-import ru.hse.edu.vmpendischuk.jigsaw.client.network.*;
-import ru.hse.edu.vmpendischuk.jigsaw.util.GameResults;
+import ru.hse.edu.vmpendischuk.jigsaw.client.network.AsyncJigsawClient;
+import ru.hse.edu.vmpendischuk.jigsaw.client.network.DefaultJigsawClient;
+import ru.hse.edu.vmpendischuk.jigsaw.client.network.RequestRejectedException;
 import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStatsEntry;
 
 import java.io.IOException;
@@ -26,7 +27,7 @@ import java.io.IOException;
  */
 public class JigsawResultsController {
     // The client instance used to communicate with the server.
-    private final JigsawClient client = DefaultJigsawClient.getInstance();
+    private final AsyncJigsawClient client = DefaultJigsawClient.getInstance();
 
     // Label used to display the winner's name.
     @FXML
@@ -74,44 +75,37 @@ public class JigsawResultsController {
         finishLoadingVBox.setVisible(true);
 
         // Finishing the game for current player.
-        new Thread(() -> client.finishGameForPlayer(shapeCount, time, new GameFinishCallbackHandler() {
-            @Override
-            public void onSuccess(GameResults gameResults) {
-                Platform.runLater(() -> {
-                    // Filling the table.
-                    data.addAll(gameResults.stats());
-                    resultsTable.setItems(data);
-
-                    // Displaying the winner's name.
-                    winnerLabel.setText("Winner: " + gameResults.winner());
-
-                    // Showing disconnected players.
-                    if (gameResults.disconnectedPlayers().isEmpty()) {
-                        disconnectedPlayersLabel.setVisible(false);
-                    } else {
-                        disconnectedPlayersLabel.setVisible(true);
-                        disconnectedPlayersLabel.setText("Disconnected players: "
-                                + String.join(", ", gameResults.disconnectedPlayers()));
-                    }
-
-                    finishLoadingVBox.setVisible(false);
-                });
+        client.finishGameForPlayerAsync(shapeCount, time).whenCompleteAsync((gameResults, failure) -> {
+            if (failure != null) {
+                // Displaying an alert with error.
+                Alert alert = new Alert(Alert.AlertType.WARNING);
+                alert.setTitle("Connection failed");
+
+                alert.setHeaderText(null);
+                alert.setContentText("Could not load game results from the server!");
+
+                alert.showAndWait();
+                return;
             }
 
-            @Override
-            public void onError(String errorMessage) {
-                // Displaying an alert with error.
-                Platform.runLater(() -> {
-                    Alert alert = new Alert(Alert.AlertType.WARNING);
-                    alert.setTitle("Connection failed");
+            // Filling the table.
+            data.addAll(gameResults.stats());
+            resultsTable.setItems(data);
 
-                    alert.setHeaderText(null);
-                    alert.setContentText("Could not load game results from the server!");
+            // Displaying the winner's name.
+            winnerLabel.setText("Winner: " + gameResults.winner());
 
-                    alert.showAndWait();
-                });
+            // Showing disconnected players.
+            if (gameResults.disconnectedPlayers().isEmpty()) {
+                disconnectedPlayersLabel.setVisible(false);
+            } else {
+                disconnectedPlayersLabel.setVisible(true);
+                disconnectedPlayersLabel.setText("Disconnected players: "
+                        + String.join(", ", gameResults.disconnectedPlayers()));
             }
-        })).start();
+
+            finishLoadingVBox.setVisible(false);
+        }, Platform::runLater);
     }
 
     /**
@@ -124,25 +118,19 @@ public class JigsawResultsController {
         errorLabel.setVisible(false);
 
         // Restarting the game.
-        new Thread(() -> client.restart(new CallbackHandler() {
-            @Override
-            public void onSuccess() {
-                // Staring the gam when all players have joined.
-                Platform.runLater(() -> {
-                    waitingLoadingVBox.setVisible(false);
-                    startGame(waitingLoadingVBox.getScene());
-                });
-            }
-
-            @Override
-            public void onError(String errorMessage) {
+        client.restartAsync().whenCompleteAsync((ignored, failure) -> {
+            if (failure != null) {
                 // Displaying the error.
-                Platform.runLater(() -> {
-                    errorLabel.setVisible(true);
-                    errorLabel.setText("ERROR: " + errorMessage);
-                });
+                errorLabel.setVisible(true);
+                errorLabel.setText("ERROR: "
+                        + RequestRejectedException.messageOf(failure, "Could not get server status"));
+                return;
             }
-        })).start();
+
+            // Staring the game when all players have joined.
+            waitingLoadingVBox.setVisible(false);
+            startGame(waitingLoadingVBox.getScene());
+        }, Platform::runLater);
     }
 
     /**
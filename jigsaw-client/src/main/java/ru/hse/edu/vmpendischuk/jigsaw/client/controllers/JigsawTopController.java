@@ -10,19 +10,17 @@ import javafx.scene.control.Label;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.layout.VBox;
+import ru.hse.edu.vmpendischuk.jigsaw.client.network.AsyncJigsawClient;
 import ru.hse.edu.vmpendischuk.jigsaw.client.network.DefaultJigsawClient;
-import ru.hse.edu.vmpendischuk.jigsaw.client.network.JigsawClient;
-import ru.hse.edu.vmpendischuk.jigsaw.client.network.TopGamesCallbackHandler;
 import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStatsEntry;
 
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
 
 public class JigsawTopController {
     // The client instance used to communicate with the server.
-    private final JigsawClient client = DefaultJigsawClient.getInstance();
+    private final AsyncJigsawClient client = DefaultJigsawClient.getInstance();
 
     // Label used to display server connection errors.
     @FXML
@@ -67,27 +65,19 @@ public class JigsawTopController {
         errorLabel.setVisible(false);
 
         // Fetching the top 10 games list from the server.
-        new Thread(() -> client.getTopGames(new TopGamesCallbackHandler() {
-            @Override
-            public void onSuccess(List<PlayerStatsEntry> topGames) {
-                // Displaying the games.
-                Platform.runLater(() -> {
-                    loadingVBox.setVisible(false);
+        client.getTopGamesAsync().whenCompleteAsync((topGames, failure) -> {
+            loadingVBox.setVisible(false);
 
-                    data.addAll(topGames);
-                    resultsTable.setItems(data);
-                });
-            }
-
-            @Override
-            public void onError(String errorMessage) {
+            if (failure != null) {
                 // Displaying the error message.
-                Platform.runLater(() -> {
-                    loadingVBox.setVisible(false);
-                    errorLabel.setVisible(true);
-                    errorLabel.setText(errorMessage);
-                });
+                errorLabel.setVisible(true);
+                errorLabel.setText("Could not get server response");
+                return;
             }
-        })).start();
+
+            // Displaying the games.
+            data.addAll(topGames);
+            resultsTable.setItems(data);
+        }, Platform::runLater);
     }
 }
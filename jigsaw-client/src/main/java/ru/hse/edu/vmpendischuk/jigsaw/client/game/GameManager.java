@@ -2,8 +2,12 @@ package ru.hse.edu.vmpendischuk.jigsaw.client.game;
 
 import ru.hse.edu.vmpendischuk.jigsaw.client.network.DefaultJigsawClient;
 import ru.hse.edu.vmpendischuk.jigsaw.client.network.JigsawClient;
+import ru.hse.edu.vmpendischuk.jigsaw.util.GameField;
 import ru.hse.edu.vmpendischuk.jigsaw.util.Shape;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
 /**
  * Class used for Jigsaw game state management.
  * <p>
@@ -12,14 +16,24 @@ import ru.hse.edu.vmpendischuk.jigsaw.util.Shape;
  *   and methods for shape update and placement.
  */
 public class GameManager {
+    // The amount of shapes fetched from the server with a single request.
+    private static final int SHAPE_BATCH_SIZE = 8;
+    // The background thread used to fetch the shapes, shared by all games.
+    private static final Executor shapeFetchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "jigsaw-shape-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
     // The client instance used to communicate with the server.
     private final JigsawClient client = DefaultJigsawClient.getInstance();
+    // The buffer of the shapes fetched ahead of time.
+    private final ShapePrefetcher shapePrefetcher =
+            new ShapePrefetcher(client::getPlayerShapes, SHAPE_BATCH_SIZE, shapeFetchExecutor);
 
     // Shape that is to be placed on the field.
     public Shape currentShape;
-    // Current state -of the game field.
-    // 9x9 2D array, 1 = taken, 0 = free.
-    public int[][] gameFieldState;
+    // Current state of the game field.
+    public final GameField gameField = new GameField();
     // The amount of turns made by the player.
     public int turns;
     // Cells covered by shapes.
@@ -34,26 +48,34 @@ public class GameManager {
         turns = 0;
         coveredCells = 0;
         shapesPlaced = 0;
-
-        // Initializing game field.
-        gameFieldState = new int[9][9];
-        for (int i = 0; i < 9; ++i) {
-            for (int j = 0; j < 9; ++j) {
-                gameFieldState[i][j] = 0;
-            }
-        }
     }
 
     /**
-     * Fetches the shape that is to be placed by the player
+     * Takes the shape that is to be placed by the player from the prefetched shapes
      *   and returns the flag that denotes if the shape has been fetched.
      */
     public boolean updateCurrentShape() {
-        currentShape = client.getPlayerShape();
+        currentShape = shapePrefetcher.next();
 
         return currentShape != null;
     }
 
+    /**
+     * Stops fetching the shapes ahead of time, called when the game is over.
+     */
+    public void stopShapePrefetch() {
+        shapePrefetcher.stop();
+    }
+
+    /**
+     * Checks if the shape that is to be placed by the player fits anywhere on the field.
+     *
+     * @return flag that denotes if the player can still place the current shape.
+     */
+    public boolean hasLegalMove() {
+        return currentShape != null && gameField.hasLegalMove(currentShape);
+    }
+
     /**
      * Places the generated shape in the specified position on the field
      *   if the position is free.
@@ -64,36 +86,12 @@ public class GameManager {
      * @param selectionCol index of the column in the shape model where the drag pivot is located.
      */
     public void tryAddCurrentShape(int row, int col, int selectionRow, int selectionCol) {
-        int[][] shapeModel = currentShape.getModel();
         turns += 1;
 
-        // If the shape fits given the chosen point of placement.
-        if (selectionRow <= row && selectionCol <= col &&
-                shapeModel[0].length - selectionCol <= 9 - col &&
-                shapeModel.length - selectionRow <= 9 - row) {
-            // Checking if the required space is already taken.
-            for (int i = col - selectionCol; i < col - selectionCol + shapeModel[0].length; ++i) {
-                for (int j = row - selectionRow; j < row - selectionRow + shapeModel.length; ++j) {
-                    if (shapeModel[j - row + selectionRow][i - col + selectionCol] == 1) {
-                        if (gameFieldState[j][i] == 1) {
-                            // Stop placing the shape if the space is taken.
-                            return;
-                        }
-                    }
-                }
-            }
-
+        // The shape's bounding box is anchored at its top left corner.
+        if (gameField.place(currentShape, row - selectionRow, col - selectionCol)) {
             shapesPlaced++;
-
-            // Placing the shape in the free space.
-            for (int i = col - selectionCol; i < col - selectionCol + shapeModel[0].length; ++i) {
-                for (int j = row - selectionRow; j < row - selectionRow + shapeModel.length; ++j) {
-                    if (shapeModel[j - row + selectionRow][i - col + selectionCol] == 1) {
-                        gameFieldState[j][i] = 1;
-                        coveredCells++;
-                    }
-                }
-            }
+            coveredCells += currentShape.getCellCount();
         }
     }
 }
@@ -0,0 +1,104 @@
+package ru.hse.edu.vmpendischuk.jigsaw.client.game;
+
+import ru.hse.edu.vmpendischuk.jigsaw.util.Shape;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.function.IntFunction;
+
+/**
+ * Buffer of the shapes fetched from the server ahead of time.
+ * <p>
+ * The shapes are fetched in batches and the buffer is refilled in the background once it is half
+ *   empty, so taking the next shape does not wait for the network unless
+ *   the buffer has run dry. At most one batch is in flight, which keeps the shapes in the server's order.
+ * <p>
+ * The shapes are taken by a single thread (the JavaFX application thread).
+ */
+public class ShapePrefetcher {
+    // The function that fetches the given amount of shapes from the server.
+    private final IntFunction<List<Shape>> fetcher;
+    // The amount of shapes fetched with a single request.
+    private final int batchSize;
+    // The executor used to fetch the shapes in the background.
+    private final Executor executor;
+    // The fetched shapes that have not been taken yet.
+    private final Queue<Shape> shapes = new ConcurrentLinkedQueue<>();
+    // The batch fetch in flight, if any.
+    private CompletableFuture<Void> pendingFetch = CompletableFuture.completedFuture(null);
+    // Flag that denotes if the prefetcher has been stopped.
+    private volatile boolean stopped = false;
+
+    /**
+     * Initializes a new {@link ShapePrefetcher} instance without fetching any shapes.
+     *
+     * @param fetcher the function that fetches the given amount of shapes from the server.
+     * @param batchSize the amount of shapes fetched with a single request.
+     * @param executor the executor used to fetch the shapes in the background.
+     */
+    public ShapePrefetcher(IntFunction<List<Shape>> fetcher, int batchSize, Executor executor) {
+        this.fetcher = fetcher;
+        this.batchSize = batchSize;
+        this.executor = executor;
+    }
+
+    /**
+     * Takes the next shape, waiting for the shapes to be fetched only if none are buffered.
+     *
+     * @return the next shape, or {@code null} if the shapes could not be fetched.
+     */
+    public Shape next() {
+        Shape shape = shapes.poll();
+
+        if (shape == null) {
+            try {
+                fetch().join();
+            } catch (CompletionException ex) {
+                return null;
+            }
+
+            shape = shapes.poll();
+        }
+
+        if (shapes.size() <= batchSize / 2) {
+            fetch();
+        }
+
+        return shape;
+    }
+
+    /**
+     * Stops fetching the shapes and waits for the batch in flight,
+     *   so that no request is sent after the game is over.
+     */
+    public void stop() {
+        stopped = true;
+
+        try {
+            pendingFetch.join();
+        } catch (CompletionException ex) {
+            // The shapes are not needed anymore.
+        }
+    }
+
+    /**
+     * Starts fetching a batch of shapes unless a batch is already in flight.
+     *
+     * @return the batch fetch in flight.
+     */
+    private CompletableFuture<Void> fetch() {
+        if (pendingFetch.isDone() && !stopped) {
+            pendingFetch = CompletableFuture.runAsync(() -> {
+                if (!stopped) {
+                    shapes.addAll(fetcher.apply(batchSize));
+                }
+            }, executor);
+        }
+
+        return pendingFetch;
+    }
+}
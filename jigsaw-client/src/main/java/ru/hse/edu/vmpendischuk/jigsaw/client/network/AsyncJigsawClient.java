@@ -0,0 +1,121 @@
+package ru.hse.edu.vmpendischuk.jigsaw.client.network;
+
+import ru.hse.edu.vmpendischuk.jigsaw.util.GameResults;
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardCursor;
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardPage;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerProfile;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStatsEntry;
+import ru.hse.edu.vmpendischuk.jigsaw.util.Shape;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous variant of the {@link JigsawClient} interface.
+ * <p>
+ * The methods return without waiting for the server, the returned futures are completed
+ *   by the client's own threads, so the UI code composes the calls
+ *   (e.g. with {@code whenCompleteAsync(action, Platform::runLater)}) instead of starting a thread per call.
+ *   The futures of the requests the server refuses to serve are completed with a {@link RequestRejectedException},
+ *   the futures of the requests the server has not answered in time - with a
+ *   {@link java.util.concurrent.TimeoutException}.
+ */
+public interface AsyncJigsawClient extends JigsawClient {
+    /**
+     * Connects to the server with given address parameters.
+     *
+     * @param host server host.
+     * @param port server port.
+     * @return the future completed when the client has connected.
+     */
+    CompletableFuture<Void> connectAsync(String host, int port);
+
+    /**
+     * Registers a player with given username in the system.
+     * <p>
+     * The future is completed when all players have connected to the game, so the request has no timeout.
+     *
+     * @param username username.
+     * @return the future completed when the game can be started.
+     * @throws ClientNotConnectedException if the client is not connected to the server.
+     */
+    CompletableFuture<Void> registerPlayerAsync(String username);
+
+    /**
+     * Finishes the game for the registered player with given results.
+     * <p>
+     * The future is completed when all players have finished the game,
+     *   so the request times out only after the game's maximum duration.
+     *
+     * @param shapeCount the amount of shapes successfully placed by the player.
+     * @param time the amount of time it took for the player to finish the game.
+     * @return the future completed with the game results.
+     * @throws ClientNotConnectedException if the client is not connected to the server.
+     */
+    CompletableFuture<GameResults> finishGameForPlayerAsync(int shapeCount, String time);
+
+    /**
+     * Fetches the top 10 game results for the server.
+     *
+     * @return the future completed with the top 10 game results.
+     * @throws ClientNotConnectedException if the client is not connected to the server.
+     */
+    CompletableFuture<List<PlayerStatsEntry>> getTopGamesAsync();
+
+    /**
+     * Fetches a page of the game results for the server in the leaderboard order.
+     *
+     * @param after the cursor returned with the previous page, or {@code null} for the first page.
+     * @param limit the max amount of results in the page (1 to {@code Opcode.MAX_PAGE_SIZE}).
+     * @return the future completed with the page of the game results.
+     * @throws ClientNotConnectedException if the client is not connected to the server.
+     */
+    CompletableFuture<LeaderboardPage> getLeaderboardPageAsync(LeaderboardCursor after, int limit);
+
+    /**
+     * Fetches the rank of the best game result of the player with given username.
+     *
+     * @param username username.
+     * @return the future completed with the rank, or 0 if the player has no results.
+     * @throws ClientNotConnectedException if the client is not connected to the server.
+     */
+    CompletableFuture<Long> getPlayerRankAsync(String username);
+
+    /**
+     * Fetches the rank the game result with given score and duration would have.
+     *
+     * @param shapeCount the amount of shapes successfully placed by the player.
+     * @param time the amount of time it took for the player to finish the game.
+     * @return the future completed with the rank.
+     * @throws ClientNotConnectedException if the client is not connected to the server.
+     */
+    CompletableFuture<Long> getResultRankAsync(int shapeCount, String time);
+
+    /**
+     * Fetches the aggregate statistics of the game results of the player with given username.
+     *
+     * @param username username.
+     * @return the future completed with the player profile, or {@code null} if the player has no results.
+     * @throws ClientNotConnectedException if the client is not connected to the server.
+     */
+    CompletableFuture<PlayerProfile> getPlayerProfileAsync(String username);
+
+    /**
+     * Fetches the given amount of new shapes for the player to place with a single request.
+     *
+     * @param count the amount of shapes.
+     * @return the future completed with the new shapes for the player to place.
+     * @throws ClientNotConnectedException if the client is not connected to the server.
+     */
+    CompletableFuture<List<Shape>> getPlayerShapesAsync(int count);
+
+    /**
+     * Restarts the game for the registered player.
+     * <p>
+     * The future is completed when all players have connected to the game again, so the request has no timeout.
+     *
+     * @return the future completed when the game can be started.
+     * @throws ClientNotConnectedException if the client is not connected to the server.
+     */
+    CompletableFuture<Void> restartAsync();
+}
@@ -1,46 +1,97 @@
 package ru.hse.edu.vmpendischuk.jigsaw.client.network;
 
 import ru.hse.edu.vmpendischuk.jigsaw.util.GameResults;
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardCursor;
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardPage;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerProfile;
 import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStats;
 import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStatsEntry;
 import ru.hse.edu.vmpendischuk.jigsaw.util.Shape;
-
+import ru.hse.edu.vmpendischuk.jigsaw.util.protocol.Codec;
+import ru.hse.edu.vmpendischuk.jigsaw.util.protocol.FramePayload;
+import ru.hse.edu.vmpendischuk.jigsaw.util.protocol.FrameReader;
+import ru.hse.edu.vmpendischuk.jigsaw.util.protocol.FrameWriter;
+import ru.hse.edu.vmpendischuk.jigsaw.util.protocol.Handshake;
+import ru.hse.edu.vmpendischuk.jigsaw.util.protocol.Opcode;
+import ru.hse.edu.vmpendischuk.jigsaw.util.protocol.ProtocolException;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * The default implementation of the {@link JigsawClient} interface,
+ * The default implementation of the {@link AsyncJigsawClient} interface,
  *   used by the Jigsaw game app to communicate with the server.
+ * <p>
+ * Communicates with the server using the binary framed protocol
+ *   (see {@link ru.hse.edu.vmpendischuk.jigsaw.util.protocol}). Every request is tagged
+ *   with a correlation ID and a single reader thread completes the request waiting for
+ *   the response with the same ID, so the requests made by different threads
+ *   (e.g. a top games request during a shape prefetch) share the connection
+ *   without waiting for each other's responses.
+ * <p>
+ * The requests are asynchronous by nature: the futures returned by the {@link AsyncJigsawClient}
+ *   methods are completed by the reader thread, only opening the connection is done by a small shared executor.
+ *   The callback-based {@link JigsawClient} methods wait for the same futures on the calling thread.
  */
-public class DefaultJigsawClient implements JigsawClient {
+public class DefaultJigsawClient implements AsyncJigsawClient {
     // Inner class used to hold the singleton instance.
     // Used to implement the so-called "lazy initialization".
     private static class DefaultJigsawClientHolder {
         private static final DefaultJigsawClient INSTANCE = new DefaultJigsawClient();
     }
 
+    // Value of a request timeout that denotes that the request waits for the response indefinitely.
+    private static final long NO_TIMEOUT = 0;
+    // The time to wait for the server to accept the connection and greet the client in milliseconds.
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    // The time to wait for the response to a request the server answers immediately in milliseconds.
+    private static final long REQUEST_TIMEOUT_MILLIS = 10_000;
+    // Executor shared by the client's blocking operations, so that they do not need a thread per call.
+    private static final ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "jigsaw-client-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
     // The logger instance used to log messages.
     private static final Logger logger = Logger.getLogger(DefaultJigsawClient.class.getName());
+    // The requests waiting for the responses, by correlation ID.
+    private final Map<Integer, PendingRequest<?>> pendingRequests = new ConcurrentHashMap<>();
+    // The source of the request correlation IDs.
+    private final AtomicInteger nextCorrelationId = new AtomicInteger();
+    // Lock that keeps the request frames written by different threads from interleaving.
+    private final ReentrantLock writeLock = new ReentrantLock();
     // The client socket.
     private Socket socket;
     // The player's username.
-    private String username = null;
+    private volatile String username = null;
     // The opponent's username.
-    private String otherUsername = null;
+    private volatile String otherUsername = null;
     // Game's maximum allowed duration.
-    private int maxDuration;
-    // Socket input stream.
-    private ObjectInputStream inputStream;
-    // Socket output stream.
-    private ObjectOutputStream outputStream;
+    private volatile int maxDuration;
+    // Writer of the request frames.
+    private FrameWriter frameWriter;
     // Flag that denotes if the client is connected to the server.
-    private boolean isConnected = false;
+    private volatile boolean isConnected = false;
 
     private DefaultJigsawClient() { }
 
@@ -63,18 +114,61 @@ public class DefaultJigsawClient implements JigsawClient {
     @Override
     public void connect(String host, int port, CallbackHandler handler) {
         try {
-            socket = new Socket(host, port);
-            inputStream = new ObjectInputStream(socket.getInputStream());
-            outputStream = new ObjectOutputStream(socket.getOutputStream());
-
-            isConnected = true;
-
+            await(connectAsync(host, port));
             handler.onSuccess();
-        } catch (IOException ex) {
+        } catch (Exception ex) {
             handler.onError("Could not connect to the server");
         }
     }
 
+    /**
+     * Connects to the server with given address parameters.
+     *
+     * @param host server host.
+     * @param port server port.
+     * @return the future completed when the client has connected.
+     */
+    @Override
+    public CompletableFuture<Void> connectAsync(String host, int port) {
+        // Opening a socket blocks, so it is the only step done by the shared executor.
+        return CompletableFuture.runAsync(() -> {
+            try {
+                open(host, port);
+            } catch (IOException ex) {
+                throw new CompletionException(ex);
+            }
+        }, executor);
+    }
+
+    /**
+     * Opens the connection to the server and starts the reader thread.
+     *
+     * @param host server host.
+     * @param port server port.
+     * @throws IOException if the client could not connect to the server.
+     */
+    private void open(String host, int port) throws IOException {
+        socket = new Socket();
+        socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+
+        // A server that does not greet the client would block the handshake forever.
+        socket.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+        DataInputStream inputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream outputStream = new DataOutputStream(socket.getOutputStream());
+
+        Handshake.readServerGreeting(inputStream);
+        Handshake.writeClientHello(outputStream);
+        outputStream.flush();
+        socket.setSoTimeout(0);
+
+        frameWriter = new FrameWriter(outputStream);
+        isConnected = true;
+
+        Thread reader = new Thread(() -> readResponses(new FrameReader(inputStream)), "jigsaw-client-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
     /**
      * Registers a player with given username in the system.
      *
@@ -83,34 +177,40 @@ public class DefaultJigsawClient implements JigsawClient {
      */
     @Override
     public void registerPlayer(String username, CallbackHandler handler) {
-        if (!isConnected) {
-            throw new ClientNotConnectedException("The client is not connected to the server!");
-        }
+        CompletableFuture<Void> registered = registerPlayerAsync(username);
 
         try {
-            outputStream.writeUTF("REGISTER");
-            outputStream.writeUTF(username);
-            outputStream.flush();
-
-            String message = inputStream.readUTF();
-
-            if (message.equals("MAX PLAYER COUNT REACHED")) {
-                handler.onError("Max player count reached");
-            } else {
-                this.username = username;
-
-                while (message.equals("NOT READY")) {
-                    message = inputStream.readUTF();
-                }
+            await(registered);
+            handler.onSuccess();
+        } catch (Exception ex) {
+            handler.onError(RequestRejectedException.messageOf(ex, "Could not get server status"));
+        }
+    }
 
-                otherUsername = inputStream.readUTF();
-                maxDuration = inputStream.readInt();
+    /**
+     * Registers a player with given username in the system.
+     * <p>
+     * The future is completed when all players have connected to the game, so the request has no timeout.
+     *
+     * @param username username.
+     * @return the future completed when the game can be started.
+     */
+    @Override
+    public CompletableFuture<Void> registerPlayerAsync(String username) {
+        requireConnected();
 
-                handler.onSuccess();
+        // The server answers with a single READY frame once all players have connected.
+        return send(Opcode.REGISTER, output -> output.writeUTF(username), NO_TIMEOUT, (opcode, payload) -> {
+            if (opcode == Opcode.REJECTED) {
+                throw rejectedRegistration(payload);
             }
-        } catch (Exception ex) {
-            handler.onError("Could not get server status");
-        }
+
+            expect(Opcode.READY, opcode);
+            otherUsername = payload.readUTF();
+            maxDuration = payload.readInt();
+            this.username = username;
+            return null;
+        });
     }
 
     /**
@@ -120,15 +220,14 @@ public class DefaultJigsawClient implements JigsawClient {
      */
     @Override
     public Shape getPlayerShape() {
-        if (!isConnected) {
-            throw new ClientNotConnectedException("The client is not connected to the server!");
-        }
+        requireConnected();
 
         try {
-            outputStream.writeUTF("GET SHAPE");
-            outputStream.flush();
-
-            Shape shape = (Shape) inputStream.readObject();
+            Shape shape = await(send(Opcode.GET_SHAPE, FramePayload.EMPTY, REQUEST_TIMEOUT_MILLIS,
+                    (opcode, payload) -> {
+                        expect(Opcode.SHAPE, opcode);
+                        return Codec.readShape(payload);
+                    }));
 
             if (shape == null) {
                 logger.log(Level.WARNING, "Could not load new shape");
@@ -144,6 +243,44 @@ public class DefaultJigsawClient implements JigsawClient {
         }
     }
 
+    /**
+     * Fetches the given amount of new shapes for the player to place with a single request.
+     *
+     * @param count the amount of shapes (at most {@link Opcode#MAX_SHAPE_BATCH}).
+     * @return the new shapes for the player to place, or an empty list if the shapes could not be loaded.
+     */
+    @Override
+    public List<Shape> getPlayerShapes(int count) {
+        CompletableFuture<List<Shape>> shapes = getPlayerShapesAsync(count);
+
+        try {
+            return await(shapes);
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Could not load new shapes - connection lost");
+            return List.of();
+        } catch (Exception ex) {
+            logger.log(Level.WARNING, "Could not load new shapes", ex);
+            return List.of();
+        }
+    }
+
+    /**
+     * Fetches the given amount of new shapes for the player to place with a single request.
+     *
+     * @param count the amount of shapes (at most {@link Opcode#MAX_SHAPE_BATCH}).
+     * @return the future completed with the new shapes for the player to place.
+     */
+    @Override
+    public CompletableFuture<List<Shape>> getPlayerShapesAsync(int count) {
+        requireConnected();
+
+        return send(Opcode.GET_SHAPES, output -> output.writeByte(count), REQUEST_TIMEOUT_MILLIS,
+                (opcode, payload) -> {
+                    expect(Opcode.SHAPES, opcode);
+                    return Codec.readShapes(payload);
+                });
+    }
+
     /**
      * Finishes the game for the registered player with given results.
      *
@@ -153,33 +290,41 @@ public class DefaultJigsawClient implements JigsawClient {
      */
     @Override
     public void finishGameForPlayer(int shapeCount, String time, GameFinishCallbackHandler handler) {
-        if (!isConnected) {
-            throw new ClientNotConnectedException("The client is not connected to the server!");
-        }
+        CompletableFuture<GameResults> results = finishGameForPlayerAsync(shapeCount, time);
 
         try {
-            PlayerStats stats = new PlayerStats(shapeCount, time, Instant.now());
-            outputStream.writeUTF("FINISH");
-            outputStream.flush();
-            outputStream.writeObject(stats);
-            outputStream.flush();
-
-            String message = inputStream.readUTF();
-
-            if (message.equals("GAME ALREADY FINISHED")) {
-                handler.onError("Game is already finished for user");
-            } else {
-                while (!message.equals("READY")) {
-                    message = inputStream.readUTF();
-                }
+            handler.onSuccess(await(results));
+        } catch (Exception ex) {
+            handler.onError(RequestRejectedException.messageOf(ex, "Could not get server status"));
+        }
+    }
+
+    /**
+     * Finishes the game for the registered player with given results.
+     * <p>
+     * The future is completed when all players have finished the game,
+     *   so the request times out only after the game's maximum duration.
+     *
+     * @param shapeCount the amount of shapes successfully placed by the player.
+     * @param time the amount of time it took for the player to finish the game.
+     * @return the future completed with the game results.
+     */
+    @Override
+    public CompletableFuture<GameResults> finishGameForPlayerAsync(int shapeCount, String time) {
+        requireConnected();
 
-                GameResults results = (GameResults) inputStream.readObject();
+        PlayerStats stats = new PlayerStats(shapeCount, time, Instant.now());
+        long timeout = maxDuration * 1000L + REQUEST_TIMEOUT_MILLIS;
 
-                handler.onSuccess(results);
+        // The server answers with a single RESULTS frame once all players have finished.
+        return send(Opcode.FINISH, output -> Codec.writeStats(output, stats), timeout, (opcode, payload) -> {
+            if (opcode == Opcode.REJECTED) {
+                throw new RequestRejectedException("Game is already finished for user");
             }
-        } catch (Exception ex) {
-            handler.onError("Could not get server status");
-        }
+
+            expect(Opcode.RESULTS, opcode);
+            return Codec.readResults(payload);
+        });
     }
 
     /**
@@ -189,22 +334,107 @@ public class DefaultJigsawClient implements JigsawClient {
      */
     @Override
     public void getTopGames(TopGamesCallbackHandler handler) {
-        if (!isConnected) {
-            throw new ClientNotConnectedException("The client is not connected to the server!");
-        }
+        CompletableFuture<List<PlayerStatsEntry>> topGames = getTopGamesAsync();
 
         try {
-            outputStream.writeUTF("TOP");
-            outputStream.flush();
-
-            List<PlayerStatsEntry> topGames = (List<PlayerStatsEntry>) inputStream.readObject();
-
-            handler.onSuccess(topGames);
+            handler.onSuccess(await(topGames));
         } catch (Exception ex) {
             handler.onError("Could not get server response");
         }
     }
 
+    /**
+     * Fetches the top 10 game results for the server.
+     *
+     * @return the future completed with the top 10 game results.
+     */
+    @Override
+    public CompletableFuture<List<PlayerStatsEntry>> getTopGamesAsync() {
+        requireConnected();
+
+        return send(Opcode.TOP, FramePayload.EMPTY, REQUEST_TIMEOUT_MILLIS, (opcode, payload) -> {
+            expect(Opcode.TOP_RECORDS, opcode);
+            return Codec.readEntries(payload);
+        });
+    }
+
+    /**
+     * Fetches a page of the game results for the server in the leaderboard order.
+     *
+     * @param after the cursor returned with the previous page, or {@code null} for the first page.
+     * @param limit the max amount of results in the page.
+     * @return the future completed with the page of the game results.
+     */
+    @Override
+    public CompletableFuture<LeaderboardPage> getLeaderboardPageAsync(LeaderboardCursor after, int limit) {
+        requireConnected();
+
+        if (limit <= 0 || limit > Opcode.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Invalid page size " + limit);
+        }
+
+        return send(Opcode.LEADERBOARD_PAGE, output -> {
+            Codec.writeCursor(output, after);
+            output.writeByte(limit);
+        }, REQUEST_TIMEOUT_MILLIS, (opcode, payload) -> {
+            expect(Opcode.LEADERBOARD_RECORDS, opcode);
+            return Codec.readPage(payload);
+        });
+    }
+
+    /**
+     * Fetches the rank of the best game result of the player with given username.
+     *
+     * @param username username.
+     * @return the future completed with the rank, or 0 if the player has no results.
+     */
+    @Override
+    public CompletableFuture<Long> getPlayerRankAsync(String username) {
+        requireConnected();
+
+        return send(Opcode.PLAYER_RANK, output -> output.writeUTF(username), REQUEST_TIMEOUT_MILLIS,
+                (opcode, payload) -> {
+                    expect(Opcode.RANK, opcode);
+                    return payload.readLong();
+                });
+    }
+
+    /**
+     * Fetches the rank the game result with given score and duration would have.
+     *
+     * @param shapeCount the amount of shapes successfully placed by the player.
+     * @param time the amount of time it took for the player to finish the game.
+     * @return the future completed with the rank.
+     */
+    @Override
+    public CompletableFuture<Long> getResultRankAsync(int shapeCount, String time) {
+        requireConnected();
+
+        PlayerStats stats = new PlayerStats(shapeCount, time, Instant.now());
+        return send(Opcode.RESULT_RANK, output -> Codec.writeStats(output, stats), REQUEST_TIMEOUT_MILLIS,
+                (opcode, payload) -> {
+                    expect(Opcode.RANK, opcode);
+                    return payload.readLong();
+                });
+    }
+
+    /**
+     * Fetches the aggregate statistics of the game results of the player with given username.
+     *
+     * @param username username.
+     * @return the future completed with the player profile, or {@code null} if the player has no results.
+     */
+    @Override
+    public CompletableFuture<PlayerProfile> getPlayerProfileAsync(String username) {
+        requireConnected();
+
+        return send(Opcode.PLAYER_PROFILE, output -> output.writeUTF(username), REQUEST_TIMEOUT_MILLIS,
+                (opcode, payload) -> {
+                    expect(Opcode.PROFILE, opcode);
+                    return Codec.readProfile(payload);
+                });
+    }
+
     /**
      * Checks if the client is connected to a server.
      *
@@ -221,13 +451,11 @@ public class DefaultJigsawClient implements JigsawClient {
     @Override
     public void disconnect() {
         try {
-            outputStream.writeUTF("DISCONNECT");
+            // The server does not answer the DISCONNECT request.
+            writeFrame(Opcode.DISCONNECT, nextCorrelationId.incrementAndGet(), FramePayload.EMPTY);
             System.out.println("DISCONNECT");
-            outputStream.flush();
 
             socket.close();
-            inputStream.close();
-            outputStream.close();
         } catch (Exception ex) {
             logger.log(Level.SEVERE, "Could not disconnect", ex);
         }
@@ -240,25 +468,201 @@ public class DefaultJigsawClient implements JigsawClient {
      */
     @Override
     public void restart(CallbackHandler handler) {
+        CompletableFuture<Void> restarted = restartAsync();
+
+        try {
+            await(restarted);
+            handler.onSuccess();
+        } catch (Exception ex) {
+            handler.onError("Could not get server status");
+        }
+    }
+
+    /**
+     * Restarts the game for the registered player.
+     * <p>
+     * The future is completed when all players have connected to the game again, so the request has no timeout.
+     *
+     * @return the future completed when the game can be started.
+     */
+    @Override
+    public CompletableFuture<Void> restartAsync() {
+        requireConnected();
+
+        // The server answers with a single READY frame once all players have connected again.
+        return send(Opcode.RESTART, FramePayload.EMPTY, NO_TIMEOUT, (opcode, payload) -> {
+            if (opcode == Opcode.REJECTED) {
+                throw rejectedRegistration(payload);
+            }
+
+            expect(Opcode.READY, opcode);
+            otherUsername = payload.readUTF();
+            return null;
+        });
+    }
+
+    /**
+     * Returns the exception describing why the server has refused to put the player into a match.
+     *
+     * @param payload the payload of the REJECTED response.
+     * @return the exception describing the rejection.
+     * @throws IOException if the response is malformed.
+     */
+    private static RequestRejectedException rejectedRegistration(DataInput payload) throws IOException {
+        byte reason = payload.readByte();
+        if (reason == Opcode.REASON_USERNAME_TAKEN) {
+            return new RequestRejectedException("Username is already taken");
+        }
+        if (reason == Opcode.REASON_INVALID_USERNAME) {
+            return new RequestRejectedException("Username is too long");
+        }
+
+        return new RequestRejectedException("Max player count reached");
+    }
+
+    /**
+     * Checks that the client is connected to the server.
+     *
+     * @throws ClientNotConnectedException if the client is not connected to the server.
+     */
+    private void requireConnected() {
         if (!isConnected) {
             throw new ClientNotConnectedException("The client is not connected to the server!");
         }
+    }
+
+    /**
+     * Sends a request to the server without waiting for the response.
+     *
+     * @param opcode the request opcode.
+     * @param payload the action that writes the request payload.
+     * @param timeoutMillis the time to wait for the response in milliseconds, or {@link #NO_TIMEOUT}.
+     * @param decoder the decoder of the response, called by the reader thread.
+     * @param <T> type of the decoded response.
+     * @return the future completed with the decoded response.
+     */
+    private <T> CompletableFuture<T> send(byte opcode,
+                                          FramePayload payload,
+                                          long timeoutMillis,
+                                          ResponseDecoder<T> decoder) {
+        int correlationId = nextCorrelationId.incrementAndGet();
+        PendingRequest<T> request = new PendingRequest<>(decoder, new CompletableFuture<>());
+
+        // Registering the request before sending it, the response may arrive before the write returns.
+        pendingRequests.put(correlationId, request);
 
         try {
-            outputStream.writeUTF("RESTART");
-            outputStream.flush();
+            // The reader thread clears the flag before failing the registered requests.
+            if (!isConnected) {
+                throw new EOFException("The connection has been closed");
+            }
 
-            String message = inputStream.readUTF();
+            writeFrame(opcode, correlationId, payload);
+        } catch (IOException ex) {
+            pendingRequests.remove(correlationId);
+            request.future().completeExceptionally(ex);
+            return request.future();
+        }
+
+        if (timeoutMillis != NO_TIMEOUT) {
+            // Forgetting the timed out request, its late response is then dropped by the reader thread.
+            request.future().orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).whenComplete((response, failure) -> {
+                if (failure instanceof TimeoutException) {
+                    pendingRequests.remove(correlationId, request);
+                }
+            });
+        }
+
+        return request.future();
+    }
+
+    /**
+     * Writes a request frame.
+     *
+     * @param opcode the request opcode.
+     * @param correlationId the request correlation ID.
+     * @param payload the action that writes the request payload.
+     * @throws IOException if the frame could not be written.
+     */
+    private void writeFrame(byte opcode, int correlationId, FramePayload payload) throws IOException {
+        writeLock.lock();
+        try {
+            frameWriter.write(opcode, correlationId, payload);
+        } finally {
+            writeLock.unlock();
+        }
+    }
 
-            while (message.equals("NOT READY")) {
-                message = inputStream.readUTF();
+    /**
+     * Reads the response frames and completes the corresponding requests until the connection is closed.
+     * <p>
+     * Executed by the reader thread.
+     *
+     * @param frameReader reader of the server's response frames.
+     */
+    private void readResponses(FrameReader frameReader) {
+        IOException failure;
+
+        try {
+            while (true) {
+                byte opcode = frameReader.readFrame();
+                int correlationId = frameReader.correlationId();
+                PendingRequest<?> request = pendingRequests.remove(correlationId);
+
+                if (request == null) {
+                    logger.log(Level.WARNING, "Received a response to an unknown request " + correlationId);
+                    continue;
+                }
+
+                request.complete(opcode, frameReader.payload());
             }
+        } catch (EOFException ex) {
+            failure = new EOFException("The connection has been closed");
+        } catch (IOException ex) {
+            failure = ex;
+        }
 
-            otherUsername = message;
+        isConnected = false;
 
-            handler.onSuccess();
-        } catch (Exception ex) {
-            handler.onError("Could not get server status");
+        // Failing the requests left without the responses.
+        for (Integer correlationId : pendingRequests.keySet()) {
+            PendingRequest<?> request = pendingRequests.remove(correlationId);
+
+            if (request != null) {
+                request.future().completeExceptionally(failure);
+            }
+        }
+    }
+
+    /**
+     * Waits for the response to a request.
+     *
+     * @param future the future completed with the decoded response.
+     * @param <T> type of the decoded response.
+     * @return the decoded response.
+     * @throws IOException if the request has failed.
+     */
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Checks the opcode of a response.
+     *
+     * @param expected the expected opcode.
+     * @param received the received opcode.
+     * @throws ProtocolException if the opcodes differ.
+     */
+    private static void expect(byte expected, byte received) throws ProtocolException {
+        if (received != expected) {
+            throw new ProtocolException("Expected response " + expected + ", received " + received);
         }
     }
 
@@ -288,4 +692,47 @@ public class DefaultJigsawClient implements JigsawClient {
     public int getMaxDuration() {
         return maxDuration;
     }
+
+    /**
+     * Decoder of a response frame.
+     *
+     * @param <T> type of the decoded response.
+     */
+    @FunctionalInterface
+    private interface ResponseDecoder<T> {
+        /**
+         * Decodes the response frame.
+         *
+         * @param opcode the response opcode.
+         * @param payload the response payload.
+         * @return the decoded response.
+         * @throws IOException if the response is malformed.
+         */
+        T decode(byte opcode, DataInput payload) throws IOException;
+    }
+
+    /**
+     * Request waiting for the response.
+     *
+     * @param decoder the decoder of the response.
+     * @param future the future completed with the decoded response.
+     * @param <T> type of the decoded response.
+     */
+    private record PendingRequest<T>(ResponseDecoder<T> decoder, CompletableFuture<T> future) {
+        /**
+         * Decodes the response and completes the request with it.
+         * <p>
+         * Called by the reader thread, the payload is only valid until the next frame is read.
+         *
+         * @param opcode the response opcode.
+         * @param payload the response payload.
+         */
+        void complete(byte opcode, DataInput payload) {
+            try {
+                future.complete(decoder.decode(opcode, payload));
+            } catch (IOException | RuntimeException ex) {
+                future.completeExceptionally(ex);
+            }
+        }
+    }
 }
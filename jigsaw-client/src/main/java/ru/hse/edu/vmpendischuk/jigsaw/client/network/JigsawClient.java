@@ -2,6 +2,8 @@ package ru.hse.edu.vmpendischuk.jigsaw.client.network;
 
 import ru.hse.edu.vmpendischuk.jigsaw.util.Shape;
 
+import java.util.List;
+
 /**
  * Interface that describes behaviour of a client, used by the Jigsaw game app
  *   to communicate with the server.
@@ -47,6 +49,14 @@ public interface JigsawClient {
      */
     Shape getPlayerShape();
 
+    /**
+     * Fetches the given amount of new shapes for the player to place with a single request.
+     *
+     * @param count the amount of shapes.
+     * @return the new shapes for the player to place, or an empty list if the shapes could not be loaded.
+     */
+    List<Shape> getPlayerShapes(int count);
+
     /**
      * Checks if the client is connected to a server.
      *
@@ -0,0 +1,31 @@
+package ru.hse.edu.vmpendischuk.jigsaw.client.network;
+
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Exception used to complete a request of the {@link AsyncJigsawClient}
+ *   when the server has refused to serve the request.
+ */
+public class RequestRejectedException extends IOException {
+    public RequestRejectedException(String message) {
+        super(message);
+    }
+
+    /**
+     * Returns the message to display to the player for a failed request.
+     *
+     * @param failure the failure the request has been completed with.
+     * @param defaultMessage message used if the request has failed for other reasons than a rejection.
+     * @return the rejection message or the default message.
+     */
+    public static String messageOf(Throwable failure, String defaultMessage) {
+        Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+
+        if (cause instanceof RequestRejectedException) {
+            return cause.getMessage();
+        }
+
+        return defaultMessage;
+    }
+}
@@ -22,7 +22,7 @@ class GameManagerTest {
         GameManager gameManager = new GameManager();
 
         // Adding a shape.
-        gameManager.currentShape = new Shape("S2");
+        gameManager.currentShape = Shape.of(2);
         gameManager.tryAddCurrentShape(8, 0, 1, 0);
 
         int[][] expectedState = new int[][] {
@@ -38,7 +38,7 @@ class GameManagerTest {
         };
 
         // Checking the game field state.
-        assertTrue(Arrays.deepEquals(expectedState, gameManager.gameFieldState));
+        assertTrue(Arrays.deepEquals(expectedState, toMatrix(gameManager)));
     }
 
     /**
@@ -51,7 +51,7 @@ class GameManagerTest {
         GameManager gameManager = new GameManager();
 
         // Placing a shape in the free position.
-        gameManager.currentShape = new Shape("S2");
+        gameManager.currentShape = Shape.of(2);
         gameManager.tryAddCurrentShape(8, 0, 1, 0);
 
         // Placing a shape in the taken position.
@@ -70,6 +70,22 @@ class GameManagerTest {
         };
 
         // Checking the game field state.
-        assertTrue(Arrays.deepEquals(expectedState, gameManager.gameFieldState));
+        assertTrue(Arrays.deepEquals(expectedState, toMatrix(gameManager)));
+    }
+
+    /**
+     * Returns the game field state as a 9x9 matrix.
+     *
+     * @param gameManager the game manager.
+     * @return the game field state matrix, 1 = taken, 0 = free.
+     */
+    private static int[][] toMatrix(GameManager gameManager) {
+        int[][] state = new int[9][9];
+        for (int i = 0; i < 9; ++i) {
+            for (int j = 0; j < 9; ++j) {
+                state[i][j] = gameManager.gameField.isTaken(i, j) ? 1 : 0;
+            }
+        }
+        return state;
     }
 }
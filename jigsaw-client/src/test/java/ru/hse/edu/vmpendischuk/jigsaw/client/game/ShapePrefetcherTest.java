@@ -0,0 +1,67 @@
+package ru.hse.edu.vmpendischuk.jigsaw.client.game;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.hse.edu.vmpendischuk.jigsaw.util.Shape;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class that contains unit tests for the {@link ShapePrefetcher} class methods.
+ */
+class ShapePrefetcherTest {
+    // The amount of shapes fetched by the fake server.
+    private int fetchedShapes = 0;
+    // The amount of requests received by the fake server.
+    private int requests = 0;
+    // The fake server that returns the shapes S1, S2, ..., S31, S1, ... in order.
+    private final IntFunction<List<Shape>> fetcher = count -> {
+        requests++;
+        List<Shape> shapes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            shapes.add(Shape.of(fetchedShapes++ % Shape.COUNT + 1));
+        }
+        return shapes;
+    };
+
+    /**
+     * Tests if the shapes are returned in the server's order with a request per batch.
+     */
+    @Test
+    @DisplayName("Returns the shapes in order and fetches them in batches")
+    void returnsShapesInBatches() {
+        ShapePrefetcher prefetcher = new ShapePrefetcher(fetcher, 8, Runnable::run);
+
+        for (int i = 1; i <= 24; i++) {
+            assertSame(Shape.of((i - 1) % Shape.COUNT + 1), prefetcher.next());
+        }
+
+        assertTrue(requests <= 24 / 8 + 1);
+    }
+
+    /**
+     * Tests if no shapes are fetched after the prefetcher is stopped.
+     */
+    @Test
+    @DisplayName("Does not fetch shapes after being stopped")
+    void stops() {
+        ShapePrefetcher prefetcher = new ShapePrefetcher(fetcher, 2, Runnable::run);
+
+        assertNotNull(prefetcher.next());
+        prefetcher.stop();
+        int requestsBeforeStop = requests;
+
+        // The shapes buffered before the stop are still returned, then the prefetcher runs dry.
+        int bufferedShapes = 0;
+        while (prefetcher.next() != null) {
+            bufferedShapes++;
+        }
+
+        assertTrue(bufferedShapes < 4);
+        assertEquals(requestsBeforeStop, requests);
+    }
+}
@@ -6,4 +6,5 @@ module ru.hse.edu.vmpendischuk.jigsaw.server {
     exports ru.hse.edu.vmpendischuk.jigsaw.server;
     exports ru.hse.edu.vmpendischuk.jigsaw.server.data;
     exports ru.hse.edu.vmpendischuk.jigsaw.server.game;
+    exports ru.hse.edu.vmpendischuk.jigsaw.server.network;
 }
\ No newline at end of file
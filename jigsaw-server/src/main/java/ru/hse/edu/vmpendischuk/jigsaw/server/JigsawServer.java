@@ -1,18 +1,25 @@
 package ru.hse.edu.vmpendischuk.jigsaw.server;
 
-import ru.hse.edu.vmpendischuk.jigsaw.server.game.GameStateManager;
-import ru.hse.edu.vmpendischuk.jigsaw.util.GameResults;
-import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStats;
+import ru.hse.edu.vmpendischuk.jigsaw.server.data.JdbcResultsRepository;
+import ru.hse.edu.vmpendischuk.jigsaw.server.data.LeaderboardResultsRepository;
+import ru.hse.edu.vmpendischuk.jigsaw.server.data.MappedResultsRepository;
+import ru.hse.edu.vmpendischuk.jigsaw.server.data.PlatformThreadResultsRepository;
+import ru.hse.edu.vmpendischuk.jigsaw.server.data.ResultsRepository;
+import ru.hse.edu.vmpendischuk.jigsaw.server.data.ShardedResultsRepository;
+import ru.hse.edu.vmpendischuk.jigsaw.server.data.WriteBehindResultsRepository;
+import ru.hse.edu.vmpendischuk.jigsaw.server.game.MatchRegistry;
+import ru.hse.edu.vmpendischuk.jigsaw.server.game.MatchSettings;
+import ru.hse.edu.vmpendischuk.jigsaw.server.network.BlockingServer;
+import ru.hse.edu.vmpendischuk.jigsaw.server.network.ConnectionExecutors;
+import ru.hse.edu.vmpendischuk.jigsaw.server.network.SelectorServer;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketException;
+import java.io.UncheckedIOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -22,8 +29,26 @@ public class JigsawServer {
     private static final Logger logger = Logger.getLogger(JigsawServer.class.getName());
     // The scanner used to read input.
     private static final Scanner scan = new Scanner(System.in);
-    // The Jigsaw server game state manager.
-    private static GameStateManager gameStateManager;
+    // The server mode in which every client is served by a new platform thread.
+    private static final int THREAD_PER_CLIENT_MODE = 1;
+    // The server mode in which the clients are served by a selector event loop.
+    private static final int SELECTOR_MODE = 2;
+    // The server mode in which every client is served by a new virtual thread.
+    private static final int VIRTUAL_THREAD_MODE = 3;
+    // The minimal amount of I/O threads in the selector server mode.
+    private static final int SELECTOR_MIN_WORKERS = 4;
+    // The amount of platform threads that call the database in the virtual thread mode.
+    private static final int DATABASE_THREADS = 4;
+    // The results durability mode in which a game is finished once the results are committed.
+    private static final int COMMITTED_RESULTS_MODE = 1;
+    // The results durability mode in which a game is finished once the results are queued for writing.
+    private static final int QUEUED_RESULTS_MODE = 2;
+    // The maximal amount of results waiting to be written to the database.
+    private static final int RESULTS_QUEUE_CAPACITY = 1024;
+    // The maximal amount of the results storage shards.
+    private static final int MAX_SHARDS = 8;
+    // The registry of the matches played on the server.
+    private static MatchRegistry matchRegistry;
 
     /**
      * Jigsaw server entry point.
@@ -38,195 +63,179 @@ public class JigsawServer {
             port = scan.nextInt();
         } while (port < 4000 || port > 9000);
 
+        // Reading the server mode.
+        int mode;
+        do {
+            System.out.print("Select the server mode (1 - thread per client / 2 - selector event loop"
+                    + " / 3 - virtual thread per client): ");
+            mode = scan.nextInt();
+        } while (mode != THREAD_PER_CLIENT_MODE && mode != SELECTOR_MODE && mode != VIRTUAL_THREAD_MODE);
+
+        if (mode == VIRTUAL_THREAD_MODE && !ConnectionExecutors.virtualThreadsSupported()) {
+            logger.warning("Virtual threads require Java 21+, falling back to a thread per client");
+            mode = THREAD_PER_CLIENT_MODE;
+        }
+
+        // Initializing the server.
+        initializeGameServer(mode == VIRTUAL_THREAD_MODE);
+
+        if (mode == SELECTOR_MODE) {
+            runSelectorServer(port);
+        } else {
+            runBlockingServer(port, mode == VIRTUAL_THREAD_MODE);
+        }
+    }
+
+    /**
+     * Runs the server that serves each client on a separate thread.
+     *
+     * @param port the port on which the server will serve the clients.
+     * @param virtualThreads flag that denotes if the clients are served by virtual threads.
+     */
+    private static void runBlockingServer(int port, boolean virtualThreads) {
         // Launching the server socket on given port.
-        try (ServerSocket serverSocket = new ServerSocket(port)) {
-            logger.info(() -> "Started server, '" + serverSocket + "'");
-            // Initializing the server.
-            initializeGameServer();
+        try (BlockingServer server = new BlockingServer(port, virtualThreads
+                ? ConnectionExecutors.virtualThreadPerConnection()
+                : ConnectionExecutors.threadPerConnection(), matchRegistry)) {
+            logger.info(() -> "Started server on port " + port
+                    + (virtualThreads ? " with virtual threads" : " with a thread per client"));
             logger.info(() -> "Server initialized. Press any key to stop...");
 
             // Accepting clients.
-            new Thread(() -> acceptClients(serverSocket)).start();
+            new Thread(server::acceptClients).start();
             System.in.read();
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Could not start the server!", ex);
+        } finally {
+            logger.info(() -> "Matchmaking: " + matchRegistry.getMatchmaker().getStats());
+
+            // Shutting the databases and then the database engine down on server shutdown.
+            matchRegistry.close();
+            JdbcResultsRepository.shutdownEngine();
+        }
+    }
+
+    /**
+     * Runs the server that serves all clients with a selector event loop and a fixed pool of I/O threads.
+     *
+     * @param port the port on which the server will serve the clients.
+     */
+    private static void runSelectorServer(int port) {
+        int workerCount = Math.max(SELECTOR_MIN_WORKERS, Runtime.getRuntime().availableProcessors());
 
-            // Shutting the database down on server shutdown.
-            gameStateManager.closeDatabaseConnection();
+        try (SelectorServer server = new SelectorServer(port, workerCount, matchRegistry)) {
+            logger.info(() -> "Started selector server on port " + port + " with " + workerCount + " I/O threads");
+            logger.info(() -> "Server initialized. Press any key to stop...");
+
+            // Running the event loop.
+            new Thread(server::run, "jigsaw-selector").start();
+            System.in.read();
         } catch (IOException ex) {
             logger.log(Level.WARNING, "Could not start the server!", ex);
+        } finally {
+            logger.info(() -> "Matchmaking: " + matchRegistry.getMatchmaker().getStats());
+
+            // Shutting the databases and then the database engine down on server shutdown.
+            matchRegistry.close();
+            JdbcResultsRepository.shutdownEngine();
         }
     }
 
     /**
      * Initializes the Jigsaw server game state.
+     *
+     * @param offloadDatabaseCalls flag that denotes if the database calls
+     *   should be moved off the threads serving the clients.
      */
-    private static void initializeGameServer() {
+    private static void initializeGameServer(boolean offloadDatabaseCalls) {
         int playerCount;
         int maxSec;
-        String dbUrl;
 
         // Reading the player count.
         do {
-            System.out.print("Select the number of players (1 / 2): ");
+            System.out.print("Select the number of players in a game (1 / 2): ");
             playerCount = scan.nextInt();
-        } while (playerCount != 1 && playerCount != 2);
+        } while (playerCount < MatchSettings.MIN_PLAYER_COUNT || playerCount > MatchSettings.MAX_PLAYER_COUNT);
 
         // Reading the max allowed game duration.
         do {
             System.out.print("Enter the max duration of a game in seconds (20 <= n <= 300): ");
             maxSec = scan.nextInt();
-        } while (maxSec < 20 || maxSec > 300);
+        } while (maxSec < MatchSettings.MIN_DURATION || maxSec > MatchSettings.MAX_DURATION);
 
-        // Reading the database URL.
-        boolean urlIsValid = false;
+        // Reading the amount of results storage shards.
+        int shardCount;
         do {
-            System.out.print("Enter the URL of a database (JDBC Derby Embedded only): ");
-            dbUrl = scan.next();
-
-            try {
-                Connection connection = DriverManager.getConnection(dbUrl);
-                urlIsValid = true;
-            } catch (SQLException ex) {
-                logger.log(Level.WARNING, "DB connection error: " + ex.getSQLState());
+            System.out.print("Enter the number of results storage shards (1 <= n <= " + MAX_SHARDS + "): ");
+            shardCount = scan.nextInt();
+        } while (shardCount < 1 || shardCount > MAX_SHARDS);
+
+        // Reading the results storage of every shard.
+        List<ResultsRepository> shards = new ArrayList<>(shardCount);
+        for (int i = 1; i <= shardCount; i++) {
+            ResultsRepository shard = readResultsRepository(shardCount == 1 ? "" : " of shard " + i);
+
+            // Virtual threads must not be pinned by the database driver, the log file is only locked briefly.
+            if (offloadDatabaseCalls && !(shard instanceof MappedResultsRepository)) {
+                shard = new PlatformThreadResultsRepository(shard, DATABASE_THREADS);
             }
-        } while (!urlIsValid);
+            shards.add(shard);
+        }
 
-        // Initializing the game state manager.
-        JigsawServer.gameStateManager = new GameStateManager(playerCount, 20, maxSec, dbUrl);
+        // Reading the results durability mode.
+        int resultsMode;
+        do {
+            System.out.print("Select when a game is finished (1 - after its results are saved"
+                    + " / 2 - after its results are queued for saving): ");
+            resultsMode = scan.nextInt();
+        } while (resultsMode != COMMITTED_RESULTS_MODE && resultsMode != QUEUED_RESULTS_MODE);
+
+        // The results of the players are spread across the shards, which are written in parallel.
+        ResultsRepository resultsRepository = shardCount == 1 ? shards.get(0) : new ShardedResultsRepository(shards);
+
+        // The results of the games finishing at the same time are saved together.
+        resultsRepository = new WriteBehindResultsRepository(resultsRepository,
+                resultsMode == COMMITTED_RESULTS_MODE
+                        ? WriteBehindResultsRepository.Durability.COMMITTED
+                        : WriteBehindResultsRepository.Durability.QUEUED,
+                RESULTS_QUEUE_CAPACITY);
+
+        // The top records are served from memory instead of the database.
+        resultsRepository = new LeaderboardResultsRepository(resultsRepository);
+
+        // Initializing the match registry, the settings read above are used by the matches by default.
+        JigsawServer.matchRegistry = new MatchRegistry(new MatchSettings(playerCount, maxSec), resultsRepository);
     }
 
     /**
-     * Accepts the client connections and serves them.
+     * Reads the URL of the results storage until the storage is opened.
      *
-     * @param serverSocket the server socket.
+     * @param storageName the description of the storage in the prompt.
+     * @return the results repository.
      */
-    private static void acceptClients(ServerSocket serverSocket) {
-        while (true) {
-            try {
-                // Serving client.
-                Socket socket = serverSocket.accept();
-                new Thread(() -> serveClient(socket)).start();
-            } catch (IOException e) {
-                if (serverSocket.isClosed()) {
-                    break;
+    private static ResultsRepository readResultsRepository(String storageName) {
+        ResultsRepository resultsRepository = null;
+        do {
+            System.out.print("Enter the URL of a database" + storageName + " (JDBC Derby Embedded)"
+                    + " or " + MappedResultsRepository.URL_PREFIX + " followed by the path of a results log file: ");
+            String dbUrl = scan.next();
+
+            if (dbUrl.startsWith(MappedResultsRepository.URL_PREFIX)) {
+                try {
+                    resultsRepository = ResultsRepository.open(dbUrl);
+                } catch (UncheckedIOException ex) {
+                    logger.log(Level.WARNING, "Results log error: " + ex.getCause().getMessage());
                 }
-                logger.log(Level.WARNING, e, () -> "Cannot serve client");
-            }
-        }
-    }
-
-    /**
-     * Serves the client on given socket.
-     *
-     * @param socket the accepted client connection socket.
-     */
-    private static void serveClient(Socket socket) {
-        String username = null;
-
-        try (socket;
-             ObjectOutputStream outputStream = new ObjectOutputStream(socket.getOutputStream());
-             ObjectInputStream inputStream = new ObjectInputStream(socket.getInputStream())) {
-            while (true) {
-                // Reading the request header.
-                String header = inputStream.readUTF();
-                switch (header) {
-                    case "REGISTER" -> {
-                        // If the request header is REGISTER - registering the user.
-
-                        username = inputStream.readUTF();
-
-                        if (!gameStateManager.connectPlayer(username)) {
-                            outputStream.writeUTF("MAX PLAYER COUNT REACHED");
-                            outputStream.flush();
-                            logger.log(Level.INFO, "Player " + username + " not connected");
-                            return;
-                        }
-
-                        while (!gameStateManager.allPlayersConnected()) {
-                            outputStream.writeUTF("NOT READY");
-                            outputStream.flush();
-                        }
-
-                        logger.log(Level.INFO, "Player " + username + " connected");
-                        outputStream.writeUTF("READY");
-                        outputStream.writeUTF(gameStateManager.getAnotherPlayer(username));
-                        outputStream.writeInt(gameStateManager.getMaxDuration());
-                        outputStream.flush();
-                    }
-                    case "STATUS" -> {
-                        // If the request header is STATUS - returning the player connection status.
-
-                        outputStream.writeBoolean(!gameStateManager.allPlayersConnected());
-                        outputStream.flush();
-                    }
-                    case "GET SHAPE" -> {
-                        // If the request header is GET SHAPE - returning a new shape for player.
-
-                        outputStream.writeObject(gameStateManager.getShapeForPlayer(username));
-                        outputStream.flush();
-                    }
-                    case "FINISH" -> {
-                        // If the request header is FINISH - finishing the game for the player.
-
-                        PlayerStats stats = (PlayerStats) inputStream.readObject();
-
-                        if (!gameStateManager.finishForPlayer(username, stats)) {
-                            outputStream.writeUTF("GAME ALREADY FINISHED");
-                            outputStream.flush();
-                            return;
-                        }
-
-                        while (!gameStateManager.allPlayersFinished()) {
-                            outputStream.writeUTF("NOT READY");
-                            outputStream.flush();
-                        }
-
-                        outputStream.writeUTF("READY");
-
-                        GameResults results = gameStateManager.getResults();
-
-                        outputStream.writeObject(results);
-                        outputStream.flush();
-                     }
-                    case "DISCONNECT" -> {
-                        // If the request header is DISCONNECT - disconnecting the player
-                        //   and stopping serving the client.
-
-                        if (username != null) {
-                            gameStateManager.disconnectPlayer(username);
-                            logger.log(Level.INFO, "Player " + username + " disconnected");
-                        }
-
-                        return;
-                    }
-                    case "RESTART" -> {
-                        // If the request header is RESTART - restart the game for the player.
-
-                        gameStateManager.reset();
-                        gameStateManager.connectPlayer(username);
-
-                        while (!gameStateManager.allPlayersConnected()) {
-                            outputStream.writeUTF("NOT READY");
-                            outputStream.flush();
-                        }
-
-                        outputStream.writeUTF(gameStateManager.getAnotherPlayer(username));
-                        outputStream.flush();
-                    }
-                    case "TOP" -> {
-                        // If the request header is TOP - return the top 10 (or less) game results.
-
-                        outputStream.writeObject(gameStateManager.getTopRecords());
-                        outputStream.flush();
-                    }
+            } else {
+                try {
+                    Connection connection = DriverManager.getConnection(dbUrl);
+                    resultsRepository = ResultsRepository.open(dbUrl);
+                } catch (SQLException ex) {
+                    logger.log(Level.WARNING, "DB connection error: " + ex.getSQLState());
                 }
             }
-        } catch (SocketException ex) {
-            // If the client has closed the socket connection - disconnect the player.
-            if (username != null) {
-                gameStateManager.disconnectPlayer(username);
-            }
-        } catch (IOException | ClassNotFoundException e) {
-            logger.log(Level.WARNING, "Could not process request", e);
-        }
+        } while (resultsRepository == null);
+
+        return resultsRepository;
     }
 }
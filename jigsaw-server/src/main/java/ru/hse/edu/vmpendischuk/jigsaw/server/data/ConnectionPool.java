@@ -0,0 +1,212 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.data;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The pool of the database connections used by a {@link JdbcResultsRepository}.
+ * <p>
+ * The connections are opened on demand up to the pool size, a caller waits for a free connection
+ *   once all of them are in use. Every connection keeps the statements prepared on it and its own
+ *   calendar, so a statement is prepared once per connection and the calendar is only used
+ *   by the thread holding the connection. The connections closed by the database
+ *   (for example, by a database shutdown) are replaced with new ones.
+ */
+final class ConnectionPool implements AutoCloseable {
+    // Logger used to log messages.
+    private static final Logger logger = Logger.getLogger(ConnectionPool.class.getName());
+    // The time a caller waits for a connection to be returned before trying to open a new one.
+    private static final long WAIT_MILLIS = 100;
+    // The database URL.
+    private final String url;
+    // The max amount of open connections.
+    private final int size;
+    // The open connections that are not in use.
+    private final BlockingQueue<PooledConnection> idleConnections;
+    // The amount of open connections.
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    /**
+     * Initializes a new {@link ConnectionPool} instance.
+     *
+     * @param url the database URL.
+     * @param size the max amount of open connections.
+     */
+    ConnectionPool(String url, int size) {
+        this.url = url;
+        this.size = size;
+        idleConnections = new ArrayBlockingQueue<>(size);
+    }
+
+    /**
+     * Takes a connection from the pool, opening a new one or waiting for a free one if there are no idle connections.
+     * <p>
+     * Closing the taken connection returns it to the pool.
+     *
+     * @return the connection.
+     * @throws SQLException if a new connection could not be opened or the caller has been interrupted.
+     */
+    PooledConnection acquire() throws SQLException {
+        while (true) {
+            PooledConnection connection = idleConnections.poll();
+
+            if (connection == null) {
+                if (openConnections.incrementAndGet() <= size) {
+                    try {
+                        return new PooledConnection(DriverManager.getConnection(url));
+                    } catch (SQLException ex) {
+                        openConnections.decrementAndGet();
+                        throw ex;
+                    }
+                }
+                openConnections.decrementAndGet();
+
+                // Waiting for a connection to be returned, or for a discarded connection to free its place.
+                try {
+                    connection = idleConnections.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for a database connection", ex);
+                }
+            }
+
+            if (connection != null) {
+                if (!connection.connection().isClosed()) {
+                    return connection;
+                }
+                discard(connection);
+            }
+        }
+    }
+
+    /**
+     * Closes all idle connections.
+     */
+    @Override
+    public void close() {
+        List<PooledConnection> connections = new ArrayList<>();
+        idleConnections.drainTo(connections);
+
+        for (PooledConnection connection : connections) {
+            discard(connection);
+        }
+    }
+
+    /**
+     * Returns the connection to the pool.
+     *
+     * @param connection the connection.
+     */
+    private void release(PooledConnection connection) {
+        try {
+            if (connection.connection().isClosed() || !connection.connection().getAutoCommit()) {
+                // A connection in an unknown state is not reused.
+                discard(connection);
+                return;
+            }
+        } catch (SQLException ex) {
+            discard(connection);
+            return;
+        }
+
+        idleConnections.offer(connection);
+    }
+
+    /**
+     * Closes the connection and frees its place in the pool.
+     *
+     * @param connection the connection.
+     */
+    private void discard(PooledConnection connection) {
+        openConnections.decrementAndGet();
+
+        try {
+            connection.connection().close();
+        } catch (SQLException ex) {
+            logger.log(Level.FINE, "Could not close a database connection", ex);
+        }
+    }
+
+    /**
+     * A database connection taken from the pool, along with its prepared statements.
+     */
+    final class PooledConnection implements AutoCloseable {
+        // The database connection.
+        private final Connection connection;
+        // The statements prepared on the connection by their SQL.
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+        // Calendar used for timestamp conversion on the connection.
+        private final Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("GMT"));
+
+        /**
+         * Initializes a new {@link PooledConnection} instance.
+         *
+         * @param connection the database connection.
+         */
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * Returns the database connection.
+         *
+         * @return the database connection.
+         */
+        Connection connection() {
+            return connection;
+        }
+
+        /**
+         * Returns the statement prepared on the connection for the given SQL, preparing it on the first call.
+         * <p>
+         * The statement is reused, so it must not be closed.
+         *
+         * @param sql the SQL of the statement.
+         * @param autoGeneratedKeys the flag that denotes if the generated keys are returned
+         *   ({@link java.sql.Statement#RETURN_GENERATED_KEYS} or {@link java.sql.Statement#NO_GENERATED_KEYS}).
+         * @return the prepared statement.
+         * @throws SQLException if the statement could not be prepared.
+         */
+        PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+
+            if (statement == null) {
+                statement = connection.prepareStatement(sql, autoGeneratedKeys);
+                statements.put(sql, statement);
+            }
+
+            return statement;
+        }
+
+        /**
+         * Returns the calendar used for timestamp conversion on the connection.
+         *
+         * @return the GMT calendar.
+         */
+        Calendar calendar() {
+            return calendar;
+        }
+
+        /**
+         * Returns the connection to the pool.
+         */
+        @Override
+        public void close() {
+            release(this);
+        }
+    }
+}
@@ -1,62 +1,358 @@
 package ru.hse.edu.vmpendischuk.jigsaw.server.data;
 
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardCursor;
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardPage;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerProfile;
 import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStatsEntry;
 
+import ru.hse.edu.vmpendischuk.jigsaw.server.data.ConnectionPool.PooledConnection;
+
 import java.sql.*;
 import java.time.*;
 import java.util.ArrayList;
-import java.util.Calendar;
+import java.util.Arrays;
 import java.util.List;
-import java.util.TimeZone;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * The JDBC Derby implementation of the {@link ResultsRepository} interface.
+ * <p>
+ * The repository is called concurrently: the database connections are taken from a pool,
+ *   and the statements are prepared once per pooled connection. The durations are stored both as
+ *   the displayed text and as milliseconds, and the top records and the pages are read from an index
+ *   in the leaderboard order, so a read does not sort the table. A page after a cursor is read
+ *   as up to four index range scans, one per leaderboard order column that may follow the cursor,
+ *   since Derby does not support the row value comparisons. The ranks are found by a {@link RankIndex}
+ *   filled from the table on initialization. The aggregate statistics of every player are kept in a separate
+ *   table, so a player profile is read by its key. A batch of records is added in a single transaction
+ *   with their statistics, retried if Derby rolls it back on a lock conflict.
  */
 public class JdbcResultsRepository implements ResultsRepository {
     // Logger used to log messages.
     private static final Logger logger = Logger.getLogger(JdbcResultsRepository.class.getName());
-    // Calendar instance used for timestamp parsing.
-    private final Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("GMT"));
-    // The database URL.
-    private final String url;
+    // The default max amount of open database connections.
+    public static final int DEFAULT_POOL_SIZE = 4;
+    // The name of the index that matches the leaderboard order and contains all columns of the top records,
+    //   so the top records are read from the first entries of the index without reading the table.
+    private static final String LEADERBOARD_INDEX = "RESULTS_LEADERBOARD";
+    // The columns of the leaderboard index.
+    private static final String LEADERBOARD_INDEX_COLUMNS =
+            "SCORE DESC, DURATION_MS, FINISH_TIME DESC, ID, USERNAME, DURATION";
+    // The name of the index that matches the leaderboard order of the results of every player.
+    private static final String PLAYER_INDEX = "RESULTS_PLAYER";
+    // The columns of the player index.
+    private static final String PLAYER_INDEX_COLUMNS = "USERNAME, SCORE DESC, DURATION_MS, FINISH_TIME DESC, DURATION";
+    // The maximal length of a username in characters, the size of the username columns.
+    private static final int MAX_USERNAME_LENGTH = 512;
+    // The duration stored for the migrated records whose text duration could not be parsed (sorted last).
+    private static final int UNKNOWN_DURATION_MILLIS = Integer.MAX_VALUE;
+    // The max amount of attempts of a transaction rolled back on a deadlock or a lock timeout.
+    private static final int MAX_TRANSACTION_ATTEMPTS = 5;
+    // The amount of migrated records updated in a single batch.
+    private static final int MIGRATION_BATCH_SIZE = 1000;
+    // The statement that adds a record.
+    private static final String INSERT_SQL =
+            "INSERT INTO RESULTS (USERNAME, FINISH_TIME, SCORE, DURATION, DURATION_MS) VALUES (?, ?, ?, ?, ?)";
+    // The statement that merges the added records into the aggregate statistics of a player.
+    private static final String UPDATE_PLAYER_SQL = """
+            UPDATE PLAYERS SET GAMES = GAMES + ?, TOTAL_SCORE = TOTAL_SCORE + ?,
+                BEST_SCORE = CASE WHEN BEST_SCORE < CAST(? AS INTEGER) THEN CAST(? AS INTEGER) ELSE BEST_SCORE END,
+                BEST_DURATION_MS = CASE WHEN BEST_DURATION_MS > CAST(? AS INTEGER) THEN CAST(? AS INTEGER)
+                    ELSE BEST_DURATION_MS END,
+                LAST_PLAYED = CASE WHEN LAST_PLAYED < CAST(? AS TIMESTAMP) THEN CAST(? AS TIMESTAMP)
+                    ELSE LAST_PLAYED END
+                WHERE USERNAME = ?
+            """;
+    // The statement that adds the aggregate statistics of a new player.
+    private static final String INSERT_PLAYER_SQL = "INSERT INTO PLAYERS"
+            + " (GAMES, TOTAL_SCORE, BEST_SCORE, BEST_DURATION_MS, LAST_PLAYED, USERNAME) VALUES (?, ?, ?, ?, ?, ?)";
+    // The statement that selects the aggregate statistics of a player.
+    private static final String PROFILE_SQL =
+            "SELECT GAMES, TOTAL_SCORE, BEST_SCORE, BEST_DURATION_MS, LAST_PLAYED FROM PLAYERS WHERE USERNAME = ?";
+    // The statement that selects the top 10 records, reading the leaderboard index in order.
+    private static final String TOP_RECORDS_SQL = """
+            SELECT USERNAME, FINISH_TIME, SCORE, DURATION FROM RESULTS
+                ORDER BY SCORE DESC, DURATION_MS, FINISH_TIME DESC, ID FETCH NEXT 10 ROWS ONLY
+            """;
+    // The leaderboard order columns.
+    private static final String[] PAGE_KEYS = {"SCORE", "DURATION_MS", "FINISH_TIME", "ID"};
+    // The comparisons of the leaderboard order columns that select the records after a cursor value.
+    private static final String[] PAGE_KEY_COMPARISONS = {" < ?", " > ?", " < ?", " > ?"};
+    // The statements that select a page, the statement with the index i compares the first i + 1
+    //   leaderboard order columns with the cursor: the statement 0 selects the first page,
+    //   the statement 4 selects the records that only differ from the cursor by the ID.
+    private static final String[] PAGE_SQL = new String[PAGE_KEYS.length + 1];
+    // The statement that selects the best record of a player, reading the player index.
+    private static final String BEST_RECORD_SQL = """
+            SELECT USERNAME, FINISH_TIME, SCORE, DURATION FROM RESULTS WHERE USERNAME = ?
+                ORDER BY SCORE DESC, DURATION_MS, FINISH_TIME DESC FETCH NEXT 1 ROWS ONLY
+            """;
+    // The pool of the database connections.
+    private final ConnectionPool connectionPool;
+    // The URL that shuts the database down, without the attributes of the database URL.
+    private final String shutdownUrl;
+    // The order-statistic index of the records.
+    private final RankIndex rankIndex = new RankIndex();
+
+    static {
+        for (int keys = 0; keys < PAGE_SQL.length; keys++) {
+            StringBuilder condition = new StringBuilder();
+            for (int i = 0; i < keys; i++) {
+                // The previous columns are equal to the cursor ones, the last column follows the cursor one.
+                condition.append(i == 0 ? " WHERE " : " AND ")
+                        .append(PAGE_KEYS[i])
+                        .append(i == keys - 1 ? PAGE_KEY_COMPARISONS[i] : " = ?");
+            }
+
+            PAGE_SQL[keys] = "SELECT ID, USERNAME, FINISH_TIME, SCORE, DURATION, DURATION_MS FROM RESULTS"
+                    + condition + " ORDER BY SCORE DESC, DURATION_MS, FINISH_TIME DESC, ID FETCH NEXT ? ROWS ONLY";
+        }
+    }
 
     /**
-     * Initializes a new {@link JdbcResultsRepository} instance.
+     * Initializes a new {@link JdbcResultsRepository} instance with the default connection pool size.
      *
      * @param url the database URL.
      */
     public JdbcResultsRepository(String url) {
-        this.url = url;
+        this(url, DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * Initializes a new {@link JdbcResultsRepository} instance.
+     *
+     * @param url the database URL.
+     * @param poolSize the max amount of open database connections.
+     */
+    public JdbcResultsRepository(String url, int poolSize) {
+        connectionPool = new ConnectionPool(url, poolSize);
+        shutdownUrl = url.split(";", 2)[0] + ";shutdown=true";
         createTable();
+        loadRankIndex();
     }
 
     /**
-     * Creates the table needed for the repository in the database.
+     * Creates the table needed for the repository in the database,
+     *   or migrates the table created by an earlier version of the repository.
      */
     private void createTable() {
-        try (Connection connection = DriverManager.getConnection(url);
-             Statement statement = connection.createStatement()) {
+        try (PooledConnection connection = connectionPool.acquire();
+             Statement statement = connection.connection().createStatement()) {
+            try {
+                statement.executeUpdate("""
+                    CREATE TABLE RESULTS(
+                                            ID BIGINT NOT NULL PRIMARY KEY GENERATED ALWAYS AS IDENTITY (START WITH 1, INCREMENT BY 1),
+                                            USERNAME VARCHAR(512) NOT NULL,
+                                            FINISH_TIME TIMESTAMP NOT NULL,
+                                            SCORE INTEGER NOT NULL,
+                                            DURATION VARCHAR(255),
+                                            DURATION_MS INTEGER NOT NULL
+                    )
+                    """);
+            } catch (SQLException ex) {
+                if (!ex.getSQLState().equals("X0Y32")) {
+                    throw ex;
+                }
+                migrateDurations(connection, statement);
+            }
+
+            createIndex(connection, statement, LEADERBOARD_INDEX, LEADERBOARD_INDEX_COLUMNS);
+            createIndex(connection, statement, PLAYER_INDEX, PLAYER_INDEX_COLUMNS);
+            createPlayersTable(connection, statement);
+        } catch (SQLException ex) {
+            logger.log(Level.SEVERE, "Could not create the results table!", ex);
+            close();
+        }
+    }
+
+    /**
+     * Creates the table of the aggregate statistics of the players, filling it from the existing records.
+     *
+     * @param connection the pooled database connection.
+     * @param statement the statement used to create the table.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    private static void createPlayersTable(PooledConnection connection, Statement statement) throws SQLException {
+        connection.connection().setAutoCommit(false);
+
+        try {
             statement.executeUpdate("""
-                CREATE TABLE RESULTS(
-                                        ID BIGINT NOT NULL PRIMARY KEY GENERATED ALWAYS AS IDENTITY (START WITH 1, INCREMENT BY 1),
-                                        USERNAME VARCHAR(512) NOT NULL,
-                                        FINISH_TIME TIMESTAMP NOT NULL,
-                                        SCORE INTEGER NOT NULL,
-                                        DURATION VARCHAR(255)
-                )
-                """);
+                    CREATE TABLE PLAYERS(
+                                            USERNAME VARCHAR(512) NOT NULL PRIMARY KEY,
+                                            GAMES BIGINT NOT NULL,
+                                            TOTAL_SCORE BIGINT NOT NULL,
+                                            BEST_SCORE INTEGER NOT NULL,
+                                            BEST_DURATION_MS INTEGER NOT NULL,
+                                            LAST_PLAYED TIMESTAMP NOT NULL
+                    )
+                    """);
+            int players = statement.executeUpdate("""
+                    INSERT INTO PLAYERS (USERNAME, GAMES, TOTAL_SCORE, BEST_SCORE, BEST_DURATION_MS, LAST_PLAYED)
+                        SELECT USERNAME, COUNT(*), SUM(CAST(SCORE AS BIGINT)), MAX(SCORE), MIN(DURATION_MS),
+                            MAX(FINISH_TIME) FROM RESULTS GROUP BY USERNAME
+                    """);
+            connection.connection().commit();
+
+            if (players > 0) {
+                logger.log(Level.INFO, "Aggregated the results of " + players + " players");
+            }
         } catch (SQLException ex) {
+            connection.connection().rollback();
             if (!ex.getSQLState().equals("X0Y32")) {
-                logger.log(Level.SEVERE, "Could not create the results table!", ex);
-                close();
+                throw ex;
+            }
+        } finally {
+            connection.connection().setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Adds the numeric duration column to the results table created without it
+     *   and fills it from the text durations of the existing records.
+     *
+     * @param connection the pooled database connection.
+     * @param statement the statement used to alter the table.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    private static void migrateDurations(PooledConnection connection, Statement statement) throws SQLException {
+        try (ResultSet columns = connection.connection().getMetaData()
+                .getColumns(null, null, "RESULTS", "DURATION_MS")) {
+            if (columns.next()) {
+                return;
+            }
+        }
+
+        logger.log(Level.INFO, "Migrating the results table to the numeric durations");
+        connection.connection().setAutoCommit(false);
+
+        try {
+            statement.executeUpdate("ALTER TABLE RESULTS ADD COLUMN DURATION_MS INTEGER");
+
+            try (Statement select = connection.connection().createStatement();
+                 ResultSet records = select.executeQuery("SELECT ID, DURATION FROM RESULTS");
+                 PreparedStatement update = connection.connection().prepareStatement(
+                         "UPDATE RESULTS SET DURATION_MS = ? WHERE ID = ?")) {
+                int batched = 0;
+                while (records.next()) {
+                    update.setInt(1, toMillis(records.getString("DURATION")));
+                    update.setLong(2, records.getLong("ID"));
+                    update.addBatch();
+
+                    if (++batched == MIGRATION_BATCH_SIZE) {
+                        update.executeBatch();
+                        batched = 0;
+                    }
+                }
+                update.executeBatch();
+            }
+
+            statement.executeUpdate("ALTER TABLE RESULTS ALTER COLUMN DURATION_MS NOT NULL");
+            connection.connection().commit();
+        } catch (SQLException ex) {
+            connection.connection().rollback();
+            throw ex;
+        } finally {
+            connection.connection().setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Creates the index of the results table, or recreates it if it has been created
+     *   by an earlier version of the repository with other columns.
+     *
+     * @param connection the pooled database connection.
+     * @param statement the statement used to alter the table.
+     * @param name the name of the index.
+     * @param columns the columns of the index with their sort directions.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    private static void createIndex(PooledConnection connection, Statement statement, String name, String columns)
+            throws SQLException {
+        List<String> expectedColumns = Arrays.stream(columns.split(","))
+                .map(column -> column.trim().split(" ")[0])
+                .toList();
+        List<String> existingColumns = new ArrayList<>();
+
+        try (ResultSet indexes = connection.connection().getMetaData()
+                .getIndexInfo(null, null, "RESULTS", false, true)) {
+            while (indexes.next()) {
+                if (name.equals(indexes.getString("INDEX_NAME"))) {
+                    existingColumns.add(indexes.getString("COLUMN_NAME"));
+                }
             }
         }
+
+        if (existingColumns.equals(expectedColumns)) {
+            return;
+        }
+        if (!existingColumns.isEmpty()) {
+            statement.executeUpdate("DROP INDEX " + name);
+        }
+        statement.executeUpdate("CREATE INDEX " + name + " ON RESULTS (" + columns + ")");
     }
 
     /**
-     * Adds the given record to the database.
+     * Counts the records of the table in the rank index.
+     */
+    private void loadRankIndex() {
+        try (PooledConnection connection = connectionPool.acquire();
+             Statement statement = connection.connection().createStatement();
+             ResultSet counts = statement.executeQuery(
+                     "SELECT SCORE, DURATION_MS, COUNT(*) FROM RESULTS GROUP BY SCORE, DURATION_MS")) {
+            while (counts.next()) {
+                rankIndex.add(counts.getInt(1), counts.getInt(2), counts.getLong(3));
+            }
+        } catch (SQLException ex) {
+            logger.log(Level.SEVERE, "Could not count the results for the ranks!", ex);
+        }
+    }
+
+    /**
+     * Converts the game duration in the "HH:MM:SS" format to milliseconds.
+     *
+     * @param time the game duration in the "HH:MM:SS" format.
+     * @return the game duration in milliseconds,
+     *   or {@link #UNKNOWN_DURATION_MILLIS} if the duration is missing or invalid.
+     */
+    static int toMillis(String time) {
+        if (time == null) {
+            return UNKNOWN_DURATION_MILLIS;
+        }
+
+        String[] parts = time.split(":");
+        if (parts.length != 3) {
+            return UNKNOWN_DURATION_MILLIS;
+        }
+
+        try {
+            long seconds = Long.parseLong(parts[0]) * 3600 + Long.parseLong(parts[1]) * 60 + Long.parseLong(parts[2]);
+            return seconds < 0 || seconds * 1000 >= UNKNOWN_DURATION_MILLIS
+                    ? UNKNOWN_DURATION_MILLIS
+                    : (int) (seconds * 1000);
+        } catch (NumberFormatException ex) {
+            return UNKNOWN_DURATION_MILLIS;
+        }
+    }
+
+    /**
+     * Formats the game duration in milliseconds as "HH:MM:SS".
+     *
+     * @param durationMillis the game duration in milliseconds.
+     * @return the game duration in the "HH:MM:SS" format.
+     */
+    static String formatTime(int durationMillis) {
+        int seconds = durationMillis / 1000;
+        return String.format("%02d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+
+    /**
+     * Adds the given record to the database, then merges it into the statistics of its player.
+     * <p>
+     * Both statements are committed on their own, so the record does not hold its row lock
+     *   while the statistics of the player are updated.
      *
      * @param record the game result record.
      * @return the generated ID of the record in the database.
@@ -64,22 +360,154 @@ public class JdbcResultsRepository implements ResultsRepository {
      */
     @Override
     public long addRecord(PlayerStatsEntry record) throws SQLException {
-        try (Connection connection = DriverManager.getConnection(url);
-             PreparedStatement statement = connection.prepareStatement(
-                     "INSERT INTO RESULTS (USERNAME, FINISH_TIME, SCORE, DURATION) VALUES (?, ?, ?, ?)",
-                     Statement.RETURN_GENERATED_KEYS)) {
-            statement.setString(1, record.username());
-            statement.setTimestamp(2, Timestamp.from(record.finishedAt()), cal);
-            statement.setInt(3, record.score());
-            statement.setString(4, record.time());
-            statement.executeUpdate();
-            try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
-                generatedKeys.next();
-                return generatedKeys.getLong(1);
+        long id;
+        try (PooledConnection connection = connectionPool.acquire()) {
+            id = insert(connection, record);
+            updatePlayer(connection, record.username(), PlayerAggregate.of(record));
+        }
+
+        rankIndex.add(record.score(), toMillis(record.time()), 1);
+        return id;
+    }
+
+    /**
+     * Adds the given records to the database and merges them into the statistics of their players
+     *   in a single transaction, so the log is flushed to the disk once for all of them.
+     * <p>
+     * The transaction is retried if it is rolled back on a deadlock or a lock timeout.
+     *
+     * @param records the game result records.
+     * @return the generated IDs of the records in the database, in the order of the records.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    @Override
+    public long[] addRecords(List<PlayerStatsEntry> records) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                long[] ids = addInTransaction(records);
+                for (PlayerStatsEntry record : records) {
+                    rankIndex.add(record.score(), toMillis(record.time()), 1);
+                }
+                return ids;
+            } catch (SQLException ex) {
+                if (attempt == MAX_TRANSACTION_ATTEMPTS || !isTransactionConflict(ex)) {
+                    throw ex;
+                }
+                logger.log(Level.INFO, "Retrying the rolled back results transaction: " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Adds the given records to the database and merges them into the statistics of their players
+     *   in a single transaction.
+     *
+     * @param records the game result records.
+     * @return the generated IDs of the records in the database, in the order of the records.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    private long[] addInTransaction(List<PlayerStatsEntry> records) throws SQLException {
+        try (PooledConnection connection = connectionPool.acquire()) {
+            connection.connection().setAutoCommit(false);
+
+            try {
+                long[] ids = new long[records.size()];
+                // The players are updated in the order of their usernames, so the transactions do not deadlock.
+                Map<String, PlayerAggregate> players = new TreeMap<>();
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = insert(connection, records.get(i));
+                    players.merge(records.get(i).username(), PlayerAggregate.of(records.get(i)), PlayerAggregate::add);
+                }
+                for (Map.Entry<String, PlayerAggregate> player : players.entrySet()) {
+                    updatePlayer(connection, player.getKey(), player.getValue());
+                }
+                connection.connection().commit();
+                return ids;
+            } catch (SQLException ex) {
+                connection.connection().rollback();
+                throw ex;
+            } finally {
+                connection.connection().setAutoCommit(true);
             }
         }
     }
 
+    /**
+     * Checks if the exception reports a transaction rolled back on a deadlock or a lock timeout,
+     *   including the lock timeout of the generator of the record IDs.
+     *
+     * @param ex the exception thrown by a statement of the transaction.
+     * @return {@code true} if the transaction may succeed when retried, {@code false} otherwise.
+     */
+    private static boolean isTransactionConflict(SQLException ex) {
+        return "40001".equals(ex.getSQLState()) || "40XL1".equals(ex.getSQLState());
+    }
+
+    /**
+     * Inserts the record on the connection.
+     *
+     * @param connection the pooled database connection.
+     * @param record the game result record.
+     * @return the generated ID of the record in the database.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    private static long insert(PooledConnection connection, PlayerStatsEntry record) throws SQLException {
+        PreparedStatement statement = connection.prepare(INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+        statement.setString(1, record.username());
+        statement.setTimestamp(2, Timestamp.from(record.finishedAt()), connection.calendar());
+        statement.setInt(3, record.score());
+        statement.setString(4, record.time());
+        statement.setInt(5, toMillis(record.time()));
+        statement.executeUpdate();
+        try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+            generatedKeys.next();
+            return generatedKeys.getLong(1);
+        }
+    }
+
+    /**
+     * Merges the aggregate statistics of the added records into the statistics of the player on the connection.
+     *
+     * @param connection the pooled database connection.
+     * @param username the player's username.
+     * @param aggregate the aggregate statistics of the added records of the player.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    private static void updatePlayer(PooledConnection connection, String username, PlayerAggregate aggregate)
+            throws SQLException {
+        PreparedStatement update = connection.prepare(UPDATE_PLAYER_SQL, Statement.NO_GENERATED_KEYS);
+        Timestamp lastPlayed = new Timestamp(aggregate.lastPlayed());
+        update.setLong(1, aggregate.games());
+        update.setLong(2, aggregate.totalScore());
+        update.setInt(3, aggregate.bestScore());
+        update.setInt(4, aggregate.bestScore());
+        update.setInt(5, aggregate.bestDurationMillis());
+        update.setInt(6, aggregate.bestDurationMillis());
+        update.setTimestamp(7, lastPlayed, connection.calendar());
+        update.setTimestamp(8, lastPlayed, connection.calendar());
+        update.setString(9, username);
+        if (update.executeUpdate() > 0) {
+            return;
+        }
+
+        PreparedStatement insert = connection.prepare(INSERT_PLAYER_SQL, Statement.NO_GENERATED_KEYS);
+        insert.setLong(1, aggregate.games());
+        insert.setLong(2, aggregate.totalScore());
+        insert.setInt(3, aggregate.bestScore());
+        insert.setInt(4, aggregate.bestDurationMillis());
+        insert.setTimestamp(5, lastPlayed, connection.calendar());
+        insert.setString(6, username);
+        try {
+            insert.executeUpdate();
+        } catch (SQLException ex) {
+            if (!ex.getSQLState().equals("23505")) {
+                throw ex;
+            }
+            // A concurrent transaction has added the player first, only the failed statement is rolled back.
+            update.executeUpdate();
+        }
+    }
+
     /**
      * Gets the top 10 (or less) game results from the database
      *   based on the corresponding sort.
@@ -89,16 +517,12 @@ public class JdbcResultsRepository implements ResultsRepository {
      */
     @Override
     public List<PlayerStatsEntry> getTopRecords() throws SQLException {
-        try (Connection connection = DriverManager.getConnection(url);
-             Statement statement = connection.createStatement();
-             ResultSet records = statement.executeQuery("""
-                    SELECT USERNAME, FINISH_TIME, SCORE, DURATION FROM RESULTS
-                        ORDER BY SCORE DESC, DURATION, FINISH_TIME DESC FETCH NEXT 10 ROWS ONLY
-                    """)) {
+        try (PooledConnection connection = connectionPool.acquire();
+             ResultSet records = connection.prepare(TOP_RECORDS_SQL, Statement.NO_GENERATED_KEYS).executeQuery()) {
             List<PlayerStatsEntry> recordsList = new ArrayList<>();
             while (records.next()) {
                 String username = records.getString("USERNAME");
-                Instant finishTime = records.getTimestamp("FINISH_TIME", cal).toInstant();
+                Instant finishTime = records.getTimestamp("FINISH_TIME", connection.calendar()).toInstant();
                 int score = records.getInt("SCORE");
                 String duration = records.getString("DURATION");
                 recordsList.add(new PlayerStatsEntry(username, score, duration, finishTime));
@@ -108,19 +532,194 @@ public class JdbcResultsRepository implements ResultsRepository {
     }
 
     /**
-     * Closes the database connection.
+     * Gets a page of the game results in the leaderboard order, starting right after the given cursor.
+     * <p>
+     * The records after the cursor are read by the range scans of the leaderboard index:
+     *   the records with the same score, duration and finish time and a greater ID,
+     *   then with the same score and duration and an earlier finish time,
+     *   then with the same score and a longer duration, then with a lower score,
+     *   until the page is full.
+     *
+     * @param after the cursor of the page, or {@code null} for the first page.
+     * @param limit the max amount of results in the page.
+     * @return the page of the game results.
+     * @throws SQLException if an error in the database communication has occurred.
+     * @throws IllegalArgumentException if the limit is not positive.
+     */
+    @Override
+    public LeaderboardPage getPage(LeaderboardCursor after, int limit) throws SQLException {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Invalid page size " + limit);
+        }
+
+        List<PlayerStatsEntry> entries = new ArrayList<>(limit);
+        LeaderboardCursor last = null;
+        boolean hasNext = false;
+
+        // The first page is read by a single statement.
+        int firstKeys = after == null ? 0 : PAGE_KEYS.length;
+        int lastKeys = after == null ? 0 : 1;
+
+        try (PooledConnection connection = connectionPool.acquire()) {
+            // One more record than the limit is read to find out if the page is the last one.
+            for (int keys = firstKeys; keys >= lastKeys && !hasNext; keys--) {
+                PreparedStatement statement = connection.prepare(PAGE_SQL[keys], Statement.NO_GENERATED_KEYS);
+                int parameter = bindCursor(statement, connection, after, keys);
+                statement.setInt(parameter, limit + 1 - entries.size());
+
+                try (ResultSet records = statement.executeQuery()) {
+                    while (records.next()) {
+                        if (entries.size() == limit) {
+                            hasNext = true;
+                            break;
+                        }
+
+                        Instant finishTime = records.getTimestamp("FINISH_TIME", connection.calendar()).toInstant();
+                        int score = records.getInt("SCORE");
+                        entries.add(new PlayerStatsEntry(records.getString("USERNAME"), score,
+                                records.getString("DURATION"), finishTime));
+                        last = new LeaderboardCursor(score, records.getInt("DURATION_MS"), finishTime,
+                                records.getLong("ID"));
+                    }
+                }
+            }
+        }
+
+        return new LeaderboardPage(entries, hasNext ? last : null);
+    }
+
+    /**
+     * Sets the parameters of a page statement to the first values of the cursor.
+     *
+     * @param statement the page statement.
+     * @param connection the pooled database connection.
+     * @param cursor the cursor of the page, or {@code null} for the first page.
+     * @param keys the amount of the leaderboard order columns compared with the cursor.
+     * @return the index of the next parameter of the statement.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    private static int bindCursor(PreparedStatement statement, PooledConnection connection,
+                                  LeaderboardCursor cursor, int keys) throws SQLException {
+        if (keys > 0) {
+            statement.setInt(1, cursor.score());
+        }
+        if (keys > 1) {
+            statement.setInt(2, cursor.durationMillis());
+        }
+        if (keys > 2) {
+            statement.setTimestamp(3, Timestamp.from(cursor.finishedAt()), connection.calendar());
+        }
+        if (keys > 3) {
+            statement.setLong(4, cursor.id());
+        }
+        return keys + 1;
+    }
+
+    /**
+     * Gets the rank of a game result with the given score and duration from the rank index.
+     *
+     * @param score the score of the result.
+     * @param time the game duration of the result in the "HH:MM:SS" format.
+     * @return one plus the amount of results with a higher score, or the same score and a shorter duration.
+     */
+    @Override
+    public long getRank(int score, String time) {
+        return rankIndex.rank(score, toMillis(time));
+    }
+
+    /**
+     * Gets the best game result of the player with the given username.
+     *
+     * @param username the player's username.
+     * @return the best game result of the player, or {@code null} if the player has no results.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    @Override
+    public PlayerStatsEntry getBestRecord(String username) throws SQLException {
+        try (PooledConnection connection = connectionPool.acquire()) {
+            PreparedStatement statement = connection.prepare(BEST_RECORD_SQL, Statement.NO_GENERATED_KEYS);
+            statement.setString(1, username);
+
+            try (ResultSet records = statement.executeQuery()) {
+                if (!records.next()) {
+                    return null;
+                }
+
+                Instant finishTime = records.getTimestamp("FINISH_TIME", connection.calendar()).toInstant();
+                return new PlayerStatsEntry(records.getString("USERNAME"), records.getInt("SCORE"),
+                        records.getString("DURATION"), finishTime);
+            }
+        }
+    }
+
+    /**
+     * Gets the aggregate statistics of the player with the given username by its key.
+     *
+     * @param username the player's username.
+     * @return the player profile, or {@code null} if the player has no results.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    @Override
+    public PlayerProfile getProfile(String username) throws SQLException {
+        try (PooledConnection connection = connectionPool.acquire()) {
+            PreparedStatement statement = connection.prepare(PROFILE_SQL, Statement.NO_GENERATED_KEYS);
+            statement.setString(1, username);
+
+            try (ResultSet player = statement.executeQuery()) {
+                if (!player.next()) {
+                    return null;
+                }
+
+                return new PlayerAggregate(player.getLong("GAMES"), player.getLong("TOTAL_SCORE"),
+                        player.getInt("BEST_SCORE"), player.getInt("BEST_DURATION_MS"),
+                        player.getTimestamp("LAST_PLAYED", connection.calendar()).getTime()).toProfile(username);
+            }
+        }
+    }
+
+    /**
+     * Returns the maximal length of a username the repository stores, a username of that many UTF-8 bytes
+     *   never has more characters than the username columns hold.
+     *
+     * @return the maximal length of a username in UTF-8 bytes.
+     */
+    @Override
+    public int getMaxUsernameBytes() {
+        return MAX_USERNAME_LENGTH;
+    }
+
+    /**
+     * Closes the database connections and shuts the database down.
+     * <p>
+     * The database engine is left running for the other databases, it is shut down by {@link #shutdownEngine()}.
      */
     @Override
     public void close() {
+        connectionPool.close();
+
         try {
-            String shutdownUrl = "jdbc:derby:;shutdown=true";
             DriverManager.getConnection(shutdownUrl);
         } catch (SQLException ex) {
-            if (ex.getSQLState().equals("XJ015")) {
+            if (ex.getSQLState().equals("08006")) {
                 logger.log(Level.INFO, "Derby DB shutdown successful");
             } else {
                 logger.log(Level.WARNING, "Derby DB shutdown not successful", ex);
             }
         }
     }
+
+    /**
+     * Shuts the Derby database engine down, once all repositories have been closed.
+     */
+    public static void shutdownEngine() {
+        try {
+            DriverManager.getConnection("jdbc:derby:;shutdown=true");
+        } catch (SQLException ex) {
+            if (ex.getSQLState().equals("XJ015")) {
+                logger.log(Level.INFO, "Derby engine shutdown successful");
+            } else {
+                logger.log(Level.WARNING, "Derby engine shutdown not successful", ex);
+            }
+        }
+    }
 }
@@ -0,0 +1,223 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.data;
+
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardCursor;
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardPage;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerProfile;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStatsEntry;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The {@link ResultsRepository} decorator that keeps the top records in memory.
+ * <p>
+ * The top records are read from the wrapped repository once, and every record added through
+ *   the decorator is merged into them if it beats the last of them. The top records are kept
+ *   as an immutable list published through a volatile field, so a read takes no lock and does not
+ *   reach the database, and only the added records that change the top records take the lock.
+ *   Until the top records are read, the records are added under the lock as well, so every record
+ *   is either read along with the top records or merged into them, and never both.
+ *   The records must only be added through the decorator, otherwise the top records get stale.
+ *   The pages, the ranks, the best records and the player profiles are read from the wrapped repository.
+ */
+public class LeaderboardResultsRepository implements ResultsRepository {
+    // Logger used to log messages.
+    private static final Logger logger = Logger.getLogger(LeaderboardResultsRepository.class.getName());
+    // The amount of the top records.
+    public static final int TOP_SIZE = 10;
+    // The leaderboard order: by score descending, then by duration, then by finish time descending.
+    static final Comparator<PlayerStatsEntry> ORDER =
+            Comparator.comparing(PlayerStatsEntry::score, Comparator.reverseOrder())
+                    .thenComparingInt(entry -> JdbcResultsRepository.toMillis(entry.time()))
+                    .thenComparing(PlayerStatsEntry::finishedAt, Comparator.reverseOrder());
+    // The wrapped repository.
+    private final ResultsRepository repository;
+    // The immutable list of the top records, or null if they have not been read from the wrapped repository.
+    private volatile List<PlayerStatsEntry> topRecords;
+
+    /**
+     * Initializes a new {@link LeaderboardResultsRepository} instance, reading the top records
+     *   from the wrapped repository.
+     *
+     * @param repository the wrapped repository.
+     */
+    public LeaderboardResultsRepository(ResultsRepository repository) {
+        this.repository = repository;
+
+        try {
+            load();
+        } catch (SQLException ex) {
+            logger.log(Level.WARNING, "Could not read the top records, they will be read on the first request", ex);
+        }
+    }
+
+    /**
+     * Adds the given record to the wrapped repository and to the top records if it beats the last of them.
+     *
+     * @param record the game result record.
+     * @return the ID of the record returned by the wrapped repository.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    @Override
+    public long addRecord(PlayerStatsEntry record) throws SQLException {
+        return addRecords(List.of(record))[0];
+    }
+
+    /**
+     * Adds the given records to the wrapped repository at once and merges them into the top records.
+     *
+     * @param records the game result records.
+     * @return the IDs of the records returned by the wrapped repository, in the order of the records.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    @Override
+    public long[] addRecords(List<PlayerStatsEntry> records) throws SQLException {
+        if (topRecords == null) {
+            synchronized (this) {
+                if (topRecords == null) {
+                    // The top records are read under the same lock, so they are read along with these records.
+                    return repository.addRecords(records);
+                }
+            }
+        }
+
+        // The top records have been read before the records are added, so they do not hold the records yet.
+        long[] ids = repository.addRecords(records);
+        merge(records);
+        return ids;
+    }
+
+    /**
+     * Gets the top 10 (or less) game results from memory.
+     *
+     * @return the immutable list of the top 10 (or less) game results.
+     * @throws SQLException if the top records have not been read yet and could not be read
+     *   from the wrapped repository.
+     */
+    @Override
+    public List<PlayerStatsEntry> getTopRecords() throws SQLException {
+        List<PlayerStatsEntry> records = topRecords;
+        return records != null ? records : load();
+    }
+
+    /**
+     * Gets a page of the game results in the leaderboard order from the wrapped repository.
+     *
+     * @param after the cursor of the page, or {@code null} for the first page.
+     * @param limit the max amount of results in the page.
+     * @return the page of the game results.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    @Override
+    public LeaderboardPage getPage(LeaderboardCursor after, int limit) throws SQLException {
+        return repository.getPage(after, limit);
+    }
+
+    /**
+     * Gets the rank of a game result with the given score and duration from the wrapped repository.
+     *
+     * @param score the score of the result.
+     * @param time the game duration of the result in the "HH:MM:SS" format.
+     * @return the rank of the result.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    @Override
+    public long getRank(int score, String time) throws SQLException {
+        return repository.getRank(score, time);
+    }
+
+    /**
+     * Gets the best game result of the player with the given username from the wrapped repository.
+     *
+     * @param username the player's username.
+     * @return the best game result of the player, or {@code null} if the player has no results.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    @Override
+    public PlayerStatsEntry getBestRecord(String username) throws SQLException {
+        return repository.getBestRecord(username);
+    }
+
+    /**
+     * Gets the aggregate statistics of the player with the given username from the wrapped repository.
+     *
+     * @param username the player's username.
+     * @return the player profile, or {@code null} if the player has no results.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    @Override
+    public PlayerProfile getProfile(String username) throws SQLException {
+        return repository.getProfile(username);
+    }
+
+    /**
+     * Returns the maximal length of a username the wrapped repository stores.
+     *
+     * @return the maximal length of a username in UTF-8 bytes.
+     */
+    @Override
+    public int getMaxUsernameBytes() {
+        return repository.getMaxUsernameBytes();
+    }
+
+    /**
+     * Closes the wrapped repository.
+     */
+    @Override
+    public void close() {
+        repository.close();
+    }
+
+    /**
+     * Reads the top records from the wrapped repository if they have not been read yet.
+     *
+     * @return the top records.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    private synchronized List<PlayerStatsEntry> load() throws SQLException {
+        if (topRecords == null) {
+            List<PlayerStatsEntry> records = new ArrayList<>(repository.getTopRecords());
+            records.sort(ORDER);
+            topRecords = List.copyOf(records.subList(0, Math.min(TOP_SIZE, records.size())));
+        }
+        return topRecords;
+    }
+
+    /**
+     * Publishes new top records if any of the given records beat the last of the current ones.
+     * <p>
+     * Called once the top records have been read.
+     *
+     * @param records the added records.
+     */
+    private void merge(List<PlayerStatsEntry> records) {
+        List<PlayerStatsEntry> snapshot = topRecords;
+        if (snapshot != null && records.stream().noneMatch(record -> beats(snapshot, record))) {
+            return;
+        }
+
+        synchronized (this) {
+            List<PlayerStatsEntry> current = topRecords;
+            List<PlayerStatsEntry> merged = new ArrayList<>(current.size() + records.size());
+            merged.addAll(current);
+            merged.addAll(records);
+            merged.sort(ORDER);
+            topRecords = List.copyOf(merged.subList(0, Math.min(TOP_SIZE, merged.size())));
+        }
+    }
+
+    /**
+     * Checks if the record gets into the top records.
+     *
+     * @param current the current top records.
+     * @param record the added record.
+     * @return {@code true} if the top records change, {@code false} otherwise.
+     */
+    private static boolean beats(List<PlayerStatsEntry> current, PlayerStatsEntry record) {
+        return current.size() < TOP_SIZE || ORDER.compare(record, current.get(current.size() - 1)) < 0;
+    }
+}
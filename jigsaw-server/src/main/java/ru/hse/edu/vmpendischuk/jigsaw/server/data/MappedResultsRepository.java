@@ -0,0 +1,693 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.data;
+
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardCursor;
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardPage;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerProfile;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStatsEntry;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The {@link ResultsRepository} implementation that appends the records to a memory-mapped log file.
+ * <p>
+ * The log file starts with a header followed by the fixed-width records in the order they were added,
+ *   the ID of a record is its position in the log plus one. Every record ends with the checksum
+ *   of its contents, and the added records are flushed to the disk before the call returns, so on startup
+ *   the log is read up to the first record that has not been completely written, and the rest is cleared.
+ * <p>
+ * The records are kept in memory in the leaderboard order, along with their ranks, the best record
+ *   and the aggregate statistics of every player. The ordered records and the player statistics
+ *   are periodically checkpointed to a sidecar index file together with the amount of records they cover,
+ *   so on startup the sorted index is read and only the records added after it are read from the log.
+ *   The log itself is never rewritten. Only the player statistics are copied under the lock
+ *   the records are added under, the index file is written and flushed to the disk without it.
+ */
+public class MappedResultsRepository implements ResultsRepository {
+    // Logger used to log messages.
+    private static final Logger logger = Logger.getLogger(MappedResultsRepository.class.getName());
+    // The prefix of the repository URLs, followed by the path of the log file.
+    public static final String URL_PREFIX = "mapped:";
+    // The maximal length of a username in UTF-8 bytes.
+    public static final int MAX_USERNAME_BYTES = 106;
+    // The value that marks the log files.
+    private static final int LOG_MAGIC = 0x4A47524C;
+    // The value that marks the index files.
+    private static final int INDEX_MAGIC = 0x4A475249;
+    // The version of the log file format.
+    private static final int LOG_VERSION = 1;
+    // The version of the index file format.
+    private static final int INDEX_VERSION = 2;
+    // The size of the log file header in bytes.
+    private static final int HEADER_SIZE = 64;
+    // The size of a record in bytes.
+    private static final int RECORD_SIZE = 128;
+    // The offset of the record checksum.
+    private static final int CHECKSUM_OFFSET = RECORD_SIZE - Integer.BYTES;
+    // The offset of the record username.
+    private static final int USERNAME_OFFSET = 18;
+    // The size of an index entry in bytes.
+    private static final int INDEX_ENTRY_SIZE = 2 * Integer.BYTES + 2 * Long.BYTES;
+    // The amount of records the log file is extended by at once.
+    private static final int CAPACITY_STEP = 16_384;
+    // The maximal amount of records, the log file is mapped with a single buffer.
+    private static final long MAX_RECORD_COUNT = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+    // The time between the checkpoints of the sorted index.
+    private static final long CHECKPOINT_INTERVAL_MINUTES = 5;
+    // The leaderboard order: by score descending, then by duration, then by finish time descending, then by ID.
+    private static final Comparator<Key> ORDER = Comparator.comparingInt(Key::score).reversed()
+            .thenComparingInt(Key::durationMillis)
+            .thenComparing(Comparator.comparingLong(Key::finishedAt).reversed())
+            .thenComparingLong(Key::id);
+    // The path of the log file.
+    private final Path logPath;
+    // The path of the sorted index file.
+    private final Path indexPath;
+    // The channel of the log file.
+    private final FileChannel channel;
+    // The log file mapping, replaced by a larger one when the log grows.
+    private volatile MappedByteBuffer log;
+    // The amount of records in the log.
+    private volatile long recordCount = 0;
+    // The amount of records covered by the sorted index file.
+    private volatile long checkpointCount = 0;
+    // The records in the leaderboard order.
+    private final ConcurrentSkipListSet<Key> records = new ConcurrentSkipListSet<>(ORDER);
+    // The best record of every player.
+    private final Map<String, Key> bestRecords = new ConcurrentHashMap<>();
+    // The aggregate statistics of every player.
+    private final Map<String, PlayerAggregate> players = new ConcurrentHashMap<>();
+    // The order-statistic index of the records.
+    private final RankIndex rankIndex = new RankIndex();
+    // Lock that lets a single checkpoint write the sorted index file at a time.
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+    // The thread that periodically checkpoints the sorted index.
+    private final ScheduledExecutorService checkpointer;
+    // Flag that denotes if the repository has been closed.
+    private volatile boolean closed = false;
+
+    /**
+     * The leaderboard order key of a record.
+     *
+     * @param score the score of the record.
+     * @param durationMillis the game duration of the record in milliseconds.
+     * @param finishedAt the finish time of the record in epoch milliseconds.
+     * @param id the ID of the record.
+     */
+    private record Key(int score, int durationMillis, long finishedAt, long id) {
+        /**
+         * Returns the position of the record in the log.
+         *
+         * @return the record index.
+         */
+        int slot() {
+            return (int) (id - 1);
+        }
+    }
+
+    /**
+     * Initializes a new {@link MappedResultsRepository} instance, creating the log file if it does not exist
+     *   and recovering the records from it otherwise.
+     *
+     * @param path the path of the log file, the sorted index is stored next to it.
+     * @throws UncheckedIOException if the log file could not be opened or is not a results log file.
+     */
+    public MappedResultsRepository(Path path) {
+        logPath = path;
+        indexPath = path.resolveSibling(path.getFileName() + ".idx");
+
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long fileSize = channel.size();
+            log = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    Math.max(fileSize, HEADER_SIZE + (long) CAPACITY_STEP * RECORD_SIZE));
+
+            if (fileSize == 0) {
+                log.putInt(0, LOG_MAGIC);
+                log.putInt(Integer.BYTES, LOG_VERSION);
+                log.putInt(2 * Integer.BYTES, RECORD_SIZE);
+                log.force(0, HEADER_SIZE);
+            } else if (log.getInt(0) != LOG_MAGIC || log.getInt(Integer.BYTES) != LOG_VERSION
+                    || log.getInt(2 * Integer.BYTES) != RECORD_SIZE) {
+                channel.close();
+                throw new IOException("Not a results log file: " + path);
+            }
+
+            recover();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jigsaw-results-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkpointer.scheduleWithFixedDelay(this::checkpointQuietly,
+                CHECKPOINT_INTERVAL_MINUTES, CHECKPOINT_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Appends the given record to the log file.
+     *
+     * @param record the game result record.
+     * @return the ID of the record.
+     * @throws SQLException if the record is invalid or could not be written.
+     */
+    @Override
+    public long addRecord(PlayerStatsEntry record) throws SQLException {
+        return addRecords(List.of(record))[0];
+    }
+
+    /**
+     * Appends the given records to the log file and flushes them to the disk at once.
+     *
+     * @param records the game result records.
+     * @return the IDs of the records, in the order of the records.
+     * @throws SQLException if any of the records is invalid or the records could not be written.
+     */
+    @Override
+    public synchronized long[] addRecords(List<PlayerStatsEntry> records) throws SQLException {
+        if (closed) {
+            throw new SQLException("The results repository is closed");
+        }
+
+        // Encoding all records first, so an invalid record does not leave the others half-written.
+        List<byte[]> encoded = new ArrayList<>(records.size());
+        for (PlayerStatsEntry record : records) {
+            encoded.add(encode(record));
+        }
+
+        long first = recordCount;
+        if (first + records.size() > MAX_RECORD_COUNT) {
+            throw new SQLException("The results log file is full");
+        }
+
+        try {
+            MappedByteBuffer buffer = ensureCapacity(first + records.size());
+            for (int i = 0; i < encoded.size(); i++) {
+                buffer.put(offset(first + i), encoded.get(i));
+            }
+            buffer.force(offset(first), encoded.size() * RECORD_SIZE);
+        } catch (IOException ex) {
+            throw new SQLException("Could not write the results log file", ex);
+        }
+
+        long[] ids = new long[records.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = first + i + 1;
+            PlayerStatsEntry record = records.get(i);
+            publish(record.username(), new Key(record.score(), JdbcResultsRepository.toMillis(record.time()),
+                    record.finishedAt().toEpochMilli(), ids[i]));
+        }
+        recordCount = first + records.size();
+
+        return ids;
+    }
+
+    /**
+     * Gets the top 10 (or less) game results based on the corresponding sort.
+     *
+     * @return the top 10 (or less) game results.
+     */
+    @Override
+    public List<PlayerStatsEntry> getTopRecords() {
+        return getPage(null, 10).entries();
+    }
+
+    /**
+     * Gets a page of the game results in the leaderboard order, starting right after the given cursor.
+     *
+     * @param after the cursor of the page, or {@code null} for the first page.
+     * @param limit the max amount of results in the page.
+     * @return the page of the game results.
+     * @throws IllegalArgumentException if the limit is not positive.
+     */
+    @Override
+    public LeaderboardPage getPage(LeaderboardCursor after, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Invalid page size " + limit);
+        }
+
+        MappedByteBuffer buffer = log;
+        Iterator<Key> keys = after == null
+                ? records.iterator()
+                : records.tailSet(new Key(after.score(), after.durationMillis(),
+                        after.finishedAt().toEpochMilli(), after.id()), false).iterator();
+        List<PlayerStatsEntry> entries = new ArrayList<>(limit);
+        Key last = null;
+
+        while (entries.size() < limit && keys.hasNext()) {
+            last = keys.next();
+
+            if (offset(last.slot()) + RECORD_SIZE > buffer.capacity()) {
+                // The record has been added after the log was remapped, the new mapping is published before it.
+                buffer = log;
+            }
+
+            entries.add(read(buffer, last));
+        }
+
+        LeaderboardCursor next = last != null && keys.hasNext()
+                ? new LeaderboardCursor(last.score(), last.durationMillis(), Instant.ofEpochMilli(last.finishedAt()),
+                        last.id())
+                : null;
+        return new LeaderboardPage(entries, next);
+    }
+
+    /**
+     * Gets the rank of a game result with the given score and duration from the rank index.
+     *
+     * @param score the score of the result.
+     * @param time the game duration of the result in the "HH:MM:SS" format.
+     * @return one plus the amount of results with a higher score, or the same score and a shorter duration.
+     */
+    @Override
+    public long getRank(int score, String time) {
+        return rankIndex.rank(score, JdbcResultsRepository.toMillis(time));
+    }
+
+    /**
+     * Gets the best game result of the player with the given username.
+     *
+     * @param username the player's username.
+     * @return the best game result of the player, or {@code null} if the player has no results.
+     */
+    @Override
+    public PlayerStatsEntry getBestRecord(String username) {
+        Key best = bestRecords.get(username);
+        return best == null ? null : read(log, best);
+    }
+
+    /**
+     * Gets the aggregate statistics of the player with the given username from memory.
+     *
+     * @param username the player's username.
+     * @return the player profile, or {@code null} if the player has no results.
+     */
+    @Override
+    public PlayerProfile getProfile(String username) {
+        PlayerAggregate aggregate = players.get(username);
+        return aggregate == null ? null : aggregate.toProfile(username);
+    }
+
+    /**
+     * Returns the amount of records in the log.
+     *
+     * @return the amount of records.
+     */
+    long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Writes the records in the leaderboard order and the player statistics to the sorted index file,
+     *   replacing the previous one.
+     * <p>
+     * The records keep being added while the index file is written: the IDs are given in the log order,
+     *   so the records covered by the checkpoint are the ones with an ID up to the record count,
+     *   and only the player statistics are copied under the lock the records are added under.
+     *
+     * @throws IOException if the index file could not be written.
+     */
+    void checkpoint() throws IOException {
+        checkpointLock.lock();
+        try {
+            long covered;
+            Map<String, Key> coveredBestRecords;
+            Map<String, PlayerAggregate> coveredPlayers;
+
+            synchronized (this) {
+                covered = recordCount;
+                if (covered == checkpointCount) {
+                    return;
+                }
+
+                coveredBestRecords = new HashMap<>(bestRecords);
+                coveredPlayers = new HashMap<>(players);
+            }
+
+            writeIndex(covered, coveredBestRecords, coveredPlayers);
+            checkpointCount = covered;
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the sorted index file through a temporary file, which replaces the previous index
+     *   once it is flushed to the disk.
+     *
+     * @param covered the amount of records covered by the index.
+     * @param coveredBestRecords the best record of every player among the covered records.
+     * @param coveredPlayers the aggregate statistics of every player over the covered records.
+     * @throws IOException if the index file could not be written.
+     */
+    private void writeIndex(long covered,
+                            Map<String, Key> coveredBestRecords,
+                            Map<String, PlayerAggregate> coveredPlayers) throws IOException {
+        Path temporaryPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        try (FileChannel indexChannel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 checksum = new CRC32();
+            DataOutputStream output = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(indexChannel)), checksum));
+
+            output.writeInt(INDEX_MAGIC);
+            output.writeInt(INDEX_VERSION);
+            output.writeLong(covered);
+            for (Key key : records) {
+                // Every record up to the count has been published before the count was updated.
+                if (key.id() <= covered) {
+                    writeKey(output, key);
+                }
+            }
+            output.writeInt(coveredBestRecords.size());
+            for (Map.Entry<String, Key> player : coveredBestRecords.entrySet()) {
+                PlayerAggregate aggregate = coveredPlayers.get(player.getKey());
+                writeKey(output, player.getValue());
+                output.writeLong(aggregate.games());
+                output.writeLong(aggregate.totalScore());
+                output.writeInt(aggregate.bestDurationMillis());
+                output.writeLong(aggregate.lastPlayed());
+            }
+            output.writeInt((int) checksum.getValue());
+            output.flush();
+
+            indexChannel.force(true);
+        }
+
+        Files.move(temporaryPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Returns the maximal length of a username the records have room for.
+     *
+     * @return the maximal length of a username in UTF-8 bytes.
+     */
+    @Override
+    public int getMaxUsernameBytes() {
+        return MAX_USERNAME_BYTES;
+    }
+
+    /**
+     * Checkpoints the sorted index and closes the log file.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+
+        checkpointer.shutdown();
+        checkpointQuietly();
+
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Could not close the results log file", ex);
+        }
+    }
+
+    /**
+     * Reads the sorted index and the records added after it, clearing the records that have not been
+     *   completely written.
+     *
+     * @throws IOException if the log file could not be read.
+     */
+    private void recover() throws IOException {
+        long slot = readIndex();
+        MappedByteBuffer buffer = log;
+        long capacity = (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE;
+
+        while (slot < capacity && isValid(buffer, slot)) {
+            int offset = offset(slot);
+            int length = buffer.getShort(offset + USERNAME_OFFSET - Short.BYTES);
+            byte[] username = new byte[length];
+            buffer.get(offset + USERNAME_OFFSET, username);
+
+            publish(new String(username, StandardCharsets.UTF_8), new Key(buffer.getInt(offset + Long.BYTES),
+                    buffer.getInt(offset + Long.BYTES + Integer.BYTES), buffer.getLong(offset), slot + 1));
+            slot++;
+        }
+        recordCount = slot;
+
+        // The records written after the first incomplete one were not acknowledged either.
+        long cleared = slot;
+        byte[] empty = new byte[RECORD_SIZE];
+        while (cleared < capacity && !isEmpty(buffer, cleared)) {
+            buffer.put(offset(cleared), empty);
+            cleared++;
+        }
+        if (cleared > slot) {
+            logger.log(Level.WARNING, "Cleared " + (cleared - slot) + " incomplete records of " + logPath);
+            buffer.force(offset(slot), (int) (cleared - slot) * RECORD_SIZE);
+        }
+
+        logger.log(Level.INFO, "Recovered " + slot + " records, " + checkpointCount + " of them from the index");
+    }
+
+    /**
+     * Reads the sorted index file if it is valid.
+     *
+     * @return the amount of records covered by the index.
+     * @throws IOException if the index file could not be read.
+     */
+    private long readIndex() throws IOException {
+        if (!Files.exists(indexPath)) {
+            return 0;
+        }
+
+        ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+        CRC32 checksum = new CRC32();
+        checksum.update(index.array(), 0, Math.max(0, index.limit() - Integer.BYTES));
+
+        long covered = index.limit() >= 2 * Integer.BYTES + Long.BYTES ? index.getLong(2 * Integer.BYTES) : -1;
+        long capacity = (log.capacity() - HEADER_SIZE) / RECORD_SIZE;
+        boolean valid = covered >= 0 && covered <= capacity
+                && index.limit() >= 2 * Integer.BYTES + Long.BYTES + covered * INDEX_ENTRY_SIZE + 2 * Integer.BYTES
+                && index.getInt(0) == INDEX_MAGIC && index.getInt(Integer.BYTES) == INDEX_VERSION
+                && index.getInt(index.limit() - Integer.BYTES) == (int) checksum.getValue()
+                && (covered == 0 || isValid(log, covered - 1));
+
+        if (!valid) {
+            logger.log(Level.WARNING, "Ignoring the invalid results index " + indexPath);
+            return 0;
+        }
+
+        index.position(2 * Integer.BYTES + Long.BYTES);
+        for (long i = 0; i < covered; i++) {
+            Key key = readKey(index);
+            records.add(key);
+            rankIndex.add(key.score(), key.durationMillis(), 1);
+        }
+
+        int playerCount = index.getInt();
+        for (int i = 0; i < playerCount; i++) {
+            Key key = readKey(index);
+            String username = read(log, key).username();
+            bestRecords.put(username, key);
+            players.put(username, new PlayerAggregate(index.getLong(), index.getLong(), key.score(), index.getInt(),
+                    index.getLong()));
+        }
+
+        checkpointCount = covered;
+        return covered;
+    }
+
+    /**
+     * Adds the record to the ordered records, the rank index, the best records and the player statistics.
+     *
+     * @param username the username of the record.
+     * @param key the leaderboard order key of the record.
+     */
+    private void publish(String username, Key key) {
+        records.add(key);
+        rankIndex.add(key.score(), key.durationMillis(), 1);
+        bestRecords.merge(username, key, (current, added) -> ORDER.compare(added, current) < 0 ? added : current);
+        players.merge(username, new PlayerAggregate(1, key.score(), key.score(), key.durationMillis(), key.finishedAt()),
+                PlayerAggregate::add);
+    }
+
+    /**
+     * Checkpoints the sorted index, logging the failure.
+     */
+    private void checkpointQuietly() {
+        try {
+            checkpoint();
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Could not checkpoint the results index", ex);
+        }
+    }
+
+    /**
+     * Returns the log file mapping that fits the given amount of records, extending the log file if needed.
+     *
+     * @param count the amount of records.
+     * @return the log file mapping.
+     * @throws IOException if the log file could not be extended.
+     */
+    private MappedByteBuffer ensureCapacity(long count) throws IOException {
+        MappedByteBuffer buffer = log;
+        if (offset(count) <= buffer.capacity()) {
+            return buffer;
+        }
+
+        long size = HEADER_SIZE + Math.min(MAX_RECORD_COUNT, count + CAPACITY_STEP) * RECORD_SIZE;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        log = buffer;
+        return buffer;
+    }
+
+    /**
+     * Encodes the record.
+     *
+     * @param record the game result record.
+     * @return the record bytes, ending with their checksum.
+     * @throws SQLDataException if the username is too long or the duration is not in the "HH:MM:SS" format.
+     */
+    private static byte[] encode(PlayerStatsEntry record) throws SQLDataException {
+        byte[] username = record.username().getBytes(StandardCharsets.UTF_8);
+        if (username.length > MAX_USERNAME_BYTES) {
+            throw new SQLDataException("Username " + record.username() + " is too long");
+        }
+
+        int durationMillis = JdbcResultsRepository.toMillis(record.time());
+        if (durationMillis == Integer.MAX_VALUE) {
+            throw new SQLDataException("Invalid game duration " + record.time());
+        }
+
+        ByteBuffer bytes = ByteBuffer.allocate(RECORD_SIZE);
+        bytes.putLong(record.finishedAt().toEpochMilli());
+        bytes.putInt(record.score());
+        bytes.putInt(durationMillis);
+        bytes.putShort((short) username.length);
+        bytes.put(username);
+
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes.array(), 0, CHECKSUM_OFFSET);
+        bytes.putInt(CHECKSUM_OFFSET, (int) checksum.getValue());
+
+        return bytes.array();
+    }
+
+    /**
+     * Reads the record from the log.
+     *
+     * @param buffer the log file mapping.
+     * @param key the leaderboard order key of the record.
+     * @return the game result record.
+     */
+    private static PlayerStatsEntry read(MappedByteBuffer buffer, Key key) {
+        int offset = offset(key.slot());
+        byte[] username = new byte[buffer.getShort(offset + USERNAME_OFFSET - Short.BYTES)];
+        buffer.get(offset + USERNAME_OFFSET, username);
+
+        return new PlayerStatsEntry(new String(username, StandardCharsets.UTF_8), key.score(),
+                JdbcResultsRepository.formatTime(key.durationMillis()), Instant.ofEpochMilli(key.finishedAt()));
+    }
+
+    /**
+     * Checks if the record in the log has been completely written.
+     *
+     * @param buffer the log file mapping.
+     * @param slot the position of the record in the log.
+     * @return {@code true} if the record checksum matches its contents, {@code false} otherwise.
+     */
+    private static boolean isValid(MappedByteBuffer buffer, long slot) {
+        int offset = offset(slot);
+        int length = buffer.getShort(offset + USERNAME_OFFSET - Short.BYTES);
+        if (length < 0 || length > MAX_USERNAME_BYTES) {
+            return false;
+        }
+
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.slice(offset, CHECKSUM_OFFSET));
+        return buffer.getInt(offset + CHECKSUM_OFFSET) == (int) checksum.getValue();
+    }
+
+    /**
+     * Checks if the record space in the log has never been written.
+     *
+     * @param buffer the log file mapping.
+     * @param slot the position of the record in the log.
+     * @return {@code true} if all bytes of the record are zero, {@code false} otherwise.
+     */
+    private static boolean isEmpty(MappedByteBuffer buffer, long slot) {
+        int offset = offset(slot);
+        for (int i = 0; i < RECORD_SIZE; i += Long.BYTES) {
+            if (buffer.getLong(offset + i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the offset of the record in the log file.
+     *
+     * @param slot the position of the record in the log.
+     * @return the offset in bytes.
+     */
+    private static int offset(long slot) {
+        return (int) (HEADER_SIZE + slot * RECORD_SIZE);
+    }
+
+    /**
+     * Writes the leaderboard order key to the index file.
+     *
+     * @param output the index file output.
+     * @param key the leaderboard order key.
+     * @throws IOException if the key could not be written.
+     */
+    private static void writeKey(DataOutputStream output, Key key) throws IOException {
+        output.writeInt(key.score());
+        output.writeInt(key.durationMillis());
+        output.writeLong(key.finishedAt());
+        output.writeLong(key.id());
+    }
+
+    /**
+     * Reads the leaderboard order key from the index file.
+     *
+     * @param index the index file contents.
+     * @return the leaderboard order key.
+     */
+    private static Key readKey(ByteBuffer index) {
+        return new Key(index.getInt(), index.getInt(), index.getLong(), index.getLong());
+    }
+}
@@ -0,0 +1,37 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.data;
+
+import java.io.Serial;
+import java.sql.SQLException;
+
+/**
+ * Exception thrown when only some of the records added at once have been added.
+ */
+class PartialWriteException extends SQLException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+    // The ID of a record that has not been added.
+    static final long NOT_ADDED = 0;
+    // The IDs of the records in the order of the records, NOT_ADDED for the records that have not been added.
+    private final long[] ids;
+
+    /**
+     * Initializes a new {@link PartialWriteException} instance.
+     *
+     * @param ids the IDs of the records in the order of the records,
+     *   {@link #NOT_ADDED} for the records that have not been added.
+     * @param cause the exception that has stopped the other records from being added.
+     */
+    PartialWriteException(long[] ids, SQLException cause) {
+        super("Only some of the records have been added: " + cause.getMessage(), cause.getSQLState(), cause);
+        this.ids = ids;
+    }
+
+    /**
+     * Returns the IDs of the records in the order of the records.
+     *
+     * @return the IDs of the records, {@link #NOT_ADDED} for the records that have not been added.
+     */
+    long[] getIds() {
+        return ids;
+    }
+}
@@ -0,0 +1,174 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.data;
+
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardCursor;
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardPage;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerProfile;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStatsEntry;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@link ResultsRepository} decorator that runs the calls of the wrapped repository
+ *   on a small pool of platform threads.
+ * <p>
+ * The embedded Derby driver performs its disk I/O inside {@code synchronized} blocks,
+ *   which pins a virtual thread to its carrier thread for the whole call. Waiting for
+ *   a platform thread to do the call instead lets the virtual thread unmount,
+ *   so the database access can not starve the carrier threads serving the other clients.
+ */
+public class PlatformThreadResultsRepository implements ResultsRepository {
+    // The wrapped repository.
+    private final ResultsRepository repository;
+    // The platform threads used to call the wrapped repository.
+    private final ExecutorService executor;
+
+    /**
+     * Initializes a new {@link PlatformThreadResultsRepository} instance.
+     *
+     * @param repository the wrapped repository.
+     * @param threadCount the amount of platform threads used to call the wrapped repository.
+     */
+    public PlatformThreadResultsRepository(ResultsRepository repository, int threadCount) {
+        this.repository = repository;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "jigsaw-jdbc-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Adds the given record to the database.
+     *
+     * @param record the game result record.
+     * @return the generated ID of the record in the database.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    @Override
+    public long addRecord(PlayerStatsEntry record) throws SQLException {
+        return call(() -> repository.addRecord(record));
+    }
+
+    /**
+     * Adds the given records to the database at once.
+     *
+     * @param records the game result records.
+     * @return the generated IDs of the records in the database, in the order of the records.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    @Override
+    public long[] addRecords(List<PlayerStatsEntry> records) throws SQLException {
+        return call(() -> repository.addRecords(records));
+    }
+
+    /**
+     * Gets the top 10 (or less) game results from the database
+     *   based on the corresponding sort.
+     *
+     * @return the top 10 (or less) game results.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    @Override
+    public List<PlayerStatsEntry> getTopRecords() throws SQLException {
+        return call(repository::getTopRecords);
+    }
+
+    /**
+     * Gets a page of the game results in the leaderboard order, starting right after the given cursor.
+     *
+     * @param after the cursor of the page, or {@code null} for the first page.
+     * @param limit the max amount of results in the page.
+     * @return the page of the game results.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    @Override
+    public LeaderboardPage getPage(LeaderboardCursor after, int limit) throws SQLException {
+        return call(() -> repository.getPage(after, limit));
+    }
+
+    /**
+     * Gets the rank of a game result with the given score and duration in the leaderboard.
+     *
+     * @param score the score of the result.
+     * @param time the game duration of the result in the "HH:MM:SS" format.
+     * @return the rank of the result.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    @Override
+    public long getRank(int score, String time) throws SQLException {
+        return call(() -> repository.getRank(score, time));
+    }
+
+    /**
+     * Gets the best game result of the player with the given username.
+     *
+     * @param username the player's username.
+     * @return the best game result of the player, or {@code null} if the player has no results.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    @Override
+    public PlayerStatsEntry getBestRecord(String username) throws SQLException {
+        return call(() -> repository.getBestRecord(username));
+    }
+
+    /**
+     * Gets the aggregate statistics of the player with the given username.
+     *
+     * @param username the player's username.
+     * @return the player profile, or {@code null} if the player has no results.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    @Override
+    public PlayerProfile getProfile(String username) throws SQLException {
+        return call(() -> repository.getProfile(username));
+    }
+
+    /**
+     * Returns the maximal length of a username the wrapped repository stores.
+     *
+     * @return the maximal length of a username in UTF-8 bytes.
+     */
+    @Override
+    public int getMaxUsernameBytes() {
+        return repository.getMaxUsernameBytes();
+    }
+
+    /**
+     * Closes the database connection and stops the platform threads.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        repository.close();
+    }
+
+    /**
+     * Calls the wrapped repository on a platform thread and waits for the result.
+     *
+     * @param call the call of the wrapped repository.
+     * @param <T> type of the call result.
+     * @return the call result.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    private <T> T call(Callable<T> call) throws SQLException {
+        try {
+            return executor.submit(call).get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException("Repository call failed", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the repository", ex);
+        }
+    }
+}
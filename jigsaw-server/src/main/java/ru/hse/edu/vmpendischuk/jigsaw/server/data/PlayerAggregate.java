@@ -0,0 +1,51 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.data;
+
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerProfile;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStatsEntry;
+
+import java.time.Instant;
+
+/**
+ * The aggregate statistics of the game results of a player, merged one result at a time.
+ *
+ * @param games the amount of results.
+ * @param totalScore the sum of the scores.
+ * @param bestScore the highest score.
+ * @param bestDurationMillis the shortest game duration in milliseconds.
+ * @param lastPlayed the latest finish time in epoch milliseconds.
+ */
+record PlayerAggregate(long games, long totalScore, int bestScore, int bestDurationMillis, long lastPlayed) {
+    /**
+     * Returns the aggregate statistics of a single game result.
+     *
+     * @param record the game result record.
+     * @return the aggregate statistics.
+     */
+    static PlayerAggregate of(PlayerStatsEntry record) {
+        return new PlayerAggregate(1, record.score(), record.score(), JdbcResultsRepository.toMillis(record.time()),
+                record.finishedAt().toEpochMilli());
+    }
+
+    /**
+     * Merges the aggregate statistics of other results of the same player.
+     *
+     * @param other the aggregate statistics of the other results.
+     * @return the aggregate statistics of all results.
+     */
+    PlayerAggregate add(PlayerAggregate other) {
+        return new PlayerAggregate(games + other.games, totalScore + other.totalScore,
+                Math.max(bestScore, other.bestScore), Math.min(bestDurationMillis, other.bestDurationMillis),
+                Math.max(lastPlayed, other.lastPlayed));
+    }
+
+    /**
+     * Returns the profile of the player with these statistics.
+     *
+     * @param username the player's username.
+     * @return the player profile.
+     */
+    PlayerProfile toProfile(String username) {
+        return new PlayerProfile(username, games, bestScore, JdbcResultsRepository.formatTime(bestDurationMillis),
+                totalScore, Instant.ofEpochMilli(lastPlayed));
+    }
+}
@@ -0,0 +1,76 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.data;
+
+import ru.hse.edu.vmpendischuk.jigsaw.util.GameField;
+
+/**
+ * The order-statistic index of the game results that finds the rank of a result in logarithmic time.
+ * <p>
+ * The results are counted by their score and duration in whole seconds in a Fenwick tree
+ *   (binary indexed tree), which buckets are sorted from the best score and duration to the worst one.
+ *   The rank of a result is one plus the amount of results in the buckets before its own bucket,
+ *   so the results with the same score and duration share the rank. The scores are clamped to the
+ *   amount of the game field cells, the durations longer than {@link #MAX_DURATION_SECONDS} share the last bucket.
+ */
+final class RankIndex {
+    // The maximal score, a shape covers at least one cell of the game field.
+    static final int MAX_SCORE = GameField.CELL_COUNT;
+    // The longest duration in seconds that has its own bucket.
+    static final int MAX_DURATION_SECONDS = 3600;
+    // The amount of buckets of a score: every duration up to the longest one and the longer durations.
+    private static final int DURATION_BUCKETS = MAX_DURATION_SECONDS + 2;
+    // The Fenwick tree of the amounts of results, indexed from 1.
+    private final long[] tree = new long[(MAX_SCORE + 1) * DURATION_BUCKETS + 1];
+    // The amount of results.
+    private long size = 0;
+
+    /**
+     * Counts the given amount of results with the given score and duration.
+     *
+     * @param score the score of the results.
+     * @param durationMillis the game duration of the results in milliseconds.
+     * @param count the amount of results.
+     */
+    synchronized void add(int score, int durationMillis, long count) {
+        for (int i = bucket(score, durationMillis); i < tree.length; i += i & -i) {
+            tree[i] += count;
+        }
+        size += count;
+    }
+
+    /**
+     * Returns the rank of a result with the given score and duration.
+     *
+     * @param score the score of the result.
+     * @param durationMillis the game duration of the result in milliseconds.
+     * @return one plus the amount of results with a higher score, or the same score and a shorter duration.
+     */
+    synchronized long rank(int score, int durationMillis) {
+        long better = 0;
+        for (int i = bucket(score, durationMillis) - 1; i > 0; i -= i & -i) {
+            better += tree[i];
+        }
+        return better + 1;
+    }
+
+    /**
+     * Returns the amount of counted results.
+     *
+     * @return the amount of results.
+     */
+    synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Returns the index of the tree bucket that counts the results with the given score and duration.
+     *
+     * @param score the score of the results.
+     * @param durationMillis the game duration of the results in milliseconds.
+     * @return the bucket index, from 1 for the best results.
+     */
+    private static int bucket(int score, int durationMillis) {
+        int clampedScore = Math.max(0, Math.min(MAX_SCORE, score));
+        int seconds = Math.max(0, Math.min(MAX_DURATION_SECONDS + 1, durationMillis / 1000));
+        return (MAX_SCORE - clampedScore) * DURATION_BUCKETS + seconds + 1;
+    }
+}
@@ -1,14 +1,35 @@
 package ru.hse.edu.vmpendischuk.jigsaw.server.data;
 
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardCursor;
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardPage;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerProfile;
 import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStatsEntry;
 
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.util.List;
 
 /**
  * The interface that describes behaviour of a game results repository.
  */
 public interface ResultsRepository {
+    /**
+     * Opens the results repository with the given URL: the memory-mapped log file for the URLs
+     *   starting with {@link MappedResultsRepository#URL_PREFIX} followed by the file path,
+     *   the JDBC database otherwise.
+     *
+     * @param url the URL of the results repository.
+     * @return the results repository.
+     * @throws java.io.UncheckedIOException if the log file could not be opened.
+     */
+    static ResultsRepository open(String url) {
+        if (url.startsWith(MappedResultsRepository.URL_PREFIX)) {
+            return new MappedResultsRepository(Path.of(url.substring(MappedResultsRepository.URL_PREFIX.length())));
+        }
+        return new JdbcResultsRepository(url);
+    }
+
     /**
      * Adds the given record to the database.
      *
@@ -18,6 +39,21 @@ public interface ResultsRepository {
      */
     long addRecord(PlayerStatsEntry record) throws SQLException;
 
+    /**
+     * Adds the given records to the database at once.
+     *
+     * @param records the game result records.
+     * @return the generated IDs of the records in the database, in the order of the records.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    default long[] addRecords(List<PlayerStatsEntry> records) throws SQLException {
+        long[] ids = new long[records.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = addRecord(records.get(i));
+        }
+        return ids;
+    }
+
     /**
      * Gets the top 10 (or less) game results from the database
      *   based on the corresponding sort.
@@ -27,6 +63,66 @@ public interface ResultsRepository {
      */
     List<PlayerStatsEntry> getTopRecords() throws SQLException;
 
+    /**
+     * Gets a page of the game results in the leaderboard order, starting right after the given cursor.
+     *
+     * @param after the cursor of the page, or {@code null} for the first page.
+     * @param limit the max amount of results in the page.
+     * @return the page of the game results.
+     * @throws SQLException if an error in the database communication has occurred
+     *   or the repository does not support the pages.
+     */
+    default LeaderboardPage getPage(LeaderboardCursor after, int limit) throws SQLException {
+        throw new SQLFeatureNotSupportedException("The leaderboard pages are not supported");
+    }
+
+    /**
+     * Gets the rank of a game result with the given score and duration in the leaderboard,
+     *   the results with the same score and duration share the rank.
+     *
+     * @param score the score of the result.
+     * @param time the game duration of the result in the "HH:MM:SS" format.
+     * @return one plus the amount of results with a higher score, or the same score and a shorter duration.
+     * @throws SQLException if an error in the database communication has occurred
+     *   or the repository does not support the ranks.
+     */
+    default long getRank(int score, String time) throws SQLException {
+        throw new SQLFeatureNotSupportedException("The leaderboard ranks are not supported");
+    }
+
+    /**
+     * Gets the best game result of the player with the given username.
+     *
+     * @param username the player's username.
+     * @return the best game result of the player, or {@code null} if the player has no results.
+     * @throws SQLException if an error in the database communication has occurred
+     *   or the repository does not support the player lookup.
+     */
+    default PlayerStatsEntry getBestRecord(String username) throws SQLException {
+        throw new SQLFeatureNotSupportedException("The player lookup is not supported");
+    }
+
+    /**
+     * Gets the aggregate statistics of all game results of the player with the given username.
+     *
+     * @param username the player's username.
+     * @return the player profile, or {@code null} if the player has no results.
+     * @throws SQLException if an error in the database communication has occurred
+     *   or the repository does not support the player profiles.
+     */
+    default PlayerProfile getProfile(String username) throws SQLException {
+        throw new SQLFeatureNotSupportedException("The player profiles are not supported");
+    }
+
+    /**
+     * Returns the maximal length of a username the repository stores.
+     *
+     * @return the maximal length of a username in UTF-8 bytes.
+     */
+    default int getMaxUsernameBytes() {
+        return Integer.MAX_VALUE;
+    }
+
     /**
      * Closes the database connection.
      */
@@ -0,0 +1,396 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.data;
+
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardCursor;
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardPage;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerProfile;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStatsEntry;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@link ResultsRepository} that spreads the records across several repositories (shards)
+ *   by the hash of the username.
+ * <p>
+ * All records of a player are stored in the same shard, so the best record and the profile of a player
+ *   are read from a single shard.
+ *   The records added at once are written to their shards in parallel, and the top records, the pages and the ranks
+ *   are read from all shards in parallel and merged. The ID of a record holds the index of its shard in the high
+ *   bits and the ID given by the shard in the low bits, so the records with the same score, duration and finish time
+ *   are ordered by their shard first, and a page cursor addresses a position in every shard.
+ *   The shards must be passed in the same order on every start, otherwise the players get spread differently.
+ */
+public class ShardedResultsRepository implements ResultsRepository {
+    // The maximal amount of shards.
+    public static final int MAX_SHARD_COUNT = 64;
+    // The amount of low bits of a record ID that hold the ID given by the shard.
+    private static final int SHARD_ID_BITS = 56;
+    // The largest ID given by a shard.
+    private static final long MAX_SHARD_ID = (1L << SHARD_ID_BITS) - 1;
+    // The shards.
+    private final List<ResultsRepository> shards;
+    // The threads used to call the shards in parallel.
+    private final ExecutorService executor;
+
+    /**
+     * Initializes a new {@link ShardedResultsRepository} instance.
+     *
+     * @param shards the shards, in the same order on every start.
+     * @throws IllegalArgumentException if there are no shards or more than {@link #MAX_SHARD_COUNT} shards.
+     */
+    public ShardedResultsRepository(List<ResultsRepository> shards) {
+        if (shards.isEmpty() || shards.size() > MAX_SHARD_COUNT) {
+            throw new IllegalArgumentException("Invalid amount of shards " + shards.size());
+        }
+        this.shards = List.copyOf(shards);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(shards.size(), runnable -> {
+            Thread thread = new Thread(runnable, "jigsaw-shard-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Adds the given record to the shard of its player.
+     *
+     * @param record the game result record.
+     * @return the ID of the record.
+     * @throws SQLException if an error in the shard communication has occurred.
+     */
+    @Override
+    public long addRecord(PlayerStatsEntry record) throws SQLException {
+        int shard = shardOf(record.username());
+        return toId(shard, shards.get(shard).addRecord(record));
+    }
+
+    /**
+     * Adds the given records to the shards of their players, writing to the shards in parallel.
+     * <p>
+     * If a shard fails, the records of the other shards are still added,
+     *   and a {@link PartialWriteException} holds the IDs of the added records.
+     *
+     * @param records the game result records.
+     * @return the IDs of the records, in the order of the records.
+     * @throws SQLException if an error in the communication with any of the shards has occurred.
+     */
+    @Override
+    public long[] addRecords(List<PlayerStatsEntry> records) throws SQLException {
+        List<List<Integer>> positions = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            positions.add(new ArrayList<>());
+        }
+        for (int i = 0; i < records.size(); i++) {
+            positions.get(shardOf(records.get(i).username())).add(i);
+        }
+
+        List<Integer> usedShards = new ArrayList<>();
+        List<Callable<long[]>> calls = new ArrayList<>();
+        SQLException[] failures = new SQLException[shards.size()];
+        for (int shard = 0; shard < shards.size(); shard++) {
+            List<PlayerStatsEntry> shardRecords = new ArrayList<>(positions.get(shard).size());
+            for (int position : positions.get(shard)) {
+                shardRecords.add(records.get(position));
+            }
+
+            if (!shardRecords.isEmpty()) {
+                ResultsRepository repository = shards.get(shard);
+                int call = usedShards.size();
+                usedShards.add(shard);
+                // A failed shard does not fail the call, so the added records of the other shards are reported.
+                calls.add(() -> {
+                    try {
+                        return repository.addRecords(shardRecords);
+                    } catch (SQLException ex) {
+                        failures[call] = ex;
+                    } catch (RuntimeException ex) {
+                        failures[call] = new SQLException("Shard call failed", ex);
+                    }
+                    return null;
+                });
+            }
+        }
+
+        List<long[]> shardIds = scatter(calls);
+        long[] ids = new long[records.size()];
+        SQLException failure = null;
+        boolean added = false;
+        for (int i = 0; i < usedShards.size(); i++) {
+            if (shardIds.get(i) == null) {
+                if (failure == null) {
+                    failure = failures[i];
+                } else {
+                    failure.addSuppressed(failures[i]);
+                }
+                continue;
+            }
+
+            int shard = usedShards.get(i);
+            List<Integer> shardPositions = positions.get(shard);
+            for (int j = 0; j < shardPositions.size(); j++) {
+                ids[shardPositions.get(j)] = toId(shard, shardIds.get(i)[j]);
+            }
+            added = true;
+        }
+
+        if (failure != null) {
+            throw added ? new PartialWriteException(ids, failure) : failure;
+        }
+        return ids;
+    }
+
+    /**
+     * Gets the top 10 (or less) game results by merging the top records of all shards.
+     *
+     * @return the top 10 (or less) game results.
+     * @throws SQLException if an error in the communication with any of the shards has occurred.
+     */
+    @Override
+    public List<PlayerStatsEntry> getTopRecords() throws SQLException {
+        List<Callable<List<PlayerStatsEntry>>> calls = new ArrayList<>();
+        for (ResultsRepository shard : shards) {
+            calls.add(shard::getTopRecords);
+        }
+
+        List<List<PlayerStatsEntry>> shardRecords = scatter(calls);
+        int[] taken = new int[shards.size()];
+        List<PlayerStatsEntry> records = new ArrayList<>(LeaderboardResultsRepository.TOP_SIZE);
+        int shard;
+        while (records.size() < LeaderboardResultsRepository.TOP_SIZE && (shard = best(shardRecords, taken)) >= 0) {
+            records.add(shardRecords.get(shard).get(taken[shard]++));
+        }
+        return records;
+    }
+
+    /**
+     * Gets a page of the game results in the leaderboard order by merging the pages of all shards
+     *   that start right after the given cursor.
+     *
+     * @param after the cursor of the page, or {@code null} for the first page.
+     * @param limit the max amount of results in the page.
+     * @return the page of the game results.
+     * @throws SQLException if an error in the communication with any of the shards has occurred.
+     */
+    @Override
+    public LeaderboardPage getPage(LeaderboardCursor after, int limit) throws SQLException {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Invalid page size " + limit);
+        }
+
+        List<LeaderboardCursor> cursors = new ArrayList<>(shards.size());
+        List<Callable<LeaderboardPage>> calls = new ArrayList<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            ResultsRepository repository = shards.get(shard);
+            LeaderboardCursor cursor = toShardCursor(after, shard);
+            cursors.add(cursor);
+            calls.add(() -> repository.getPage(cursor, limit));
+        }
+
+        List<LeaderboardPage> pages = scatter(calls);
+        List<List<PlayerStatsEntry>> shardRecords = new ArrayList<>(pages.size());
+        for (LeaderboardPage page : pages) {
+            shardRecords.add(page.entries());
+        }
+
+        int[] taken = new int[shards.size()];
+        List<PlayerStatsEntry> entries = new ArrayList<>(limit);
+        int last = -1;
+        int shard;
+        while (entries.size() < limit && (shard = best(shardRecords, taken)) >= 0) {
+            entries.add(shardRecords.get(shard).get(taken[shard]++));
+            last = shard;
+        }
+
+        boolean hasNext = false;
+        for (int i = 0; i < shards.size(); i++) {
+            hasNext |= taken[i] < shardRecords.get(i).size() || pages.get(i).next() != null;
+        }
+        if (!hasNext) {
+            return new LeaderboardPage(entries, null);
+        }
+
+        // The cursor of the last record is the cursor of its shard page, unless the page was not used up.
+        List<PlayerStatsEntry> lastRecords = shardRecords.get(last);
+        LeaderboardCursor next = taken[last] == lastRecords.size()
+                ? pages.get(last).next()
+                : shards.get(last).getPage(cursors.get(last), taken[last]).next();
+        if (next == null) {
+            // The shard of the last record has no more records, so any later position in it will do.
+            PlayerStatsEntry record = lastRecords.get(taken[last] - 1);
+            next = new LeaderboardCursor(record.score(), JdbcResultsRepository.toMillis(record.time()),
+                    record.finishedAt(), MAX_SHARD_ID);
+        }
+        return new LeaderboardPage(entries, new LeaderboardCursor(next.score(), next.durationMillis(),
+                next.finishedAt(), toId(last, next.id())));
+    }
+
+    /**
+     * Gets the rank of a game result with the given score and duration by summing the ranks in all shards.
+     *
+     * @param score the score of the result.
+     * @param time the game duration of the result in the "HH:MM:SS" format.
+     * @return one plus the amount of results with a higher score, or the same score and a shorter duration.
+     * @throws SQLException if an error in the communication with any of the shards has occurred.
+     */
+    @Override
+    public long getRank(int score, String time) throws SQLException {
+        List<Callable<Long>> calls = new ArrayList<>();
+        for (ResultsRepository shard : shards) {
+            calls.add(() -> shard.getRank(score, time));
+        }
+
+        long rank = 1;
+        for (long shardRank : scatter(calls)) {
+            rank += shardRank - 1;
+        }
+        return rank;
+    }
+
+    /**
+     * Gets the best game result of the player with the given username from the shard of the player.
+     *
+     * @param username the player's username.
+     * @return the best game result of the player, or {@code null} if the player has no results.
+     * @throws SQLException if an error in the shard communication has occurred.
+     */
+    @Override
+    public PlayerStatsEntry getBestRecord(String username) throws SQLException {
+        return shards.get(shardOf(username)).getBestRecord(username);
+    }
+
+    /**
+     * Gets the aggregate statistics of the player with the given username from the shard of the player.
+     *
+     * @param username the player's username.
+     * @return the player profile, or {@code null} if the player has no results.
+     * @throws SQLException if an error in the shard communication has occurred.
+     */
+    @Override
+    public PlayerProfile getProfile(String username) throws SQLException {
+        return shards.get(shardOf(username)).getProfile(username);
+    }
+
+    /**
+     * Returns the maximal length of a username every shard stores.
+     *
+     * @return the maximal length of a username in UTF-8 bytes.
+     */
+    @Override
+    public int getMaxUsernameBytes() {
+        return shards.stream().mapToInt(ResultsRepository::getMaxUsernameBytes).min().orElse(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Closes all shards.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+
+        for (ResultsRepository shard : shards) {
+            shard.close();
+        }
+    }
+
+    /**
+     * Returns the index of the shard that stores the records of the player.
+     *
+     * @param username the player's username.
+     * @return the shard index.
+     */
+    private int shardOf(String username) {
+        return Math.floorMod(username.hashCode(), shards.size());
+    }
+
+    /**
+     * Converts the cursor of the merged pages to the cursor of the shard.
+     *
+     * @param cursor the cursor of the merged pages, or {@code null} for the first page.
+     * @param shard the shard index.
+     * @return the cursor of the shard pages, or {@code null} for the first page.
+     */
+    private static LeaderboardCursor toShardCursor(LeaderboardCursor cursor, int shard) {
+        if (cursor == null) {
+            return null;
+        }
+
+        // The records with the same score, duration and finish time are ordered by their shard.
+        int cursorShard = (int) (cursor.id() >>> SHARD_ID_BITS);
+        long id = shard == cursorShard ? cursor.id() & MAX_SHARD_ID : shard < cursorShard ? MAX_SHARD_ID : 0;
+        return new LeaderboardCursor(cursor.score(), cursor.durationMillis(), cursor.finishedAt(), id);
+    }
+
+    /**
+     * Returns the ID of a record that holds the shard index and the ID given by the shard.
+     *
+     * @param shard the shard index.
+     * @param shardId the ID given by the shard.
+     * @return the record ID.
+     */
+    private static long toId(int shard, long shardId) {
+        return (long) shard << SHARD_ID_BITS | shardId & MAX_SHARD_ID;
+    }
+
+    /**
+     * Finds the shard which next record comes first in the leaderboard order.
+     *
+     * @param shardRecords the records of every shard in the leaderboard order.
+     * @param taken the amount of the merged records of every shard.
+     * @return the shard index, or -1 if all records have been merged.
+     */
+    private static int best(List<List<PlayerStatsEntry>> shardRecords, int[] taken) {
+        int best = -1;
+        for (int shard = 0; shard < taken.length; shard++) {
+            if (taken[shard] < shardRecords.get(shard).size() && (best < 0 || LeaderboardResultsRepository.ORDER
+                    .compare(shardRecords.get(shard).get(taken[shard]), shardRecords.get(best).get(taken[best])) < 0)) {
+                best = shard;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Runs the calls in parallel and waits for all of them.
+     *
+     * @param calls the calls of the shards.
+     * @param <T> type of the call results.
+     * @return the call results, in the order of the calls.
+     * @throws SQLException if any of the calls has failed or the caller has been interrupted.
+     */
+    private <T> List<T> scatter(List<Callable<T>> calls) throws SQLException {
+        // A single call is made on the calling thread.
+        if (calls.size() == 1) {
+            try {
+                return List.of(calls.get(0).call());
+            } catch (SQLException | RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new SQLException("Shard call failed", ex);
+            }
+        }
+
+        try {
+            List<T> results = new ArrayList<>(calls.size());
+            for (Future<T> future : executor.invokeAll(calls)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException("Shard call failed", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the shards", ex);
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.data;
+
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardCursor;
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardPage;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerProfile;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStatsEntry;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The {@link ResultsRepository} decorator that writes the records to the wrapped repository
+ *   on a background thread.
+ * <p>
+ * The added records are put into a bounded queue (the callers wait while it is full),
+ *   the writer thread takes all queued records at once and adds them to the wrapped repository
+ *   in a single call, so the records of the players finishing at the same time share one commit.
+ *   The records of a failed call are written one by one, so an invalid record does not fail the others.
+ *   Depending on the {@link Durability}, a caller either returns as soon as its record is queued
+ *   or waits for the commit of its record. The top records, the pages and the ranks are read without
+ *   waiting for the queue, while the best record and the profile of a player that has queued records
+ *   are read after these records are written, so a player always sees the own results.
+ *   The queued records are written when the repository is closed.
+ */
+public class WriteBehindResultsRepository implements ResultsRepository {
+    // Logger used to log messages.
+    private static final Logger logger = Logger.getLogger(WriteBehindResultsRepository.class.getName());
+    // The ID returned for a record that has been queued, but has not been written yet.
+    public static final long PENDING_ID = -1;
+    // The maximal amount of records written in a single call of the wrapped repository.
+    private static final int MAX_BATCH_SIZE = 256;
+    // The time the writer thread waits for a record before checking if the repository is closed.
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+    // The wrapped repository.
+    private final ResultsRepository repository;
+    // The moment at which a caller adding a record returns.
+    private final Durability durability;
+    // The records waiting to be written.
+    private final BlockingQueue<PendingRecord> queue;
+    // The amount of queued records of every player that has any.
+    private final Map<String, Integer> queuedPlayers = new ConcurrentHashMap<>();
+    // Lock held for reading while a record is queued and for writing while the repository is closed.
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    // The thread that writes the queued records.
+    private final Thread writer;
+    // Flag that denotes if the repository has been closed.
+    private volatile boolean closed = false;
+
+    /**
+     * The moment at which a caller adding a record returns.
+     */
+    public enum Durability {
+        // The caller returns once the record is queued, the queued records are lost if the server crashes.
+        QUEUED,
+        // The caller returns once the record is committed together with the other queued records.
+        COMMITTED
+    }
+
+    /**
+     * A record waiting to be written.
+     *
+     * @param entry the game result record, or {@code null} for a marker that is completed once
+     *   all records queued before it are written.
+     * @param id the signal completed with the generated ID of the record once it is written.
+     */
+    private record PendingRecord(PlayerStatsEntry entry, CompletableFuture<Long> id) { }
+
+    /**
+     * Initializes a new {@link WriteBehindResultsRepository} instance.
+     *
+     * @param repository the wrapped repository.
+     * @param durability the moment at which a caller adding a record returns.
+     * @param capacity the maximal amount of queued records.
+     */
+    public WriteBehindResultsRepository(ResultsRepository repository, Durability durability, int capacity) {
+        this.repository = repository;
+        this.durability = durability;
+        queue = new ArrayBlockingQueue<>(capacity);
+
+        writer = new Thread(this::writeRecords, "jigsaw-results-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues the given record to be added to the database.
+     *
+     * @param record the game result record.
+     * @return the generated ID of the record in the database,
+     *   or {@link #PENDING_ID} if the caller does not wait for the record to be committed.
+     * @throws SQLException if the repository is closed or, if the caller waits for the commit,
+     *   an error in the database communication has occurred.
+     */
+    @Override
+    public long addRecord(PlayerStatsEntry record) throws SQLException {
+        PendingRecord pending = enqueue(record);
+
+        return durability == Durability.COMMITTED ? await(pending.id()) : PENDING_ID;
+    }
+
+    /**
+     * Gets the top 10 (or less) game results from the database
+     *   based on the corresponding sort, without the queued records.
+     *
+     * @return the top 10 (or less) game results.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    @Override
+    public List<PlayerStatsEntry> getTopRecords() throws SQLException {
+        return repository.getTopRecords();
+    }
+
+    /**
+     * Gets a page of the game results in the leaderboard order, without the queued records.
+     *
+     * @param after the cursor of the page, or {@code null} for the first page.
+     * @param limit the max amount of results in the page.
+     * @return the page of the game results.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    @Override
+    public LeaderboardPage getPage(LeaderboardCursor after, int limit) throws SQLException {
+        return repository.getPage(after, limit);
+    }
+
+    /**
+     * Gets the rank of a game result with the given score and duration in the leaderboard,
+     *   without the queued records.
+     *
+     * @param score the score of the result.
+     * @param time the game duration of the result in the "HH:MM:SS" format.
+     * @return the rank of the result.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    @Override
+    public long getRank(int score, String time) throws SQLException {
+        return repository.getRank(score, time);
+    }
+
+    /**
+     * Gets the best game result of the player with the given username
+     *   after the queued records of the player are written.
+     *
+     * @param username the player's username.
+     * @return the best game result of the player, or {@code null} if the player has no results.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    @Override
+    public PlayerStatsEntry getBestRecord(String username) throws SQLException {
+        flushPlayer(username);
+        return repository.getBestRecord(username);
+    }
+
+    /**
+     * Gets the aggregate statistics of the player with the given username
+     *   after the queued records of the player are written.
+     *
+     * @param username the player's username.
+     * @return the player profile, or {@code null} if the player has no results.
+     * @throws SQLException if an error in the database communication has occurred.
+     */
+    @Override
+    public PlayerProfile getProfile(String username) throws SQLException {
+        flushPlayer(username);
+        return repository.getProfile(username);
+    }
+
+    /**
+     * Waits until the records queued before the call are written.
+     *
+     * @throws SQLException if the repository is closed.
+     */
+    public void flush() throws SQLException {
+        await(enqueue(null).id());
+    }
+
+    /**
+     * Waits until the records queued before the call are written if the player with the given username
+     *   has any of them.
+     *
+     * @param username the player's username.
+     * @throws SQLException if the repository is closed.
+     */
+    private void flushPlayer(String username) throws SQLException {
+        if (queuedPlayers.containsKey(username)) {
+            flush();
+        }
+    }
+
+    /**
+     * Returns the amount of records waiting to be written.
+     *
+     * @return the amount of queued records.
+     */
+    public int getQueuedRecordCount() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the maximal length of a username the wrapped repository stores.
+     *
+     * @return the maximal length of a username in UTF-8 bytes.
+     */
+    @Override
+    public int getMaxUsernameBytes() {
+        return repository.getMaxUsernameBytes();
+    }
+
+    /**
+     * Writes the queued records, stops the writer thread and closes the database connection.
+     */
+    @Override
+    public void close() {
+        // Waiting for the callers that are queueing records, the writer thread keeps making room for them.
+        closeLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+
+        // No record is queued after the flag is set, so the writer thread writes every queued record.
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        repository.close();
+    }
+
+    /**
+     * Puts a record into the queue, waiting while the queue is full.
+     *
+     * @param record the game result record, or {@code null} for a marker.
+     * @return the queued record.
+     * @throws SQLException if the repository is closed or the caller has been interrupted.
+     */
+    private PendingRecord enqueue(PlayerStatsEntry record) throws SQLException {
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                throw new SQLException("The results repository is closed");
+            }
+
+            PendingRecord pending = new PendingRecord(record, new CompletableFuture<>());
+            if (record != null) {
+                queuedPlayers.merge(record.username(), 1, Integer::sum);
+            }
+
+            try {
+                queue.put(pending);
+            } catch (InterruptedException ex) {
+                if (record != null) {
+                    forget(record);
+                }
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for the results queue", ex);
+            }
+
+            return pending;
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the record from the amounts of the queued records of the players.
+     *
+     * @param record the game result record that is no longer queued.
+     */
+    private void forget(PlayerStatsEntry record) {
+        queuedPlayers.computeIfPresent(record.username(), (username, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * Waits for the record to be written.
+     *
+     * @param id the signal completed once the record is written.
+     * @return the generated ID of the record in the database.
+     * @throws SQLException if the record could not be written.
+     */
+    private static long await(CompletableFuture<Long> id) throws SQLException {
+        try {
+            return id.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException("Could not write the record", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the record to be written", ex);
+        }
+    }
+
+    /**
+     * Writes the queued records in batches until the repository is closed and the queue is empty.
+     */
+    private void writeRecords() {
+        List<PendingRecord> batch = new ArrayList<>(MAX_BATCH_SIZE);
+
+        while (!closed || !queue.isEmpty()) {
+            try {
+                PendingRecord first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException ex) {
+                // The writer thread is only stopped by closing the repository.
+                continue;
+            }
+
+            queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes the batch of records in a single call of the wrapped repository and notifies the callers.
+     * <p>
+     * If the call fails, the records it has not added are written one by one,
+     *   so an invalid record only fails its own caller.
+     *
+     * @param batch the records and the markers taken from the queue.
+     */
+    private void writeBatch(List<PendingRecord> batch) {
+        List<PlayerStatsEntry> entries = new ArrayList<>(batch.size());
+        for (PendingRecord pending : batch) {
+            if (pending.entry() != null) {
+                entries.add(pending.entry());
+            }
+        }
+
+        long[] ids = new long[entries.size()];
+        SQLException[] failures = new SQLException[entries.size()];
+        if (!entries.isEmpty()) {
+            try {
+                ids = repository.addRecords(entries);
+            } catch (PartialWriteException ex) {
+                logger.log(Level.WARNING, "Could not save a batch of " + entries.size() + " records at once", ex);
+                ids = ex.getIds();
+                writeSeparately(entries, ids, failures);
+            } catch (SQLException | RuntimeException ex) {
+                logger.log(Level.WARNING, "Could not save a batch of " + entries.size() + " records at once", ex);
+                Arrays.fill(ids, PartialWriteException.NOT_ADDED);
+                writeSeparately(entries, ids, failures);
+            }
+        }
+
+        for (PlayerStatsEntry entry : entries) {
+            forget(entry);
+        }
+
+        int written = 0;
+        for (PendingRecord pending : batch) {
+            if (pending.entry() == null) {
+                pending.id().complete(PENDING_ID);
+            } else if (failures[written] != null) {
+                pending.id().completeExceptionally(failures[written++]);
+            } else {
+                pending.id().complete(ids[written++]);
+            }
+        }
+    }
+
+    /**
+     * Writes the records that have not been added one by one.
+     *
+     * @param entries the records of the batch.
+     * @param ids the IDs of the records, {@link PartialWriteException#NOT_ADDED} for the records
+     *   that have not been added, filled with the IDs of the written records.
+     * @param failures filled with the exceptions of the records that could not be written.
+     */
+    private void writeSeparately(List<PlayerStatsEntry> entries, long[] ids, SQLException[] failures) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] != PartialWriteException.NOT_ADDED) {
+                continue;
+            }
+
+            try {
+                ids[i] = repository.addRecord(entries.get(i));
+            } catch (SQLException ex) {
+                failures[i] = ex;
+            } catch (RuntimeException ex) {
+                failures[i] = new SQLException("Could not write the record", ex);
+            }
+
+            if (failures[i] != null) {
+                logger.log(Level.SEVERE, "Could not save the record of player " + entries.get(i).username()
+                        + " in the database", failures[i]);
+            }
+        }
+    }
+}
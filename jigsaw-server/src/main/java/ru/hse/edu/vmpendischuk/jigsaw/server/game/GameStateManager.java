@@ -1,7 +1,7 @@
 package ru.hse.edu.vmpendischuk.jigsaw.server.game;
 
-import ru.hse.edu.vmpendischuk.jigsaw.server.data.JdbcResultsRepository;
 import ru.hse.edu.vmpendischuk.jigsaw.server.data.ResultsRepository;
+import ru.hse.edu.vmpendischuk.jigsaw.util.GameField;
 import ru.hse.edu.vmpendischuk.jigsaw.util.GameResults;
 import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStats;
 import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStatsEntry;
@@ -9,91 +9,175 @@ import ru.hse.edu.vmpendischuk.jigsaw.util.Shape;
 
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * The Jigsaw game server state manager, used to track player stats and status,
  *   calculate and store Jigsaw game results.
+ * <p>
+ * The shapes of a match are not stored: every match has a seed, which defines its endless
+ *   {@link ShapeSequence}, and every player has a cursor into the sequence, so all players
+ *   get the same shapes in the same order and a match can be reproduced from its seed.
+ * <p>
+ * The manager is called concurrently by the threads serving the players. The players, their stats,
+ *   the player counters, the shape sequence and the readiness signals are guarded by the state lock.
+ *   The frequent shape requests do not take the lock: the player IDs are also kept in a concurrent map
+ *   (a player's ID is published to the other threads before the player is notified that the game has started),
+ *   the shape sequence is published through a volatile field and the cursors are atomic.
+ *   The readiness signals are completed outside the lock, completing a signal happens-before
+ *   the actions waiting for it, so the notified sessions see the state the signal was completed for.
  */
 public class GameStateManager {
     // Logger used to log messages.
     private static final Logger logger = Logger.getLogger(GameStateManager.class.getName());
-    // List of queues containing shapes generated for each player.
-    private final List<Queue<Shape>> playerGeneratedShapes = new ArrayList<>();
-    // Map of IDs corresponding to each player's username.
-    private final Map<String, Integer> playerIds = new HashMap<>();
-    // Map that contains each player's stats.
+    // The index of the next shape in the shape sequence for each player ID.
+    private final AtomicLongArray shapeCursors;
+    // Map of IDs corresponding to each player's username (modified under the state lock).
+    private final Map<String, Integer> playerIds = new ConcurrentHashMap<>();
+    // Map that contains each player's stats (guarded by the state lock).
     private final Map<String, PlayerStats> playerStats = new HashMap<>();
-    // List of disconnected players' usernames.
+    // List of disconnected players' usernames (guarded by the state lock).
     private final List<String> disconnectedPlayers = new ArrayList<>();
     // Repository used to store game results.
     private final ResultsRepository resultsRepository;
     // The max amount of players.
     private final int playerCount;
-    // The increment of shape amount in the queues.
-    private final int shapeCountIncrement;
     // The max allowed duration of a game.
     private final int maxDuration;
-    // The amount of players currently connected.
+    // The amount of players currently connected (guarded by the state lock).
     private int currentPlayerCount = 0;
-    // The amount of disconnected players.
+    // The amount of disconnected players (guarded by the state lock).
     private int disconnectedPlayersCount = 0;
-    // The amount of players that have finished their game.
+    // The amount of players that have finished their game (guarded by the state lock).
     private int finishedPlayerCount = 0;
+    // Lock that guards the players, the player counters and the readiness signals.
+    private final ReentrantLock stateLock = new ReentrantLock();
+    // The sequence of the shapes of the game (modified under the state lock).
+    private volatile ShapeSequence shapeSequence;
+    // Signal completed when the necessary amount of players has connected to the game.
+    private CompletableFuture<Void> playersConnected = new CompletableFuture<>();
+    // Signal completed with the game results when the necessary amount of players has finished the game.
+    private CompletableFuture<GameResults> playersFinished = new CompletableFuture<>();
+
+    /**
+     * Initializes a new {@link GameStateManager} instance with a random seed.
+     *
+     * @param playerCount the max amount of players.
+     * @param maxDuration the max allowed duration of a game.
+     * @param dbUrl URL of the database or the log file used to store game results,
+     *   see {@link ResultsRepository#open(String)}.
+     */
+    public GameStateManager(int playerCount, int maxDuration, String dbUrl) {
+        this(playerCount, maxDuration, ResultsRepository.open(dbUrl));
+    }
+
+    /**
+     * Initializes a new {@link GameStateManager} instance with a random seed.
+     *
+     * @param playerCount the max amount of players.
+     * @param maxDuration the max allowed duration of a game.
+     * @param resultsRepository repository used to store game results.
+     */
+    public GameStateManager(int playerCount, int maxDuration, ResultsRepository resultsRepository) {
+        this(playerCount, maxDuration, resultsRepository, ThreadLocalRandom.current().nextLong());
+    }
 
     /**
      * Initializes a new {@link GameStateManager} instance.
      *
      * @param playerCount the max amount of players.
-     * @param shapeCount the increment of shape amount in the queues.
      * @param maxDuration the max allowed duration of a game.
-     * @param dbUrl URL of the database used to store game results.
+     * @param resultsRepository repository used to store game results.
+     * @param seed the seed of the game's shape sequence.
      */
-    public GameStateManager(int playerCount, int shapeCount, int maxDuration, String dbUrl) {
+    public GameStateManager(int playerCount, int maxDuration, ResultsRepository resultsRepository, long seed) {
         this.playerCount = playerCount;
         this.maxDuration = maxDuration;
-        shapeCountIncrement = shapeCount;
-        resultsRepository = new JdbcResultsRepository(dbUrl);
-
-        for (int i = 0; i < playerCount; i++) {
-            playerGeneratedShapes.add(new LinkedList<>());
-        }
-
-        for (int i = 0; i < shapeCount; i++) {
-            Shape generatedShape = Shape.getRandomShape();
-            for (int j = 0; j < playerCount; j++) {
-                playerGeneratedShapes.get(j).offer(generatedShape);
-            }
-        }
+        this.resultsRepository = resultsRepository;
+        shapeCursors = new AtomicLongArray(playerCount);
+        shapeSequence = new ShapeSequence(seed);
     }
 
     /**
      * Connects the player with given username to the game.
      *
      * @param username player username.
-     * @return flag that denotes if the player was allowed to connect to the game.
+     * @return flag that denotes if the player was allowed to connect to the game
+     *   (a player can not connect if the game is full or a player with the same username is in the game).
      */
     public boolean connectPlayer(String username) {
-        if (currentPlayerCount == playerCount) {
-            return false;
+        CompletableFuture<Void> signal = null;
+
+        stateLock.lock();
+        try {
+            if (currentPlayerCount == playerCount || playerIds.containsKey(username)) {
+                return false;
+            }
+
+            int id = getFreePlayerId();
+            playerIds.put(username, id);
+            shapeCursors.set(id, 0);
+            currentPlayerCount++;
+
+            if (currentPlayerCount == playerCount) {
+                signal = playersConnected;
+            }
+        } finally {
+            stateLock.unlock();
+        }
+
+        // Notifying the waiting players outside the lock, the notification writes to their connections.
+        if (signal != null) {
+            signal.complete(null);
         }
 
-        playerIds.put(username, currentPlayerCount++);
         return true;
     }
 
+    /**
+     * Returns the lowest player ID not used by the connected players.
+     * <p>
+     * Called under the state lock.
+     *
+     * @return the lowest free player ID.
+     */
+    private int getFreePlayerId() {
+        Collection<Integer> usedIds = playerIds.values();
+        int id = 0;
+
+        while (usedIds.contains(id)) {
+            id++;
+        }
+
+        return id;
+    }
+
     /**
      * Disconnects the player with given username from the game.
      *
      * @param username player username.
      */
     public void disconnectPlayer(String username) {
-        if (playerIds.containsKey(username)) {
+        CompletableFuture<GameResults> signal = null;
+        GameResults results = null;
+
+        stateLock.lock();
+        try {
+            if (!playerIds.containsKey(username)) {
+                return;
+            }
+
             playerStats.remove(username);
             playerIds.remove(username);
             disconnectedPlayers.add(username);
             currentPlayerCount--;
+            renewConnectedSignal();
 
             if (playerCount > 1) {
                 disconnectedPlayersCount++;
@@ -103,7 +187,17 @@ public class GameStateManager {
 
             if (currentPlayerCount == 0) {
                 reset();
+            } else if (finishedPlayerCount > 0 && allPlayersFinished()) {
+                // The disconnected player was the last one the others were waiting for.
+                signal = playersFinished;
+                results = getResults();
             }
+        } finally {
+            stateLock.unlock();
+        }
+
+        if (signal != null) {
+            signal.complete(results);
         }
     }
 
@@ -111,41 +205,69 @@ public class GameStateManager {
      * Resets the game state to allow the game to restart.
      */
     public void reset() {
-        logger.log(Level.INFO, "RESET");
+        stateLock.lock();
+        try {
+            logger.log(Level.INFO, "RESET");
 
-        disconnectedPlayersCount = 0;
-        finishedPlayerCount = 0;
+            disconnectedPlayersCount = 0;
+            finishedPlayerCount = 0;
 
-        playerGeneratedShapes.clear();
-        playerStats.clear();
-        disconnectedPlayers.clear();
+            // The players waiting for the finish of the previous game have already been notified.
+            if (playersFinished.isDone()) {
+                playersFinished = new CompletableFuture<>();
+            }
 
-        for (int i = 0; i < playerCount; i++) {
-            playerGeneratedShapes.add(new LinkedList<>());
-        }
+            playerStats.clear();
+            disconnectedPlayers.clear();
 
-        for (int i = 0; i < shapeCountIncrement; i++) {
-            Shape generatedShape = Shape.getRandomShape();
-            for (int j = 0; j < playerCount; j++) {
-                playerGeneratedShapes.get(j).offer(generatedShape);
-            }
+            // The next game gets its own shapes, the cursors are reset as the players connect.
+            shapeSequence = new ShapeSequence(ThreadLocalRandom.current().nextLong());
+        } finally {
+            stateLock.unlock();
         }
     }
 
     /**
      * Finished the game for the player with given username.
+     * <p>
+     * A score the player could not have reached with the shapes it has been given
+     *   is lowered to the highest reachable score.
      *
      * @param username the player's username.
      * @param stats the player's stats.
      * @return flag that denotes if the game was successfully finished.
      */
     public boolean finishForPlayer(String username, PlayerStats stats) {
-        if (finishedPlayerCount == playerCount - disconnectedPlayersCount) {
-            return false;
+        CompletableFuture<GameResults> signal = null;
+        GameResults results = null;
+
+        int maxScore = getMaxScoreForPlayer(username);
+        if (stats.score() > maxScore) {
+            logger.warning("Player " + username + " has reported the score " + stats.score()
+                    + ", but could have placed at most " + maxScore + " shapes");
+            stats = new PlayerStats(maxScore, stats.time(), stats.finishedAt());
         }
 
-        playerStats.put(username, stats);
-        finishedPlayerCount++;
+        stateLock.lock();
+        try {
+            if (finishedPlayerCount == playerCount - disconnectedPlayersCount) {
+                return false;
+            }
+
+            playerStats.put(username, stats);
+            finishedPlayerCount++;
+
+            if (finishedPlayerCount == playerCount - disconnectedPlayersCount) {
+                signal = playersFinished;
+                results = getResults();
+
+                currentPlayerCount = 0;
+                playerIds.clear();
+                renewConnectedSignal();
+            }
+        } finally {
+            stateLock.unlock();
+        }
 
         try {
             resultsRepository.addRecord(new PlayerStatsEntry(stats, username));
@@ -153,21 +275,79 @@ public class GameStateManager {
             logger.log(Level.SEVERE, "Could not save a record in the database", ex);
         }
 
-        if (finishedPlayerCount == playerCount - disconnectedPlayersCount) {
-            currentPlayerCount = 0;
-            playerIds.clear();
+        if (signal != null) {
+            signal.complete(results);
         }
 
         return true;
     }
 
+    /**
+     * Returns the signal completed when the necessary amount of players has connected to the game.
+     *
+     * @return the signal completed when the necessary amount of players has connected to the game.
+     */
+    public CompletableFuture<Void> whenAllPlayersConnected() {
+        stateLock.lock();
+        try {
+            return playersConnected;
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the signal completed with the game results
+     *   when the necessary amount of players has finished the game.
+     *
+     * @return the signal completed with the game results
+     *   when the necessary amount of players has finished the game.
+     */
+    public CompletableFuture<GameResults> whenAllPlayersFinished() {
+        stateLock.lock();
+        try {
+            return playersFinished;
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the completed "all players connected" signal once a player slot is free again,
+     *   so that the players connecting next wait for the new signal.
+     */
+    private void renewConnectedSignal() {
+        if (playersConnected.isDone() && currentPlayerCount < playerCount) {
+            playersConnected = new CompletableFuture<>();
+        }
+    }
+
     /**
      * Checks if the necessary amount of players has connected to the game.
      *
      * @return flag that denotes if the necessary amount of players has connected to the game.
      */
     public boolean allPlayersConnected() {
-        return currentPlayerCount == playerCount;
+        stateLock.lock();
+        try {
+            return currentPlayerCount == playerCount;
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the amount of players currently connected to the game.
+     *
+     * @return the amount of players currently connected to the game.
+     */
+    public int getConnectedPlayerCount() {
+        stateLock.lock();
+        try {
+            return currentPlayerCount;
+        } finally {
+            stateLock.unlock();
+        }
     }
 
     /**
@@ -176,33 +356,111 @@ public class GameStateManager {
      * @return flag that denotes if the necessary amount of players has finished the game.
      */
     public boolean allPlayersFinished() {
-        return finishedPlayerCount == playerCount - disconnectedPlayersCount;
+        stateLock.lock();
+        try {
+            return finishedPlayerCount == playerCount - disconnectedPlayersCount;
+        } finally {
+            stateLock.unlock();
+        }
     }
 
     /**
-     * Returns a new generated shape for the player to place.
+     * Returns a new shape for the player to place.
      *
      * @param username the player's username.
-     * @return the new shape.
+     * @return the new shape, or {@code null} if the player is not in the game.
      */
     public Shape getShapeForPlayer(String username) {
-        Shape shape = playerGeneratedShapes.get(playerIds.get(username)).poll();
+        Integer id = playerIds.get(username);
 
-        if (getShapeCountForPlayer(username) == 0) {
-            generateAdditionalShapes();
+        if (id == null) {
+            return null;
         }
 
-        return shape;
+        return shapeSequence.shapeAt(shapeCursors.getAndIncrement(id));
     }
 
     /**
-     * Returns the amount of shapes left in the user's generated shapes queue.
+     * Returns the given amount of new shapes for the player to place.
+     * <p>
+     * The shapes are returned in the same order as by the consecutive {@link #getShapeForPlayer(String)} calls.
      *
      * @param username the player's username.
-     * @return the amount of shapes left in the user's generated shapes queue.
+     * @param count the amount of shapes.
+     * @return the new shapes, or an empty list if the player is not in the game.
      */
-    public int getShapeCountForPlayer(String username) {
-        return playerGeneratedShapes.get(playerIds.get(username)).size();
+    public List<Shape> getShapesForPlayer(String username, int count) {
+        Integer id = playerIds.get(username);
+
+        if (id == null) {
+            return List.of();
+        }
+
+        // Taking the whole batch with a single cursor update.
+        ShapeSequence sequence = shapeSequence;
+        long start = shapeCursors.getAndAdd(id, count);
+        List<Shape> shapes = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            shapes.add(sequence.shapeAt(start + i));
+        }
+
+        return shapes;
+    }
+
+    /**
+     * Returns the highest score the player could have reached with the shapes it has already been given.
+     * <p>
+     * The shapes are never removed from the field, so at most the smallest of the given shapes
+     *   that fit into the field's cells together could have been placed.
+     *
+     * @param username the player's username.
+     * @return the highest reachable score, or {@code 0} if the player is not in the game.
+     */
+    public int getMaxScoreForPlayer(String username) {
+        Integer id = playerIds.get(username);
+
+        if (id == null) {
+            return 0;
+        }
+
+        // Counting the given shapes by their size.
+        ShapeSequence sequence = shapeSequence;
+        long given = shapeCursors.get(id);
+        long[] shapesByCellCount = new long[GameField.CELL_COUNT + 1];
+        for (long i = 0; i < given; i++) {
+            shapesByCellCount[sequence.shapeAt(i).getCellCount()]++;
+        }
+
+        // Filling the field with the smallest shapes first.
+        int score = 0;
+        int freeCells = GameField.CELL_COUNT;
+        for (int cells = 1; cells <= freeCells; cells++) {
+            int placed = (int) Math.min(shapesByCellCount[cells], freeCells / cells);
+            score += placed;
+            freeCells -= placed * cells;
+        }
+
+        return score;
+    }
+
+    /**
+     * Returns the amount of shapes the player has already been given.
+     *
+     * @param username the player's username.
+     * @return the amount of shapes the player has already been given.
+     */
+    public long getShapeCursorForPlayer(String username) {
+        return shapeCursors.get(playerIds.get(username));
+    }
+
+    /**
+     * Returns the seed of the game's shape sequence.
+     *
+     * @return the seed of the game's shape sequence.
+     */
+    public long getSeed() {
+        return shapeSequence.seed();
     }
 
     /**
@@ -211,16 +469,21 @@ public class GameStateManager {
      * @return the results of the game.
      */
     public GameResults getResults() {
-        List<Map.Entry<String, PlayerStats>> mapList = new ArrayList<>(playerStats.entrySet());
-        mapList.sort(Map.Entry.comparingByValue());
-        String winner = mapList.get(0).getKey();
-
-        List<PlayerStatsEntry> entries = mapList.stream().map(entry -> {
-            PlayerStats stats = entry.getValue();
-            return new PlayerStatsEntry(stats, entry.getKey());
-        }).toList();
-
-        return new GameResults(winner, entries, disconnectedPlayers.stream().toList());
+        stateLock.lock();
+        try {
+            List<Map.Entry<String, PlayerStats>> mapList = new ArrayList<>(playerStats.entrySet());
+            mapList.sort(Map.Entry.comparingByValue());
+            String winner = mapList.get(0).getKey();
+
+            List<PlayerStatsEntry> entries = mapList.stream().map(entry -> {
+                PlayerStats stats = entry.getValue();
+                return new PlayerStatsEntry(stats, entry.getKey());
+            }).toList();
+
+            return new GameResults(winner, entries, disconnectedPlayers.stream().toList());
+        } finally {
+            stateLock.unlock();
+        }
     }
 
     /**
@@ -270,16 +533,4 @@ public class GameStateManager {
     public void closeDatabaseConnection() {
         resultsRepository.close();
     }
-
-    /**
-     * Generates additional shapes for all players.
-     */
-    private void generateAdditionalShapes() {
-        for (int i = 0; i < playerCount; i++) {
-            Shape generatedShape = Shape.getRandomShape();
-            for (int j = 0; j < shapeCountIncrement; j++) {
-                playerGeneratedShapes.get(i).offer(generatedShape);
-            }
-        }
-    }
 }
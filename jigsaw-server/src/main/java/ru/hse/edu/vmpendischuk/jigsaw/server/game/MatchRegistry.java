@@ -0,0 +1,214 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.game;
+
+import ru.hse.edu.vmpendischuk.jigsaw.server.data.ResultsRepository;
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardCursor;
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardPage;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerProfile;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStatsEntry;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The registry of the Jigsaw matches played on the server.
+ * <p>
+ * Every match owns its own {@link GameStateManager}, the matches only share the results repository.
+ *   The matches are created for the groups of players formed by the registry's {@link Matchmaker}.
+ *   A match is forgotten by the registry once it is finished or left by all of its players,
+ *   so the registry only holds the matches being played. The username of a player is released
+ *   in the matchmaker once the player leaves the match or the match is finished.
+ */
+public class MatchRegistry implements AutoCloseable {
+    // Logger used to log messages.
+    private static final Logger logger = Logger.getLogger(MatchRegistry.class.getName());
+    // The matches being played.
+    private final Set<GameStateManager> activeMatches = ConcurrentHashMap.newKeySet();
+    // The matchmaking queue that forms the matches.
+    private final Matchmaker matchmaker = new Matchmaker(this);
+    // Repository used to store game results of all matches.
+    private final ResultsRepository resultsRepository;
+    // The settings of the matches joined without specifying the settings.
+    private final MatchSettings defaultSettings;
+    // The maximal length of a username in UTF-8 bytes, so the results of every player can be stored.
+    private final int maxUsernameBytes;
+
+    /**
+     * Initializes a new {@link MatchRegistry} instance.
+     *
+     * @param defaultSettings the settings of the matches joined without specifying the settings.
+     * @param resultsRepository repository used to store game results of all matches.
+     */
+    public MatchRegistry(MatchSettings defaultSettings, ResultsRepository resultsRepository) {
+        this.defaultSettings = defaultSettings;
+        this.resultsRepository = resultsRepository;
+        maxUsernameBytes = resultsRepository.getMaxUsernameBytes();
+    }
+
+    /**
+     * Checks if the results of the player with the given username can be stored.
+     *
+     * @param username player username.
+     * @return {@code true} if the username is not longer than the results repository allows, {@code false} otherwise.
+     */
+    public boolean isValidUsername(String username) {
+        return username.getBytes(StandardCharsets.UTF_8).length <= maxUsernameBytes;
+    }
+
+    /**
+     * Disconnects the player with given username from the match and releases the player's username.
+     *
+     * @param match the match the player has joined.
+     * @param username player username.
+     */
+    public void leave(GameStateManager match, String username) {
+        match.disconnectPlayer(username);
+        matchmaker.release(username, match);
+
+        if (match.getConnectedPlayerCount() == 0) {
+            activeMatches.remove(match);
+        }
+    }
+
+    /**
+     * Creates a new match.
+     *
+     * @param settings the match settings.
+     * @return the new match.
+     */
+    GameStateManager createMatch(MatchSettings settings) {
+        GameStateManager match = new GameStateManager(settings.playerCount(), settings.maxDuration(),
+                resultsRepository);
+        logger.log(Level.FINE, "Created a match with seed " + match.getSeed());
+
+        activeMatches.add(match);
+        match.whenAllPlayersFinished().thenAccept(results -> {
+            activeMatches.remove(match);
+
+            // The disconnected players have released their usernames on leaving.
+            for (PlayerStatsEntry entry : results.stats()) {
+                matchmaker.release(entry.username(), match);
+            }
+        });
+
+        return match;
+    }
+
+    /**
+     * Returns the matchmaking queue that forms the matches.
+     *
+     * @return the matchmaking queue.
+     */
+    public Matchmaker getMatchmaker() {
+        return matchmaker;
+    }
+
+    /**
+     * Returns the amount of matches being played.
+     *
+     * @return the amount of matches being played.
+     */
+    public int getActiveMatchCount() {
+        return activeMatches.size();
+    }
+
+    /**
+     * Returns the top 10 (or less) Jigsaw game results.
+     *
+     * @return the top 10 (or less) Jigsaw game results.
+     */
+    public List<PlayerStatsEntry> getTopRecords() {
+        try {
+            return resultsRepository.getTopRecords();
+        } catch (SQLException ex) {
+            logger.log(Level.SEVERE, "Could not load top records", ex);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Returns a page of the Jigsaw game results in the leaderboard order.
+     *
+     * @param after the cursor of the page, or {@code null} for the first page.
+     * @param limit the max amount of results in the page.
+     * @return the page of the game results, or an empty last page if the results could not be loaded.
+     */
+    public LeaderboardPage getPage(LeaderboardCursor after, int limit) {
+        try {
+            return resultsRepository.getPage(after, limit);
+        } catch (SQLException ex) {
+            logger.log(Level.SEVERE, "Could not load a leaderboard page", ex);
+            return new LeaderboardPage(new ArrayList<>(), null);
+        }
+    }
+
+    /**
+     * Returns the rank of the best Jigsaw game result of the player with the given username.
+     *
+     * @param username player username.
+     * @return the rank of the player's best result, or 0 if the player has no results
+     *   or the rank could not be loaded.
+     */
+    public long getPlayerRank(String username) {
+        try {
+            PlayerStatsEntry best = resultsRepository.getBestRecord(username);
+            return best == null ? 0 : resultsRepository.getRank(best.score(), best.time());
+        } catch (SQLException ex) {
+            logger.log(Level.SEVERE, "Could not load the rank of player " + username, ex);
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the rank of a Jigsaw game result with the given score and duration.
+     *
+     * @param score the score of the result.
+     * @param time the game duration of the result in the "HH:MM:SS" format.
+     * @return the rank of the result, or 0 if the rank could not be loaded.
+     */
+    public long getRank(int score, String time) {
+        try {
+            return resultsRepository.getRank(score, time);
+        } catch (SQLException ex) {
+            logger.log(Level.SEVERE, "Could not load the rank of a result", ex);
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the aggregate statistics of the Jigsaw game results of the player with the given username.
+     *
+     * @param username player username.
+     * @return the player profile, or {@code null} if the player has no results or the profile could not be loaded.
+     */
+    public PlayerProfile getProfile(String username) {
+        try {
+            return resultsRepository.getProfile(username);
+        } catch (SQLException ex) {
+            logger.log(Level.SEVERE, "Could not load the profile of player " + username, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the settings of the matches joined without specifying the settings.
+     *
+     * @return the default match settings.
+     */
+    public MatchSettings getDefaultSettings() {
+        return defaultSettings;
+    }
+
+    /**
+     * Closes the database connection for the repository.
+     */
+    @Override
+    public void close() {
+        resultsRepository.close();
+    }
+}
@@ -0,0 +1,44 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.game;
+
+/**
+ * The configuration of a Jigsaw match.
+ *
+ * @param playerCount the amount of players in the match.
+ * @param maxDuration the max allowed duration of the match in seconds.
+ */
+public record MatchSettings(int playerCount, int maxDuration) {
+    // The min amount of players in a match.
+    public static final int MIN_PLAYER_COUNT = 1;
+    // The max amount of players in a match.
+    public static final int MAX_PLAYER_COUNT = 2;
+    // The min allowed duration of a match in seconds.
+    public static final int MIN_DURATION = 20;
+    // The max allowed duration of a match in seconds.
+    public static final int MAX_DURATION = 300;
+
+    /**
+     * Initializes a new {@link MatchSettings} instance.
+     *
+     * @param playerCount the amount of players in the match.
+     * @param maxDuration the max allowed duration of the match in seconds.
+     * @throws IllegalArgumentException if the settings are out of the allowed bounds.
+     */
+    public MatchSettings {
+        if (!isValid(playerCount, maxDuration)) {
+            throw new IllegalArgumentException("Invalid match settings: " + playerCount + " players, "
+                    + maxDuration + " seconds");
+        }
+    }
+
+    /**
+     * Checks if the given settings are within the allowed bounds.
+     *
+     * @param playerCount the amount of players in the match.
+     * @param maxDuration the max allowed duration of the match in seconds.
+     * @return flag that denotes if the settings are within the allowed bounds.
+     */
+    public static boolean isValid(int playerCount, int maxDuration) {
+        return playerCount >= MIN_PLAYER_COUNT && playerCount <= MAX_PLAYER_COUNT
+                && maxDuration >= MIN_DURATION && maxDuration <= MAX_DURATION;
+    }
+}
@@ -0,0 +1,304 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.game;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The matchmaking queue of the Jigsaw server.
+ * <p>
+ * A registering player gets a {@link Ticket} and waits in the bucket of the players that have requested
+ *   the same match settings. Once a bucket holds enough players for a match, they are put into
+ *   a new match together, so a full match is never offered to a player and nobody is rejected
+ *   for the lack of slots.
+ * <p>
+ * The tickets are first put into a lock-free incoming queue and are paired in batches
+ *   by a matchmaking pass. The pass is run by the registering thread that manages to take the lock,
+ *   the other registering threads leave their tickets to it and return at once,
+ *   so a burst of registrations is paired by a few passes without a dedicated thread.
+ *   The tickets are completed after the lock is released, since the sessions waiting for them
+ *   write to their connections.
+ * <p>
+ * A username is reserved by the player's ticket from the registration until the player leaves the match
+ *   or the match is finished, so no other client can register with the name of a player being in a match.
+ *   The match registry releases the username, see {@link #release(String, GameStateManager)}.
+ */
+public class Matchmaker {
+    // The amount of the recent times to match kept for the statistics.
+    private static final int WAIT_SAMPLE_COUNT = 1024;
+    // The registry that creates the matches.
+    private final MatchRegistry matchRegistry;
+    // The tickets not yet seen by a matchmaking pass.
+    private final Queue<Ticket> incomingTickets = new ConcurrentLinkedQueue<>();
+    // The tickets of the players waiting for a match or playing one, by the username.
+    private final Map<String, Ticket> reservedUsernames = new ConcurrentHashMap<>();
+    // Lock that guards the buckets and the statistics, taken by the matchmaking pass.
+    private final ReentrantLock passLock = new ReentrantLock();
+    // The tickets waiting for a match, by the requested match settings (guarded by the pass lock).
+    private final Map<MatchSettings, Queue<Ticket>> buckets = new HashMap<>();
+    // The recent times to match in nanoseconds, used as a ring buffer (guarded by the pass lock).
+    private final long[] waitSamples = new long[WAIT_SAMPLE_COUNT];
+    // The amount of players put into matches (guarded by the pass lock).
+    private long matchedPlayers = 0;
+
+    /**
+     * Initializes a new {@link Matchmaker} instance.
+     *
+     * @param matchRegistry the registry that creates the matches.
+     */
+    Matchmaker(MatchRegistry matchRegistry) {
+        this.matchRegistry = matchRegistry;
+    }
+
+    /**
+     * Puts the player with given username into the matchmaking queue.
+     *
+     * @param username player username.
+     * @param settings the requested match settings.
+     * @return the player's ticket, or {@code null} if a player with the same username
+     *   is waiting for a match or playing one.
+     */
+    public Ticket enqueue(String username, MatchSettings settings) {
+        Ticket ticket = new Ticket(username, settings, System.nanoTime(), new CompletableFuture<>());
+
+        if (reservedUsernames.putIfAbsent(username, ticket) != null) {
+            return null;
+        }
+
+        incomingTickets.add(ticket);
+        pair();
+
+        return ticket;
+    }
+
+    /**
+     * Takes the player out of the matchmaking queue,
+     *   or disconnects the player from the match if the ticket has already been matched.
+     *
+     * @param ticket the player's ticket.
+     */
+    public void cancel(Ticket ticket) {
+        boolean removed;
+
+        passLock.lock();
+        try {
+            Queue<Ticket> bucket = buckets.get(ticket.settings());
+            removed = incomingTickets.remove(ticket) || bucket != null && bucket.remove(ticket);
+        } finally {
+            passLock.unlock();
+        }
+
+        // A registration that has run into the lock has left its ticket to this thread.
+        pair();
+
+        if (removed) {
+            reservedUsernames.remove(ticket.username(), ticket);
+            ticket.match().complete(null);
+        } else {
+            // The match may still be about to be handed to the ticket by the pass that has formed it.
+            ticket.match().thenAccept(match -> {
+                if (match != null) {
+                    matchRegistry.leave(match, ticket.username());
+                }
+            });
+        }
+    }
+
+    /**
+     * Releases the username of the player that has left the given match or finished it.
+     * <p>
+     * The username stays reserved if it has already been taken by another ticket.
+     *
+     * @param username player username.
+     * @param match the match the player has played.
+     */
+    void release(String username, GameStateManager match) {
+        reservedUsernames.computeIfPresent(username,
+                (name, ticket) -> ticket.match().getNow(null) == match ? null : ticket);
+    }
+
+    /**
+     * Runs the matchmaking passes until the incoming tickets are taken by a pass.
+     * <p>
+     * A thread that does not get the lock leaves its ticket to the thread holding it,
+     *   which checks the incoming queue again after releasing the lock. Every thread that takes
+     *   the pass lock calls this method after releasing it, otherwise a ticket left to it could wait forever.
+     */
+    private void pair() {
+        while (!incomingTickets.isEmpty() && passLock.tryLock()) {
+            List<Ticket> matchedTickets = new ArrayList<>();
+
+            try {
+                runPass(matchedTickets);
+            } finally {
+                passLock.unlock();
+            }
+
+            for (Ticket ticket : matchedTickets) {
+                ticket.match().complete(ticket.assignedMatch);
+            }
+        }
+    }
+
+    /**
+     * Moves the incoming tickets to their buckets and forms the matches from the full buckets.
+     * <p>
+     * Called under the pass lock.
+     *
+     * @param matchedTickets the list the matched tickets are added to.
+     */
+    private void runPass(List<Ticket> matchedTickets) {
+        Set<MatchSettings> touchedBuckets = new HashSet<>();
+        Ticket incoming;
+
+        while ((incoming = incomingTickets.poll()) != null) {
+            buckets.computeIfAbsent(incoming.settings(), settings -> new ArrayDeque<>()).add(incoming);
+            touchedBuckets.add(incoming.settings());
+        }
+
+        long now = System.nanoTime();
+
+        for (MatchSettings settings : touchedBuckets) {
+            Queue<Ticket> bucket = buckets.get(settings);
+
+            while (bucket.size() >= settings.playerCount()) {
+                GameStateManager match = matchRegistry.createMatch(settings);
+
+                for (int i = 0; i < settings.playerCount(); i++) {
+                    Ticket ticket = bucket.poll();
+
+                    // The reserved usernames are unique, so the new match accepts every player.
+                    match.connectPlayer(ticket.username());
+                    ticket.assignedMatch = match;
+                    matchedTickets.add(ticket);
+
+                    waitSamples[(int) (matchedPlayers++ % WAIT_SAMPLE_COUNT)] = now - ticket.enqueuedAt();
+                }
+            }
+
+            if (bucket.isEmpty()) {
+                buckets.remove(settings);
+            }
+        }
+    }
+
+    /**
+     * Returns the snapshot of the matchmaking statistics.
+     *
+     * @return the snapshot of the matchmaking statistics.
+     */
+    public MatchmakerStats getStats() {
+        long[] samples;
+        long matched;
+        int waiting;
+
+        passLock.lock();
+        try {
+            matched = matchedPlayers;
+            waiting = incomingTickets.size();
+            for (Queue<Ticket> bucket : buckets.values()) {
+                waiting += bucket.size();
+            }
+            samples = Arrays.copyOf(waitSamples, (int) Math.min(matched, WAIT_SAMPLE_COUNT));
+        } finally {
+            passLock.unlock();
+        }
+
+        // A registration that has run into the lock has left its ticket to this thread.
+        pair();
+
+        Arrays.sort(samples);
+
+        return new MatchmakerStats(matched, waiting,
+                percentileMillis(samples, 0.5), percentileMillis(samples, 0.99), percentileMillis(samples, 1));
+    }
+
+    /**
+     * Returns the given percentile of the sorted times in milliseconds.
+     *
+     * @param sortedNanos the sorted times in nanoseconds.
+     * @param percentile the percentile in the range from 0 to 1.
+     * @return the percentile in milliseconds, or 0 if there are no times.
+     */
+    private static double percentileMillis(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(index, 0)] / 1e6;
+    }
+
+    /**
+     * The ticket of a player waiting for a match.
+     */
+    public static final class Ticket {
+        // The player username.
+        private final String username;
+        // The requested match settings.
+        private final MatchSettings settings;
+        // The time the player has joined the queue at, in nanoseconds.
+        private final long enqueuedAt;
+        // The future completed with the match, or with null if the ticket has been cancelled.
+        private final CompletableFuture<GameStateManager> match;
+        // The match formed for the ticket, handed to the future after the pass (guarded by the pass lock).
+        private GameStateManager assignedMatch;
+
+        private Ticket(String username,
+                       MatchSettings settings,
+                       long enqueuedAt,
+                       CompletableFuture<GameStateManager> match) {
+            this.username = username;
+            this.settings = settings;
+            this.enqueuedAt = enqueuedAt;
+            this.match = match;
+        }
+
+        /**
+         * Returns the player username.
+         *
+         * @return the player username.
+         */
+        public String username() {
+            return username;
+        }
+
+        /**
+         * Returns the requested match settings.
+         *
+         * @return the requested match settings.
+         */
+        public MatchSettings settings() {
+            return settings;
+        }
+
+        /**
+         * Returns the time the player has joined the queue at, in nanoseconds.
+         *
+         * @return the time the player has joined the queue at.
+         */
+        long enqueuedAt() {
+            return enqueuedAt;
+        }
+
+        /**
+         * Returns the future completed with the match all players of which have connected,
+         *   or with {@code null} if the ticket has been cancelled.
+         *
+         * @return the future completed with the match.
+         */
+        public CompletableFuture<GameStateManager> match() {
+            return match;
+        }
+    }
+}
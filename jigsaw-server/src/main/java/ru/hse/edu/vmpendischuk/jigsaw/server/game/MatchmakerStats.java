@@ -0,0 +1,17 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.game;
+
+/**
+ * The snapshot of the matchmaking statistics.
+ *
+ * @param matchedPlayers the amount of players put into matches since the server has started.
+ * @param waitingPlayers the amount of players waiting for a match.
+ * @param medianWaitMillis the median time to match of the recently matched players in milliseconds.
+ * @param p99WaitMillis the 99th percentile of the time to match of the recently matched players in milliseconds.
+ * @param maxWaitMillis the max time to match of the recently matched players in milliseconds.
+ */
+public record MatchmakerStats(long matchedPlayers,
+                              int waitingPlayers,
+                              double medianWaitMillis,
+                              double p99WaitMillis,
+                              double maxWaitMillis) {
+}
@@ -0,0 +1,42 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.game;
+
+import ru.hse.edu.vmpendischuk.jigsaw.util.Shape;
+
+/**
+ * The endless sequence of the shapes of a Jigsaw match, derived from the match seed.
+ * <p>
+ * The shape at any index is computed on demand by the SplitMix64 function
+ *   (the generator behind {@link java.util.SplittableRandom}), so the sequence is not stored,
+ *   every player reading it from the start gets the same shapes, and a match can be reproduced from its seed.
+ *
+ * @param seed the match seed.
+ */
+public record ShapeSequence(long seed) {
+    // The increment of the SplitMix64 state between the consecutive values.
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /**
+     * Returns the shape at the given index of the sequence.
+     *
+     * @param index the index of the shape.
+     * @return the shape at the given index.
+     */
+    public Shape shapeAt(long index) {
+        long value = mix64(seed + (index + 1) * GOLDEN_GAMMA);
+        int modelNumber = (int) ((value >>> 1) % Shape.COUNT) + 1;
+
+        return Shape.of(modelNumber);
+    }
+
+    /**
+     * Scrambles the bits of the given value (the SplitMix64 output function).
+     *
+     * @param value the value.
+     * @return the scrambled value.
+     */
+    private static long mix64(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
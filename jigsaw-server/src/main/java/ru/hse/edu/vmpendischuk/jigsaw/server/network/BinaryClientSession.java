@@ -0,0 +1,304 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.network;
+
+import ru.hse.edu.vmpendischuk.jigsaw.server.game.GameStateManager;
+import ru.hse.edu.vmpendischuk.jigsaw.server.game.MatchRegistry;
+import ru.hse.edu.vmpendischuk.jigsaw.server.game.MatchSettings;
+import ru.hse.edu.vmpendischuk.jigsaw.server.game.Matchmaker;
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardCursor;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStats;
+import ru.hse.edu.vmpendischuk.jigsaw.util.protocol.Codec;
+import ru.hse.edu.vmpendischuk.jigsaw.util.protocol.FramePayload;
+import ru.hse.edu.vmpendischuk.jigsaw.util.protocol.FrameReader;
+import ru.hse.edu.vmpendischuk.jigsaw.util.protocol.FrameWriter;
+import ru.hse.edu.vmpendischuk.jigsaw.util.protocol.Opcode;
+import ru.hse.edu.vmpendischuk.jigsaw.util.protocol.ProtocolException;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The {@link ClientSession} of a client that uses the binary framed protocol
+ *   (see {@link ru.hse.edu.vmpendischuk.jigsaw.util.protocol}).
+ */
+class BinaryClientSession implements ClientSession {
+    // Logger used to log messages.
+    private static final Logger logger = Logger.getLogger(BinaryClientSession.class.getName());
+    // The registry of the matches played on the server.
+    private final MatchRegistry matchRegistry;
+    // Reader of the client's request frames.
+    private final FrameReader frameReader;
+    // Writer of the response frames.
+    private final FrameWriter frameWriter;
+    // Lock that orders the responses written by the session and by the game state signals.
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // The username of the player registered in this session.
+    private volatile String username = null;
+    // The player's matchmaking ticket.
+    private volatile Matchmaker.Ticket ticket = null;
+    // The match the player has been put into.
+    private volatile GameStateManager match = null;
+    // The settings of the match the player has joined, used to join the next match on restart.
+    private volatile MatchSettings settings = null;
+
+    /**
+     * Initializes a new {@link BinaryClientSession} instance on the connection
+     *   which handshake has already been completed.
+     *
+     * @param matchRegistry the registry of the matches played on the server.
+     * @param inputStream stream used to read the client's requests.
+     * @param outputStream stream used to write the responses to the client.
+     */
+    BinaryClientSession(MatchRegistry matchRegistry, InputStream inputStream, OutputStream outputStream) {
+        this.matchRegistry = matchRegistry;
+        frameReader = new FrameReader(inputStream);
+        frameWriter = new FrameWriter(outputStream);
+    }
+
+    /**
+     * Reads the next request frame from the client and serves it.
+     * <p>
+     * The requests that wait for the other players are answered by the thread that
+     *   completes the corresponding game state signal, so the client may get the responses
+     *   to its later requests first. The responses are matched to the requests by the correlation ID.
+     *
+     * @return flag that denotes if the session should keep serving the client.
+     * @throws IOException if the connection with the client has failed or the request is malformed.
+     */
+    @Override
+    public boolean handleNextRequest() throws IOException {
+        byte opcode = frameReader.readFrame();
+        int correlationId = frameReader.correlationId();
+        DataInput payload = frameReader.payload();
+
+        GameStateManager current = match;
+
+        switch (opcode) {
+            case Opcode.REGISTER -> {
+                username = payload.readUTF();
+                return join(correlationId, matchRegistry.getDefaultSettings());
+            }
+            case Opcode.JOIN -> {
+                username = payload.readUTF();
+                int playerCount = payload.readUnsignedByte();
+                int maxDuration = payload.readUnsignedShort();
+
+                if (!MatchSettings.isValid(playerCount, maxDuration)) {
+                    respond(correlationId, Opcode.REJECTED,
+                            output -> output.writeByte(Opcode.REASON_INVALID_SETTINGS));
+                    return false;
+                }
+
+                return join(correlationId, new MatchSettings(playerCount, maxDuration));
+            }
+            case Opcode.STATUS -> respond(correlationId, Opcode.CONNECTION_STATUS,
+                    output -> output.writeBoolean(current == null || !current.allPlayersConnected()));
+            case Opcode.GET_SHAPE -> respond(correlationId, Opcode.SHAPE, output -> Codec.writeShape(output,
+                    current == null ? null : current.getShapeForPlayer(username)));
+            case Opcode.FINISH -> {
+                PlayerStats stats = Codec.readStats(payload);
+
+                if (current == null || !current.finishForPlayer(username, stats)) {
+                    respond(correlationId, Opcode.REJECTED,
+                            output -> output.writeByte(Opcode.REASON_GAME_ALREADY_FINISHED));
+                    return false;
+                }
+
+                current.whenAllPlayersFinished().thenAccept(results ->
+                        respondLater(correlationId, Opcode.RESULTS, output -> Codec.writeResults(output, results)));
+            }
+            case Opcode.DISCONNECT -> {
+                if (leave()) {
+                    logger.log(Level.INFO, "Player " + username + " disconnected");
+                }
+
+                return false;
+            }
+            // The players of the finished match join the next open match with the same settings.
+            case Opcode.RESTART -> {
+                // Leaving the previous match first, it may not have released the username yet.
+                leave();
+                return join(correlationId, settings);
+            }
+            case Opcode.TOP -> respond(correlationId, Opcode.TOP_RECORDS,
+                    output -> Codec.writeEntries(output, matchRegistry.getTopRecords()));
+            case Opcode.GET_SHAPES -> {
+                int count = payload.readUnsignedByte();
+
+                if (count > Opcode.MAX_SHAPE_BATCH) {
+                    throw new ProtocolException("Batch of " + count + " shapes exceeds the limit");
+                }
+
+                respond(correlationId, Opcode.SHAPES, output -> Codec.writeShapes(output,
+                        current == null ? List.of() : current.getShapesForPlayer(username, count)));
+            }
+            case Opcode.LEADERBOARD_PAGE -> {
+                LeaderboardCursor after = Codec.readCursor(payload);
+                int limit = payload.readUnsignedByte();
+
+                if (limit == 0 || limit > Opcode.MAX_PAGE_SIZE) {
+                    throw new ProtocolException("Page of " + limit + " results is out of the limits");
+                }
+
+                respond(correlationId, Opcode.LEADERBOARD_RECORDS,
+                        output -> Codec.writePage(output, matchRegistry.getPage(after, limit)));
+            }
+            case Opcode.PLAYER_RANK -> {
+                String player = payload.readUTF();
+                respond(correlationId, Opcode.RANK, output -> output.writeLong(matchRegistry.getPlayerRank(player)));
+            }
+            case Opcode.RESULT_RANK -> {
+                PlayerStats result = Codec.readStats(payload);
+                respond(correlationId, Opcode.RANK,
+                        output -> output.writeLong(matchRegistry.getRank(result.score(), result.time())));
+            }
+            case Opcode.PLAYER_PROFILE -> {
+                String player = payload.readUTF();
+                respond(correlationId, Opcode.PROFILE,
+                        output -> Codec.writeProfile(output, matchRegistry.getProfile(player)));
+            }
+            default -> throw new ProtocolException("Unknown request opcode " + opcode);
+        }
+
+        return true;
+    }
+
+    /**
+     * The requests are sent as the length-prefixed frames.
+     *
+     * @return {@code true}.
+     */
+    @Override
+    public boolean isFramed() {
+        return true;
+    }
+
+    /**
+     * The frame reader holds no bytes of the next request, since it reads the whole frames only.
+     *
+     * @return {@code false}.
+     */
+    @Override
+    public boolean hasBufferedInput() {
+        return false;
+    }
+
+    /**
+     * Disconnects the session's player if the client has closed the connection
+     *   without sending a DISCONNECT request.
+     */
+    @Override
+    public void onConnectionLost() {
+        leave();
+    }
+
+    /**
+     * Puts the session's player into the matchmaking queue and answers with READY once the player is put into a match.
+     *
+     * @param correlationId the correlation ID of the request.
+     * @param matchSettings the match settings.
+     * @return flag that denotes if the session should keep serving the client.
+     * @throws IOException if the connection with the client has failed.
+     */
+    private boolean join(int correlationId, MatchSettings matchSettings) throws IOException {
+        String player = username;
+        if (player != null && !matchRegistry.isValidUsername(player)) {
+            respond(correlationId, Opcode.REJECTED, output -> output.writeByte(Opcode.REASON_INVALID_USERNAME));
+            logger.log(Level.INFO, "Player with a too long username not connected");
+            return false;
+        }
+
+        Matchmaker.Ticket joined = player == null || matchSettings == null
+                ? null
+                : matchRegistry.getMatchmaker().enqueue(player, matchSettings);
+
+        if (joined == null) {
+            respond(correlationId, Opcode.REJECTED, output -> output.writeByte(Opcode.REASON_USERNAME_TAKEN));
+            logger.log(Level.INFO, "Player " + player + " not connected");
+            return false;
+        }
+
+        ticket = joined;
+        settings = matchSettings;
+
+        // The match is formed with all of its players connected, so the player can start at once.
+        joined.match().thenAccept(assigned -> {
+            if (assigned != null) {
+                match = assigned;
+                logger.log(Level.INFO, "Player " + player + " connected");
+                respondLater(correlationId, Opcode.READY, readyPayload(assigned, player));
+            }
+        });
+
+        return true;
+    }
+
+    /**
+     * Takes the session's player out of the matchmaking queue or disconnects the player from the match.
+     *
+     * @return flag that denotes if the player has joined the matchmaking queue.
+     */
+    private boolean leave() {
+        Matchmaker.Ticket current = ticket;
+
+        if (current == null) {
+            return false;
+        }
+
+        matchRegistry.getMatchmaker().cancel(current);
+        return true;
+    }
+
+    /**
+     * Returns the payload of the READY response for the given player.
+     *
+     * @param joined the match the player has joined.
+     * @param player the player's username.
+     * @return the payload of the READY response.
+     */
+    private static FramePayload readyPayload(GameStateManager joined, String player) {
+        return output -> {
+            output.writeUTF(joined.getAnotherPlayer(player));
+            output.writeInt(joined.getMaxDuration());
+        };
+    }
+
+    /**
+     * Writes a response frame to the client.
+     *
+     * @param correlationId the correlation ID of the request.
+     * @param opcode the response opcode.
+     * @param payload the action that writes the response payload.
+     * @throws IOException if the connection with the client has failed.
+     */
+    private void respond(int correlationId, byte opcode, FramePayload payload) throws IOException {
+        writeLock.lock();
+        try {
+            frameWriter.write(opcode, correlationId, payload);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Writes a response frame to the client from the thread that has completed a game state signal.
+     * <p>
+     * A failed connection is only logged, the session's own thread handles it on the next read.
+     *
+     * @param correlationId the correlation ID of the request.
+     * @param opcode the response opcode.
+     * @param payload the action that writes the response payload.
+     */
+    private void respondLater(int correlationId, byte opcode, FramePayload payload) {
+        try {
+            respond(correlationId, opcode, payload);
+        } catch (IOException ex) {
+            logger.log(Level.FINE, "Could not send the response to player " + username, ex);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.network;
+
+import ru.hse.edu.vmpendischuk.jigsaw.server.game.MatchRegistry;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The blocking Jigsaw server mode, in which every client connection is served
+ *   by a task that blocks on the connection streams.
+ * <p>
+ * The tasks are dispatched onto the given connection executor, which decides
+ *   what kind of thread serves each client (see {@link ConnectionExecutors}).
+ */
+public class BlockingServer implements Closeable {
+    // Logger used to log messages.
+    private static final Logger logger = Logger.getLogger(BlockingServer.class.getName());
+    // The registry of the matches played on the server.
+    private final MatchRegistry matchRegistry;
+    // The server socket used to accept the clients.
+    private final ServerSocket serverSocket;
+    // The executor used to serve the accepted clients.
+    private final Executor connectionExecutor;
+
+    /**
+     * Initializes a new {@link BlockingServer} instance and binds it to the given port.
+     *
+     * @param port the port on which the server will serve the clients.
+     * @param connectionExecutor the executor used to serve the accepted clients.
+     * @param matchRegistry the registry of the matches played on the server.
+     * @throws IOException if the server socket could not be opened.
+     */
+    public BlockingServer(int port, Executor connectionExecutor, MatchRegistry matchRegistry) throws IOException {
+        this.matchRegistry = matchRegistry;
+        this.connectionExecutor = connectionExecutor;
+        serverSocket = new ServerSocket(port);
+    }
+
+    /**
+     * Returns the port the server is bound to.
+     *
+     * @return the port the server is bound to.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts the client connections and serves them until the server is closed.
+     */
+    public void acceptClients() {
+        while (true) {
+            try {
+                // Serving client.
+                Socket socket = serverSocket.accept();
+                connectionExecutor.execute(() -> serveClient(socket));
+            } catch (RejectedExecutionException ex) {
+                logger.log(Level.WARNING, "Connection executor rejected the client", ex);
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) {
+                    break;
+                }
+                logger.log(Level.WARNING, e, () -> "Cannot serve client");
+            }
+        }
+    }
+
+    /**
+     * Serves the client on given socket.
+     *
+     * @param socket the accepted client connection socket.
+     */
+    private void serveClient(Socket socket) {
+        ClientSession session = null;
+
+        try (socket;
+             InputStream inputStream = new BufferedInputStream(socket.getInputStream());
+             OutputStream outputStream = socket.getOutputStream()) {
+            ClientSession.greet(outputStream);
+            session = ClientSession.open(matchRegistry, inputStream, outputStream);
+
+            while (session.handleNextRequest()) {
+                // Serving the requests until the client disconnects.
+            }
+        } catch (SocketException | EOFException ex) {
+            // If the client has closed the socket connection - disconnect the player.
+            if (session != null) {
+                session.onConnectionLost();
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            logger.log(Level.WARNING, "Could not process request", e);
+        }
+    }
+
+    /**
+     * Stops accepting the clients and shuts the connection executor down if it is an executor service.
+     *
+     * @throws IOException if the server socket could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+
+        if (connectionExecutor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+}
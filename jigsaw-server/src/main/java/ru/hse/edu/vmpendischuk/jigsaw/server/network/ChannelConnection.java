@@ -0,0 +1,519 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.network;
+
+import ru.hse.edu.vmpendischuk.jigsaw.util.protocol.FrameWriter;
+import ru.hse.edu.vmpendischuk.jigsaw.util.protocol.Handshake;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A non-blocking client connection served by the {@link SelectorServer}.
+ * <p>
+ * The selector thread moves the received bytes into the inbound queue and sends the
+ *   queued outbound bytes whenever the channel is writable. The I/O worker threads see
+ *   the connection as a pair of ordinary streams, but the connection is only passed to a worker
+ *   once the whole next request has been received, which is known from the length prefix of
+ *   the binary protocol frames, so a slow client never holds a worker. The serialized protocol
+ *   requests are not length-prefixed, so a worker waits for the rest of such a request
+ *   for at most {@link #READ_TIMEOUT_MILLIS}.
+ * <p>
+ * Writing never blocks: the bytes are queued and sent as far as the channel accepts them,
+ *   and the requests of a client that does not keep up with the responses are not served
+ *   until the queued responses are sent.
+ */
+class ChannelConnection {
+    // The max amount of received bytes that may wait for a worker before the reads are paused.
+    static final int MAX_PENDING_INPUT = 64 * 1024;
+    // The max amount of bytes that may wait to be sent before the client's requests are held back.
+    static final int MAX_PENDING_OUTPUT = 64 * 1024;
+    // The max time a worker waits for the rest of a serialized protocol request, in milliseconds.
+    static final long READ_TIMEOUT_MILLIS = 10_000;
+
+    // The client channel.
+    private final SocketChannel channel;
+    // The selection key of the channel.
+    private final SelectionKey key;
+    // The action that passes the connection to an I/O worker thread.
+    private final Consumer<ChannelConnection> scheduler;
+    // Lock that guards the inbound and outbound queues.
+    private final ReentrantLock lock = new ReentrantLock();
+    // Condition signalled when new bytes are received or the connection is closed.
+    private final Condition inputReceived = lock.newCondition();
+    // Queue of received byte chunks that have not yet been read by a worker.
+    private final Deque<ByteBuffer> inbound = new ArrayDeque<>();
+    // Queue of byte chunks that have not yet been sent.
+    private final Deque<ByteBuffer> outbound = new ArrayDeque<>();
+    // Flag that denotes if a worker has been scheduled to process the connection.
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    // Stream used by the workers to read the received bytes.
+    private final InputStream inputStream = new ConnectionInputStream();
+    // Stream used by the workers to send bytes.
+    private final OutputStream outputStream = new ConnectionOutputStream();
+    // The amount of received bytes in the inbound queue.
+    private int pendingInput = 0;
+    // The amount of bytes in the outbound queue.
+    private int pendingOutput = 0;
+    // Flag that denotes if the reads have been paused until the worker catches up.
+    private boolean readsPaused = false;
+    // Flag that denotes if the session has already read the bytes of the next request from the connection.
+    private boolean bufferedInput = false;
+    // Flag that denotes if the client has closed its side of the connection.
+    private boolean endOfStream = false;
+    // Flag that denotes if the connection has been closed.
+    private boolean closed = false;
+    // The client session bound to the connection, opened when the client hello is received.
+    volatile ClientSession session;
+
+    /**
+     * Initializes a new {@link ChannelConnection} instance.
+     *
+     * @param channel the client channel.
+     * @param key the selection key of the channel.
+     * @param scheduler the action that passes the connection to an I/O worker thread.
+     */
+    ChannelConnection(SocketChannel channel, SelectionKey key, Consumer<ChannelConnection> scheduler) {
+        this.channel = channel;
+        this.key = key;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Returns the stream used by the workers to read the received bytes.
+     *
+     * @return the stream used by the workers to read the received bytes.
+     */
+    InputStream getInputStream() {
+        return inputStream;
+    }
+
+    /**
+     * Returns the stream used by the workers to send bytes.
+     *
+     * @return the stream used by the workers to send bytes.
+     */
+    OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    /**
+     * Reads the bytes available in the channel into the inbound queue
+     *   and schedules a worker if the whole next request has been received.
+     * <p>
+     * Called by the selector thread when the channel is readable.
+     *
+     * @param buffer the buffer shared by the selector thread for reading.
+     */
+    void readFromChannel(ByteBuffer buffer) {
+        int read;
+        boolean received = false;
+        lock.lock();
+        try {
+            try {
+                while ((read = channel.read(buffer.clear())) > 0) {
+                    inbound.addLast(ByteBuffer.wrap(Arrays.copyOf(buffer.array(), read)));
+                    pendingInput += read;
+                    received = true;
+                }
+            } catch (IOException ex) {
+                // A reset connection is handled by the worker the same way as a closed one.
+                read = -1;
+            }
+
+            if (read < 0) {
+                endOfStream = true;
+                updateInterest(SelectionKey.OP_READ, false);
+                received = true;
+            } else if (pendingInput >= MAX_PENDING_INPUT && isRequestReceived()) {
+                // Pausing the reads until the worker catches up,
+                //   a partially received frame is read on, as the worker can not take it yet.
+                readsPaused = true;
+                updateInterest(SelectionKey.OP_READ, false);
+            }
+
+            if (received) {
+                inputReceived.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (received) {
+            scheduleIfReady();
+        }
+    }
+
+    /**
+     * Sends the bytes from the outbound queue until the channel stops accepting them.
+     * <p>
+     * Called by the selector thread when the channel is writable and by the writers on flush.
+     *   Schedules a worker if the held back requests can be served again.
+     *
+     * @throws IOException if the channel could not be written.
+     */
+    void writeToChannel() throws IOException {
+        boolean resumed;
+        lock.lock();
+        try {
+            boolean outputFull = pendingOutput >= MAX_PENDING_OUTPUT;
+
+            while (!outbound.isEmpty()) {
+                ByteBuffer chunk = outbound.peekFirst();
+                pendingOutput -= channel.write(chunk);
+
+                if (chunk.hasRemaining()) {
+                    // The socket buffer is full, waiting for the selector to report the channel writable.
+                    updateInterest(SelectionKey.OP_WRITE, true);
+                    break;
+                }
+
+                outbound.pollFirst();
+            }
+
+            if (outbound.isEmpty()) {
+                updateInterest(SelectionKey.OP_WRITE, false);
+            }
+
+            resumed = outputFull && pendingOutput < MAX_PENDING_OUTPUT;
+        } finally {
+            lock.unlock();
+        }
+
+        if (resumed) {
+            scheduleIfReady();
+        }
+    }
+
+    /**
+     * Checks if a worker can serve the next request without waiting for the client.
+     *
+     * @return flag that denotes if the next request can be served.
+     */
+    boolean hasNextRequest() {
+        lock.lock();
+        try {
+            return isRequestReady();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remembers if the session has already read the bytes of the next request from the connection,
+     *   since these bytes are no longer seen in the inbound queue.
+     * <p>
+     * Called by the worker after serving a request.
+     *
+     * @param buffered flag that denotes if the session holds the bytes of the next request.
+     */
+    void setBufferedInput(boolean buffered) {
+        lock.lock();
+        try {
+            bufferedInput = buffered;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks the connection as no longer processed by a worker
+     *   and schedules a worker again if the next request has been received in the meantime.
+     */
+    void release() {
+        scheduled.set(false);
+        scheduleIfReady();
+    }
+
+    /**
+     * Checks if the connection has been closed.
+     *
+     * @return flag that denotes if the connection has been closed.
+     */
+    boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the connection and wakes up the workers waiting on it.
+     */
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            inbound.clear();
+            outbound.clear();
+            pendingInput = 0;
+            pendingOutput = 0;
+            inputReceived.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // The channel is being discarded anyway.
+        }
+    }
+
+    /**
+     * Passes the connection to a worker if the next request can be served and no worker has it yet.
+     */
+    private void scheduleIfReady() {
+        if (hasNextRequest() && scheduled.compareAndSet(false, true)) {
+            scheduler.accept(this);
+        }
+    }
+
+    /**
+     * Checks if the next request can be served without waiting: the whole request has been received
+     *   or the client has closed the connection, and the client keeps up with the responses.
+     * <p>
+     * Called under the lock.
+     *
+     * @return flag that denotes if the next request can be served.
+     */
+    private boolean isRequestReady() {
+        if (closed) {
+            return false;
+        }
+
+        if (endOfStream) {
+            return true;
+        }
+
+        return pendingOutput < MAX_PENDING_OUTPUT && isRequestReceived();
+    }
+
+    /**
+     * Checks if the whole next request has been received.
+     * <p>
+     * Called under the lock.
+     *
+     * @return flag that denotes if the whole next request has been received.
+     */
+    private boolean isRequestReceived() {
+        if (bufferedInput) {
+            return true;
+        }
+
+        ClientSession current = session;
+
+        if (current == null) {
+            // The client hello is a stream header of four bytes or the magic number followed by the version.
+            return pendingInput >= Integer.BYTES && (peekInt() != Handshake.MAGIC || pendingInput > Integer.BYTES);
+        }
+
+        if (!current.isFramed()) {
+            return pendingInput > 0;
+        }
+
+        if (pendingInput < Integer.BYTES) {
+            return false;
+        }
+
+        // A malformed frame length is reported by the worker reading the frame.
+        int length = peekInt();
+        return length < 0 || length > FrameWriter.MAX_FRAME_LENGTH || pendingInput - Integer.BYTES >= length;
+    }
+
+    /**
+     * Returns the big-endian {@code int} at the start of the inbound queue without consuming it.
+     * <p>
+     * Called under the lock when at least four bytes have been received.
+     *
+     * @return the {@code int} at the start of the inbound queue.
+     */
+    private int peekInt() {
+        int value = 0;
+        int count = 0;
+
+        for (ByteBuffer chunk : inbound) {
+            for (int i = chunk.position(); i < chunk.limit() && count < Integer.BYTES; i++, count++) {
+                value = value << 8 | chunk.get(i) & 0xFF;
+            }
+
+            if (count == Integer.BYTES) {
+                break;
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Adds or removes the given operation from the set of operations the selector waits for.
+     *
+     * @param operation the selection key operation.
+     * @param enabled flag that denotes if the operation should be added or removed.
+     */
+    private void updateInterest(int operation, boolean enabled) {
+        if (!key.isValid()) {
+            return;
+        }
+
+        if (enabled) {
+            key.interestOpsOr(operation);
+            key.selector().wakeup();
+        } else {
+            key.interestOpsAnd(~operation);
+        }
+    }
+
+    /**
+     * Input stream that reads the bytes received by the selector thread.
+     */
+    private class ConnectionInputStream extends InputStream {
+        // Buffer used to read a single byte.
+        private final byte[] single = new byte[1];
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+
+            lock.lock();
+            try {
+                // Waiting for the rest of a partially received serialized protocol request.
+                long remaining = TimeUnit.MILLISECONDS.toNanos(READ_TIMEOUT_MILLIS);
+                while (inbound.isEmpty() && !endOfStream && !closed) {
+                    if (remaining <= 0) {
+                        throw new SocketTimeoutException("The rest of the request has not been received in time");
+                    }
+
+                    try {
+                        remaining = inputReceived.awaitNanos(remaining);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while waiting for the request");
+                    }
+                }
+
+                if (closed) {
+                    throw new IOException("Connection closed");
+                }
+
+                if (inbound.isEmpty()) {
+                    return -1;
+                }
+
+                int read = 0;
+                while (read < length && !inbound.isEmpty()) {
+                    ByteBuffer chunk = inbound.peekFirst();
+                    int count = Math.min(length - read, chunk.remaining());
+                    chunk.get(bytes, offset + read, count);
+                    read += count;
+
+                    if (!chunk.hasRemaining()) {
+                        inbound.pollFirst();
+                    }
+                }
+
+                pendingInput -= read;
+
+                if (readsPaused && pendingInput < MAX_PENDING_INPUT) {
+                    // Resuming the reads paused by the selector thread.
+                    readsPaused = false;
+                    updateInterest(SelectionKey.OP_READ, true);
+                }
+
+                return read;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int available() {
+            lock.lock();
+            try {
+                return pendingInput;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Output stream that collects the written bytes and queues them for sending on flush.
+     * <p>
+     * Flushing never blocks, so the stream is also written by the threads that complete
+     *   the game state signals of the connection's player.
+     */
+    private class ConnectionOutputStream extends OutputStream {
+        // Buffer of the bytes written since the last flush.
+        private byte[] buffer = new byte[512];
+        // The amount of bytes in the buffer.
+        private int count = 0;
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(1);
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, buffer, count, length);
+            count += length;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (count == 0) {
+                return;
+            }
+
+            lock.lock();
+            try {
+                if (closed) {
+                    throw new IOException("Connection closed");
+                }
+
+                outbound.addLast(ByteBuffer.wrap(Arrays.copyOf(buffer, count)));
+                pendingOutput += count;
+                count = 0;
+            } finally {
+                lock.unlock();
+            }
+
+            writeToChannel();
+        }
+
+        /**
+         * Grows the buffer so that it can take given amount of additional bytes.
+         *
+         * @param length the amount of additional bytes.
+         */
+        private void ensureCapacity(int length) {
+            if (count + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + length));
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.network;
+
+import ru.hse.edu.vmpendischuk.jigsaw.server.game.MatchRegistry;
+import ru.hse.edu.vmpendischuk.jigsaw.util.protocol.Handshake;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The Jigsaw server side of a single client connection.
+ * <p>
+ * Decodes the client's requests from the connection streams and passes them to the game logic.
+ *   The session does not own the connection, so it is used both by the blocking
+ *   (thread per client) and by the selector-based server modes.
+ */
+public interface ClientSession {
+    /**
+     * Sends the server greeting, which starts the handshake.
+     *
+     * @param outputStream stream used to write to the client.
+     * @throws IOException if the connection with the client has failed.
+     */
+    static void greet(OutputStream outputStream) throws IOException {
+        DataOutputStream output = new DataOutputStream(outputStream);
+        Handshake.writeServerGreeting(output);
+        output.flush();
+    }
+
+    /**
+     * Reads the client hello and opens the session for the protocol the client uses.
+     *
+     * @param matchRegistry the registry of the matches played on the server.
+     * @param inputStream stream used to read the client's requests.
+     * @param outputStream stream used to write the responses to the client.
+     * @return the client session.
+     * @throws IOException if the connection with the client has failed or the client hello is invalid.
+     */
+    static ClientSession open(MatchRegistry matchRegistry,
+                              InputStream inputStream,
+                              OutputStream outputStream) throws IOException {
+        // The data stream does not read ahead, so the session gets the stream right after the hello.
+        if (Handshake.readClientHello(new DataInputStream(inputStream))) {
+            return new BinaryClientSession(matchRegistry, inputStream, outputStream);
+        }
+
+        return new SerializedClientSession(matchRegistry, inputStream, outputStream);
+    }
+
+    /**
+     * Reads the next request from the client and serves it.
+     *
+     * @return flag that denotes if the session should keep serving the client.
+     * @throws IOException if the connection with the client has failed.
+     * @throws ClassNotFoundException if the request contains an object of an unknown class.
+     */
+    boolean handleNextRequest() throws IOException, ClassNotFoundException;
+
+    /**
+     * Checks if the session reads the length-prefixed frames, so that a whole request
+     *   can be recognized before it is decoded.
+     *
+     * @return flag that denotes if the session reads the length-prefixed frames.
+     */
+    boolean isFramed();
+
+    /**
+     * Checks if the session has already read the bytes of the next request from the connection.
+     *
+     * @return flag that denotes if the session has already read the bytes of the next request.
+     * @throws IOException if the connection with the client has failed.
+     */
+    boolean hasBufferedInput() throws IOException;
+
+    /**
+     * Disconnects the session's player if the client has closed the connection
+     *   without sending a DISCONNECT request.
+     */
+    void onConnectionLost();
+}
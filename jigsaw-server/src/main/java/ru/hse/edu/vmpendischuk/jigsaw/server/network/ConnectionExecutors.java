@@ -0,0 +1,59 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.network;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Factory of the executors used by the {@link BlockingServer} to serve the client connections.
+ */
+public final class ConnectionExecutors {
+    // Logger used to log messages.
+    private static final Logger logger = Logger.getLogger(ConnectionExecutors.class.getName());
+
+    private ConnectionExecutors() { }
+
+    /**
+     * Returns the executor that starts a new platform thread for every client.
+     *
+     * @return the executor that starts a new platform thread for every client.
+     */
+    public static Executor threadPerConnection() {
+        return runnable -> new Thread(runnable).start();
+    }
+
+    /**
+     * Checks if the running Java version supports virtual threads (Java 21+).
+     *
+     * @return flag that denotes if the virtual threads are supported.
+     */
+    public static boolean virtualThreadsSupported() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the executor that starts a new virtual thread for every client.
+     * <p>
+     * The server is compiled for Java 17, so the Java 21 factory method is looked up at runtime.
+     *   If the running Java version has no virtual threads, the clients are served
+     *   by a new platform thread each, as in the {@link #threadPerConnection()} mode.
+     *
+     * @return the executor that starts a new virtual thread for every client.
+     */
+    public static ExecutorService virtualThreadPerConnection() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException ex) {
+            logger.log(Level.WARNING, "Virtual threads require Java 21+, using a thread per client instead");
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.network;
+
+import ru.hse.edu.vmpendischuk.jigsaw.server.game.MatchRegistry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The non-blocking Jigsaw server mode built on a {@link Selector} event loop.
+ * <p>
+ * A single selector thread accepts the clients and moves bytes between the channels
+ *   and the connection buffers, while a small fixed pool of I/O worker threads decodes
+ *   the received requests and passes them to the game logic. A connection is passed to a worker
+ *   only once a whole request has been received, so neither an idle nor a slow player occupies
+ *   any thread, and the amount of connected players is not limited by the thread count.
+ */
+public class SelectorServer implements Closeable {
+    // Logger used to log messages.
+    private static final Logger logger = Logger.getLogger(SelectorServer.class.getName());
+    // The size of the buffer used by the selector thread to read from the channels.
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+    // The registry of the matches played on the server.
+    private final MatchRegistry matchRegistry;
+    // The channel used to accept the clients.
+    private final ServerSocketChannel serverChannel;
+    // The selector used to wait for the channel events.
+    private final Selector selector;
+    // The pool of the I/O worker threads.
+    private final ExecutorService workers;
+    // The buffer used by the selector thread to read from the channels.
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+    /**
+     * Initializes a new {@link SelectorServer} instance and binds it to the given port.
+     *
+     * @param port the port on which the server will serve the clients.
+     * @param workerCount the amount of I/O worker threads.
+     * @param matchRegistry the registry of the matches played on the server.
+     * @throws IOException if the server channel could not be opened.
+     */
+    public SelectorServer(int port, int workerCount, MatchRegistry matchRegistry) throws IOException {
+        this.matchRegistry = matchRegistry;
+
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "jigsaw-io-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        workers = Executors.newFixedThreadPool(workerCount, threadFactory);
+    }
+
+    /**
+     * Returns the port the server is bound to.
+     *
+     * @return the port the server is bound to.
+     * @throws IOException if the server channel address could not be read.
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Runs the selector event loop until the server is closed.
+     */
+    public void run() {
+        try {
+            loop();
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof ChannelConnection connection) {
+                    connection.close();
+                }
+            }
+
+            try {
+                selector.close();
+            } catch (IOException ex) {
+                logger.log(Level.WARNING, "Could not close the selector", ex);
+            }
+        }
+    }
+
+    /**
+     * Waits for the channel events and dispatches them until the server channel is closed.
+     */
+    private void loop() {
+        while (serverChannel.isOpen()) {
+            try {
+                selector.select();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    if (!key.isValid()) {
+                        continue;
+                    }
+
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+
+                    ChannelConnection connection = (ChannelConnection) key.attachment();
+
+                    if (key.isWritable()) {
+                        try {
+                            connection.writeToChannel();
+                        } catch (IOException ex) {
+                            connection.close();
+                            continue;
+                        }
+                    }
+
+                    if (key.isValid() && key.isReadable()) {
+                        connection.readFromChannel(readBuffer);
+                    }
+                }
+            } catch (ClosedSelectorException ex) {
+                break;
+            } catch (IOException ex) {
+                logger.log(Level.WARNING, "Selector event loop failure", ex);
+            }
+        }
+    }
+
+    /**
+     * Accepts a pending client connection.
+     *
+     * @throws IOException if the accepted channel could not be configured.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+
+        if (channel == null) {
+            return;
+        }
+
+        channel.configureBlocking(false);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        ChannelConnection connection = new ChannelConnection(channel, key, this::schedule);
+        key.attach(connection);
+
+        // The client waits for the server greeting before sending its hello.
+        ClientSession.greet(connection.getOutputStream());
+    }
+
+    /**
+     * Serves the requests received on the given connection until no whole request is left.
+     * <p>
+     * Executed by an I/O worker thread.
+     *
+     * @param connection the client connection.
+     */
+    private void process(ChannelConnection connection) {
+        try {
+            // The input may have already been served by the previous worker run.
+            if (connection.session == null && connection.hasNextRequest()) {
+                connection.session = ClientSession.open(matchRegistry,
+                        connection.getInputStream(), connection.getOutputStream());
+            }
+
+            while (connection.session != null && connection.hasNextRequest()) {
+                if (!connection.session.handleNextRequest()) {
+                    connection.close();
+                    return;
+                }
+
+                connection.setBufferedInput(connection.session.hasBufferedInput());
+            }
+        } catch (IOException ex) {
+            // If the client has closed the connection - disconnect the player.
+            if (connection.session != null) {
+                connection.session.onConnectionLost();
+            }
+            connection.close();
+        } catch (ClassNotFoundException ex) {
+            logger.log(Level.WARNING, "Could not process request", ex);
+            connection.close();
+        } finally {
+            connection.release();
+        }
+    }
+
+    /**
+     * Passes the given connection to an I/O worker thread.
+     *
+     * @param connection the client connection.
+     */
+    private void schedule(ChannelConnection connection) {
+        try {
+            workers.execute(() -> process(connection));
+        } catch (RejectedExecutionException ex) {
+            // The server is shutting down.
+            connection.close();
+        }
+    }
+
+    /**
+     * Stops accepting the clients and makes the event loop close all connections.
+     *
+     * @throws IOException if the server channel could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        serverChannel.close();
+        selector.wakeup();
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,317 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.network;
+
+import ru.hse.edu.vmpendischuk.jigsaw.server.game.GameStateManager;
+import ru.hse.edu.vmpendischuk.jigsaw.server.game.MatchRegistry;
+import ru.hse.edu.vmpendischuk.jigsaw.server.game.Matchmaker;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStats;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The {@link ClientSession} of a client that uses the Java serialization protocol,
+ *   in which the requests are string headers and the objects are sent serialized.
+ * <p>
+ * The protocol is kept for the clients that have not switched to the binary protocol and does not get new requests.
+ * <p>
+ * The object output stream remembers every object written to it, so that it could send a back reference
+ *   if the object is written again, and the client's object input stream mirrors that table. The session
+ *   resets the stream at the end of every game and every {@link #RESET_INTERVAL} responses, which clears
+ *   both tables and keeps the memory used by a long-lived connection flat.
+ */
+class SerializedClientSession implements ClientSession {
+    // Logger used to log messages.
+    private static final Logger logger = Logger.getLogger(SerializedClientSession.class.getName());
+    // The amount of responses after which the object output stream is reset.
+    static final int RESET_INTERVAL = 1024;
+    // The registry of the matches played on the server.
+    private final MatchRegistry matchRegistry;
+    // Stream used to read the client's requests.
+    private final ObjectInputStream inputStream;
+    // Stream used to write the responses to the client.
+    private final ObjectOutputStream outputStream;
+    // Lock that orders the responses written by the session and by the game state signals.
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // The amount of responses written since the last object output stream reset, guarded by the write lock.
+    private int responsesSinceReset = 0;
+    // The username of the player registered in this session.
+    private volatile String username = null;
+    // The player's matchmaking ticket.
+    private volatile Matchmaker.Ticket ticket = null;
+    // The match the player has been put into.
+    private volatile GameStateManager match = null;
+
+    /**
+     * Initializes a new {@link SerializedClientSession} instance on the connection
+     *   which stream headers have already been exchanged by the handshake.
+     *
+     * @param matchRegistry the registry of the matches played on the server.
+     * @param inputStream stream used to read the client's requests.
+     * @param outputStream stream used to write the responses to the client.
+     * @throws IOException if the object streams could not be created.
+     */
+    SerializedClientSession(MatchRegistry matchRegistry,
+                            InputStream inputStream,
+                            OutputStream outputStream) throws IOException {
+        this.matchRegistry = matchRegistry;
+        this.inputStream = new HeaderlessObjectInputStream(inputStream);
+        this.outputStream = new HeaderlessObjectOutputStream(outputStream);
+    }
+
+    /**
+     * Reads the next request from the client and serves it.
+     * <p>
+     * The requests that wait for the other players are answered by the thread that
+     *   completes the corresponding game state signal, so the session never waits
+     *   for the other players and sends exactly one response when they are ready.
+     *
+     * @return flag that denotes if the session should keep serving the client.
+     * @throws IOException if the connection with the client has failed.
+     * @throws ClassNotFoundException if the request contains an object of an unknown class.
+     */
+    @Override
+    public boolean handleNextRequest() throws IOException, ClassNotFoundException {
+        // Reading the request header.
+        String header = inputStream.readUTF();
+        GameStateManager current = match;
+
+        switch (header) {
+            case "REGISTER" -> {
+                // If the request header is REGISTER - registering the user.
+
+                username = inputStream.readUTF();
+                String player = username;
+
+                if (!join(player)) {
+                    respond(out -> out.writeUTF("MAX PLAYER COUNT REACHED"));
+                    logger.log(Level.INFO, "Player " + player + " not connected");
+                    return false;
+                }
+
+                ticket.match().thenAccept(assigned -> {
+                    if (assigned != null) {
+                        match = assigned;
+                        respondLater(out -> {
+                            logger.log(Level.INFO, "Player " + player + " connected");
+                            out.writeUTF("READY");
+                            out.writeUTF(assigned.getAnotherPlayer(player));
+                            out.writeInt(assigned.getMaxDuration());
+                        });
+                    }
+                });
+            }
+            case "STATUS" -> {
+                // If the request header is STATUS - returning the player connection status.
+
+                respond(out -> out.writeBoolean(current == null || !current.allPlayersConnected()));
+            }
+            case "GET SHAPE" -> {
+                // If the request header is GET SHAPE - returning a new shape for player.
+
+                respond(out -> out.writeObject(current == null ? null : current.getShapeForPlayer(username)));
+            }
+            case "FINISH" -> {
+                // If the request header is FINISH - finishing the game for the player.
+
+                PlayerStats stats = (PlayerStats) inputStream.readObject();
+
+                if (current == null || !current.finishForPlayer(username, stats)) {
+                    respond(out -> out.writeUTF("GAME ALREADY FINISHED"));
+                    return false;
+                }
+
+                // The game is over, so none of the written objects will be referenced again.
+                current.whenAllPlayersFinished().thenAccept(results -> respondLater(out -> {
+                    out.writeUTF("READY");
+                    out.writeObject(results);
+                    responsesSinceReset = RESET_INTERVAL;
+                }));
+            }
+            case "DISCONNECT" -> {
+                // If the request header is DISCONNECT - disconnecting the player
+                //   and stopping serving the client.
+
+                if (leave()) {
+                    logger.log(Level.INFO, "Player " + username + " disconnected");
+                }
+
+                return false;
+            }
+            case "RESTART" -> {
+                // If the request header is RESTART - joining the next match for the player.
+
+                String player = username;
+
+                // Leaving the previous match first, it may not have released the username yet.
+                leave();
+
+                if (player == null || !join(player)) {
+                    logger.log(Level.INFO, "Player " + player + " not connected");
+                    return false;
+                }
+
+                ticket.match().thenAccept(assigned -> {
+                    if (assigned != null) {
+                        match = assigned;
+                        respondLater(out -> out.writeUTF(assigned.getAnotherPlayer(player)));
+                    }
+                });
+            }
+            case "TOP" -> {
+                // If the request header is TOP - return the top 10 (or less) game results.
+
+                respond(out -> out.writeObject(matchRegistry.getTopRecords()));
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes a response to the client.
+     *
+     * @param response the action that writes the response.
+     * @throws IOException if the connection with the client has failed.
+     */
+    private void respond(Response response) throws IOException {
+        writeLock.lock();
+        try {
+            response.writeTo(outputStream);
+
+            if (++responsesSinceReset >= RESET_INTERVAL) {
+                outputStream.reset();
+                responsesSinceReset = 0;
+            }
+
+            outputStream.flush();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Writes a response to the client from the thread that has completed a game state signal.
+     * <p>
+     * A failed connection is only logged, the session's own thread handles it on the next read.
+     *
+     * @param response the action that writes the response.
+     */
+    private void respondLater(Response response) {
+        try {
+            respond(response);
+        } catch (IOException ex) {
+            logger.log(Level.FINE, "Could not send the response to player " + username, ex);
+        }
+    }
+
+    /**
+     * The requests are written as the serialized objects, which carry no length.
+     *
+     * @return {@code false}.
+     */
+    @Override
+    public boolean isFramed() {
+        return false;
+    }
+
+    /**
+     * Checks if the object input stream holds received bytes of the next request.
+     *
+     * @return flag that denotes if the object input stream holds received bytes of the next request.
+     * @throws IOException if the connection with the client has failed.
+     */
+    @Override
+    public boolean hasBufferedInput() throws IOException {
+        return inputStream.available() > 0;
+    }
+
+    /**
+     * Disconnects the session's player if the client has closed the connection
+     *   without sending a DISCONNECT request.
+     */
+    @Override
+    public void onConnectionLost() {
+        leave();
+    }
+
+    /**
+     * Puts the player into the matchmaking queue for a match with the default settings.
+     *
+     * @param player the player's username.
+     * @return flag that denotes if the player has joined the queue.
+     */
+    private boolean join(String player) {
+        if (!matchRegistry.isValidUsername(player)) {
+            return false;
+        }
+
+        Matchmaker.Ticket joined = matchRegistry.getMatchmaker().enqueue(player, matchRegistry.getDefaultSettings());
+
+        if (joined == null) {
+            return false;
+        }
+
+        ticket = joined;
+        return true;
+    }
+
+    /**
+     * Takes the player out of the matchmaking queue or disconnects the player from the match.
+     *
+     * @return flag that denotes if the player has joined the matchmaking queue.
+     */
+    private boolean leave() {
+        Matchmaker.Ticket current = ticket;
+
+        if (current == null) {
+            return false;
+        }
+
+        matchRegistry.getMatchmaker().cancel(current);
+        return true;
+    }
+
+    /**
+     * Action that writes a response to the client.
+     */
+    @FunctionalInterface
+    private interface Response {
+        /**
+         * Writes the response to the given stream.
+         *
+         * @param outputStream stream used to write the responses to the client.
+         * @throws IOException if the connection with the client has failed.
+         */
+        void writeTo(ObjectOutputStream outputStream) throws IOException;
+    }
+
+    /**
+     * Object input stream that does not read the stream header consumed by the handshake.
+     */
+    private static class HeaderlessObjectInputStream extends ObjectInputStream {
+        HeaderlessObjectInputStream(InputStream inputStream) throws IOException {
+            super(inputStream);
+        }
+
+        @Override
+        protected void readStreamHeader() { }
+    }
+
+    /**
+     * Object output stream that does not write the stream header sent as the server greeting.
+     */
+    private static class HeaderlessObjectOutputStream extends ObjectOutputStream {
+        HeaderlessObjectOutputStream(OutputStream outputStream) throws IOException {
+            super(outputStream);
+        }
+
+        @Override
+        protected void writeStreamHeader() { }
+    }
+}
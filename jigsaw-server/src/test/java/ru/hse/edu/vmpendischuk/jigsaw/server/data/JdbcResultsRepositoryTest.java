@@ -4,12 +4,21 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardCursor;
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardPage;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerProfile;
 import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStatsEntry;
 
 import java.sql.*;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -19,21 +28,35 @@ import java.util.logging.Logger;
 public class JdbcResultsRepositoryTest {
     // URL of a Derby Embedded database used for testing.
     private static final String URL = "jdbc:derby:testDb;create=true";
+    // URL of a Derby Embedded database with a results table of an earlier version used for testing.
+    private static final String LEGACY_URL = "jdbc:derby:memory:legacyTestDb;create=true";
+    // URL of a Derby Embedded database used for testing the leaderboard pages.
+    private static final String PAGES_URL = "jdbc:derby:memory:pagesTestDb;create=true";
+    // URL of a Derby Embedded database with results saved before the player statistics used for testing.
+    private static final String PROFILES_URL = "jdbc:derby:memory:profilesTestDb;create=true";
+    // URL of a Derby Embedded database used for testing the lock conflicts.
+    private static final String LOCKS_URL = "jdbc:derby:memory:locksTestDb;create=true";
     // Logger used to log messages.
     private static final Logger logger = Logger.getLogger(JdbcResultsRepositoryTest.class.getName());
     // The result repository used for testing (the testing subject).
     private static final JdbcResultsRepository resultsRepository = new JdbcResultsRepository(URL);
 
     /**
-     * Shuts the database down after all tests.
+     * Drops the in-memory databases after each test.
+     * <p>
+     * The database engine is not shut down, as it can not be restarted in the same JVM.
+     *   The repositories only shut their own databases down.
      */
     @AfterEach
-    void closeConnection() {
-        try {
-            Connection connection = DriverManager.getConnection("jdbc:derby:;shutdown=true");
-        } catch (SQLException ex) {
-            if (ex.getSQLState().equals("XJ015")) {
-                logger.log(Level.INFO, "Derby DB shutdown successful");
+    void dropDatabases() {
+        for (String url : List.of(LEGACY_URL, PAGES_URL, PROFILES_URL, LOCKS_URL)) {
+            try {
+                DriverManager.getConnection(url.replace(";create=true", ";drop=true"));
+            } catch (SQLException ex) {
+                // The successful drop is reported with an exception, as is a database the test has not created.
+                if (ex.getSQLState().equals("08006")) {
+                    logger.log(Level.INFO, "Derby DB drop successful");
+                }
             }
         }
     }
@@ -98,4 +121,271 @@ public class JdbcResultsRepositoryTest {
             logger.log(Level.WARNING, "Could not check the database for insertion");
         }
     }
+
+    /**
+     * Tests if the repository adds records from several threads at once over its pooled connections.
+     */
+    @Test
+    @DisplayName("Inserts records concurrently")
+    void insertsRecordsConcurrently() throws InterruptedException, SQLException {
+        Set<Long> ids = new HashSet<>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < 2 * JdbcResultsRepository.DEFAULT_POOL_SIZE; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 25; j++) {
+                    try {
+                        long id = resultsRepository.addRecord(
+                                new PlayerStatsEntry("Name", j, "00:01:00", Instant.now()));
+                        synchronized (ids) {
+                            ids.add(id);
+                        }
+                    } catch (SQLException ex) {
+                        logger.log(Level.WARNING, "Could not add record for test", ex);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assertions.assertEquals(2 * JdbcResultsRepository.DEFAULT_POOL_SIZE * 25, ids.size());
+        Assertions.assertEquals(10, resultsRepository.getTopRecords().size());
+    }
+
+    /**
+     * Tests if the text durations are converted to milliseconds.
+     */
+    @Test
+    @DisplayName("Converts durations to milliseconds")
+    void convertsDurations() {
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(0, JdbcResultsRepository.toMillis("00:00:00")),
+                () -> Assertions.assertEquals(3_723_000, JdbcResultsRepository.toMillis("01:02:03")),
+                () -> Assertions.assertEquals(Integer.MAX_VALUE, JdbcResultsRepository.toMillis("1:02")),
+                () -> Assertions.assertEquals(Integer.MAX_VALUE, JdbcResultsRepository.toMillis("aa:bb:cc")),
+                () -> Assertions.assertEquals(Integer.MAX_VALUE, JdbcResultsRepository.toMillis(null))
+        );
+    }
+
+    /**
+     * Tests if the results table of an earlier version gets the numeric durations of its records
+     *   and the leaderboard index.
+     */
+    @Test
+    @DisplayName("Migrates the text durations to milliseconds")
+    void migratesDurations() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(LEGACY_URL);
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("""
+                    CREATE TABLE RESULTS(
+                        ID BIGINT NOT NULL PRIMARY KEY GENERATED ALWAYS AS IDENTITY (START WITH 1, INCREMENT BY 1),
+                        USERNAME VARCHAR(512) NOT NULL,
+                        FINISH_TIME TIMESTAMP NOT NULL,
+                        SCORE INTEGER NOT NULL,
+                        DURATION VARCHAR(255)
+                    )
+                    """);
+            statement.executeUpdate("""
+                    INSERT INTO RESULTS (USERNAME, FINISH_TIME, SCORE, DURATION) VALUES
+                        ('Ivan', CURRENT_TIMESTAMP, 10, '00:02:00'),
+                        ('Michael', CURRENT_TIMESTAMP, 10, '00:01:30'),
+                        ('Wilhelm', CURRENT_TIMESTAMP, 20, NULL)
+                    """);
+        }
+
+        JdbcResultsRepository legacyRepository = new JdbcResultsRepository(LEGACY_URL, 1);
+        legacyRepository.addRecord(new PlayerStatsEntry("Jan", 10, "00:01:00", Instant.now()));
+
+        List<Integer> durations = new ArrayList<>();
+        try (Connection connection = DriverManager.getConnection(LEGACY_URL);
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT DURATION_MS FROM RESULTS ORDER BY ID")) {
+            while (rs.next()) {
+                durations.add(rs.getInt("DURATION_MS"));
+            }
+        }
+
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(List.of(120_000, 90_000, Integer.MAX_VALUE, 60_000), durations),
+                () -> Assertions.assertEquals(List.of("Wilhelm", "Jan", "Michael", "Ivan"),
+                        legacyRepository.getTopRecords().stream().map(PlayerStatsEntry::username).toList())
+        );
+        legacyRepository.close();
+    }
+
+    /**
+     * Tests if the pages follow each other in the leaderboard order and the ranks and the best records are found.
+     */
+    @Test
+    @DisplayName("Pages the records and finds their ranks")
+    void pagesRecords() throws SQLException {
+        // The records tied by the score, the duration and the finish time are ordered by the ID.
+        Instant now = Instant.ofEpochMilli(1_650_000_000_000L);
+        List<PlayerStatsEntry> records = List.of(
+                new PlayerStatsEntry("Ivan", 10, "00:01:00", now),
+                new PlayerStatsEntry("Michael", 10, "00:01:00", now),
+                new PlayerStatsEntry("Wilhelm", 10, "00:01:00", now.plusSeconds(1)),
+                new PlayerStatsEntry("Ivan", 10, "00:00:30", now),
+                new PlayerStatsEntry("Jan", 12, "00:02:00", now),
+                new PlayerStatsEntry("Ivan", 3, "00:00:10", now),
+                new PlayerStatsEntry("Michael", 10, "00:01:00", now));
+
+        JdbcResultsRepository pagesRepository = new JdbcResultsRepository(PAGES_URL, 1);
+        pagesRepository.addRecords(records);
+
+        List<PlayerStatsEntry> paged = new ArrayList<>();
+        List<LeaderboardPage> pages = new ArrayList<>();
+        LeaderboardCursor cursor = null;
+        do {
+            LeaderboardPage page = pagesRepository.getPage(cursor, 3);
+            paged.addAll(page.entries());
+            pages.add(page);
+            cursor = page.next();
+        } while (cursor != null);
+
+        List<PlayerStatsEntry> expected = List.of(records.get(4), records.get(3), records.get(2),
+                records.get(0), records.get(1), records.get(6), records.get(5));
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(expected, paged),
+                () -> Assertions.assertEquals(3, pages.size()),
+                () -> Assertions.assertEquals(3, pagesRepository.getRank(10, "00:01:00")),
+                () -> Assertions.assertEquals(7, pagesRepository.getRank(3, "00:00:10")),
+                () -> Assertions.assertEquals(8, pagesRepository.getRank(0, "00:00:00")),
+                () -> Assertions.assertEquals(records.get(3), pagesRepository.getBestRecord("Ivan")),
+                () -> Assertions.assertNull(pagesRepository.getBestRecord("Nobody"))
+        );
+        pagesRepository.close();
+    }
+
+    /**
+     * Checks if the player statistics are filled from the existing records and updated with the added ones.
+     */
+    @Test
+    @DisplayName("Aggregates the results of every player")
+    void aggregatesPlayers() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(PROFILES_URL);
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("""
+                    CREATE TABLE RESULTS(
+                        ID BIGINT NOT NULL PRIMARY KEY GENERATED ALWAYS AS IDENTITY (START WITH 1, INCREMENT BY 1),
+                        USERNAME VARCHAR(512) NOT NULL,
+                        FINISH_TIME TIMESTAMP NOT NULL,
+                        SCORE INTEGER NOT NULL,
+                        DURATION VARCHAR(255),
+                        DURATION_MS INTEGER NOT NULL
+                    )
+                    """);
+            statement.executeUpdate("""
+                    INSERT INTO RESULTS (USERNAME, FINISH_TIME, SCORE, DURATION, DURATION_MS) VALUES
+                        ('Ivan', '2024-03-01 12:00:00', 10, '00:02:00', 120000),
+                        ('Ivan', '2024-03-02 12:00:00', 4, '00:01:30', 90000)
+                    """);
+        }
+
+        Instant finishedAt = Instant.parse("2024-03-05T12:00:00Z");
+        JdbcResultsRepository profilesRepository = new JdbcResultsRepository(PROFILES_URL, 1);
+        profilesRepository.addRecords(List.of(
+                new PlayerStatsEntry("Ivan", 12, "00:03:00", finishedAt),
+                new PlayerStatsEntry("Jan", 7, "00:00:40", finishedAt),
+                new PlayerStatsEntry("Ivan", 2, "00:01:00", finishedAt.minusSeconds(60))));
+        profilesRepository.addRecord(new PlayerStatsEntry("Jan", 9, "00:01:10", finishedAt.plusSeconds(60)));
+
+        PlayerProfile ivan = profilesRepository.getProfile("Ivan");
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(4, ivan.games()),
+                () -> Assertions.assertEquals(12, ivan.bestScore()),
+                () -> Assertions.assertEquals("00:01:00", ivan.bestTime()),
+                () -> Assertions.assertEquals(7.0, ivan.meanScore()),
+                () -> Assertions.assertEquals(finishedAt, ivan.lastPlayed()),
+                () -> Assertions.assertEquals(new PlayerProfile("Jan", 2, 9, "00:00:40", 16, finishedAt.plusSeconds(60)),
+                        profilesRepository.getProfile("Jan")),
+                () -> Assertions.assertNull(profilesRepository.getProfile("Wilhelm"))
+        );
+        profilesRepository.close();
+    }
+
+    /**
+     * Checks if no record is lost when its statements run into the locks of another transaction
+     *   that reads the added records, so Derby rolls back one of the transactions on a deadlock.
+     */
+    @Test
+    @DisplayName("Adds the records past the lock conflicts")
+    void addsRecordsPastLockConflicts() throws Exception {
+        Instant finishedAt = Instant.parse("2024-03-01T12:00:00Z");
+        JdbcResultsRepository locksRepository = new JdbcResultsRepository(LOCKS_URL, 1);
+        locksRepository.addRecord(new PlayerStatsEntry("Ivan", 5, "00:01:00", finishedAt));
+        for (int i = 0; i < 20; i++) {
+            locksRepository.addRecord(new PlayerStatsEntry("Jan", i, "00:01:00", finishedAt));
+        }
+
+        try (Connection connection = DriverManager.getConnection(LOCKS_URL);
+             Statement statement = connection.createStatement()) {
+            statement.execute("CALL SYSCS_UTIL.SYSCS_SET_DATABASE_PROPERTY('derby.locks.deadlockTimeout', '1')");
+            statement.execute("CALL SYSCS_UTIL.SYSCS_SET_DATABASE_PROPERTY('derby.locks.waitTimeout', '10')");
+        }
+
+        for (int round = 0; round < 3; round++) {
+            addWhileLocked(() -> locksRepository.addRecord(
+                    new PlayerStatsEntry("Ivan", 6, "00:01:00", finishedAt)));
+            addWhileLocked(() -> locksRepository.addRecords(List.of(
+                    new PlayerStatsEntry("Ivan", 7, "00:01:00", finishedAt)))[0]);
+        }
+
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(7, locksRepository.getProfile("Ivan").games()),
+                () -> Assertions.assertEquals(7, locksRepository.getProfile("Ivan").bestScore()),
+                () -> Assertions.assertEquals(27, locksRepository.getRank(0, "00:01:00"))
+        );
+        locksRepository.close();
+    }
+
+    /**
+     * Adds a record of the player Ivan while another transaction holds the statistics of the player
+     *   and then reads the records of the player.
+     *
+     * @param add the call that adds the record.
+     * @throws Exception if the record has not been added.
+     */
+    private static void addWhileLocked(Callable<Long> add) throws Exception {
+        FutureTask<Long> adding = new FutureTask<>(add);
+
+        try (Connection connection = DriverManager.getConnection(LOCKS_URL);
+             Statement statement = connection.createStatement();
+             PreparedStatement select = connection.prepareStatement("SELECT COUNT(*) FROM RESULTS WHERE ID = ?")) {
+            connection.setAutoCommit(false);
+            // Holding more locks than the adding transaction, so Derby rolls back the adding one on a deadlock.
+            statement.executeUpdate("UPDATE RESULTS SET SCORE = SCORE WHERE USERNAME = 'Jan'");
+            statement.executeUpdate("UPDATE PLAYERS SET GAMES = GAMES WHERE USERNAME = 'Ivan'");
+            long lastId;
+            try (ResultSet ids = statement.executeQuery("SELECT MAX(ID) FROM RESULTS")) {
+                ids.next();
+                lastId = ids.getLong(1);
+            }
+            new Thread(adding).start();
+
+            // Waiting for the record to run into the lock of the statistics.
+            boolean waiting = false;
+            while (!waiting) {
+                try (ResultSet locks = statement.executeQuery(
+                        "SELECT COUNT(*) FROM SYSCS_DIAG.LOCK_TABLE WHERE STATE = 'WAIT'")) {
+                    locks.next();
+                    waiting = locks.getInt(1) > 0;
+                }
+            }
+
+            // Reading the record added first, a retried transaction adds the record with the next ID.
+            select.setLong(1, lastId + 1);
+            try (ResultSet records = select.executeQuery()) {
+                records.next();
+            }
+            connection.commit();
+        }
+
+        Assertions.assertTrue(adding.get() > 0);
+    }
 }
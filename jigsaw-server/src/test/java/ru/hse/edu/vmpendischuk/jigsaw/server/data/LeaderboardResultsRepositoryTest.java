@@ -0,0 +1,101 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStatsEntry;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class that contains unit tests for the {@link LeaderboardResultsRepository} class methods.
+ */
+public class LeaderboardResultsRepositoryTest {
+    /**
+     * Checks if the top records are read from the wrapped repository once and updated by the added records.
+     */
+    @Test
+    @DisplayName("Keeps the top records in memory")
+    void keepsTopRecords() throws Exception {
+        CountingRepository counting = new CountingRepository();
+        Instant now = Instant.now();
+        for (int i = 0; i < 15; i++) {
+            counting.records.add(new PlayerStatsEntry("Player" + i, i, "00:01:00", now));
+        }
+        LeaderboardResultsRepository repository = new LeaderboardResultsRepository(counting);
+
+        // The record that does not beat the 10th record does not change the top records.
+        List<PlayerStatsEntry> initial = repository.getTopRecords();
+        repository.addRecord(new PlayerStatsEntry("Ivan", 1, "00:00:10", now));
+        Assertions.assertSame(initial, repository.getTopRecords());
+
+        // The same score is ranked by the duration, then by the finish time.
+        repository.addRecords(List.of(
+                new PlayerStatsEntry("Michael", 14, "00:00:59", now),
+                new PlayerStatsEntry("Wilhelm", 14, "00:01:00", now.plusSeconds(1))));
+        List<PlayerStatsEntry> top = repository.getTopRecords();
+
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(1, counting.topReads.get()),
+                () -> Assertions.assertEquals(18, counting.records.size()),
+                () -> Assertions.assertEquals(LeaderboardResultsRepository.TOP_SIZE, top.size()),
+                () -> Assertions.assertEquals(List.of("Michael", "Wilhelm", "Player14", "Player13"),
+                        top.subList(0, 4).stream().map(PlayerStatsEntry::username).toList()),
+                () -> Assertions.assertEquals("Player7", top.get(top.size() - 1).username()),
+                () -> Assertions.assertThrows(UnsupportedOperationException.class, () -> top.remove(0))
+        );
+    }
+
+    /**
+     * Checks if the equal records of different games are all kept in the top records.
+     */
+    @Test
+    @DisplayName("Keeps the equal results of different games")
+    void keepsEqualRecords() throws Exception {
+        CountingRepository counting = new CountingRepository();
+        Instant now = Instant.now();
+        PlayerStatsEntry first = new PlayerStatsEntry("Ivan", 10, "00:01:00", now);
+        counting.records.add(first);
+        LeaderboardResultsRepository repository = new LeaderboardResultsRepository(counting);
+
+        // The games finished at the same moment with the same score and duration are separate results.
+        repository.addRecord(new PlayerStatsEntry("Ivan", 10, "00:01:00", now));
+        repository.addRecords(List.of(new PlayerStatsEntry("Ivan", 10, "00:01:00", now),
+                new PlayerStatsEntry("Michael", 3, "00:01:00", now)));
+
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(List.of(first, first, first), repository.getTopRecords().subList(0, 3)),
+                () -> Assertions.assertEquals(4, repository.getTopRecords().size()),
+                () -> Assertions.assertEquals(counting.getTopRecords(), repository.getTopRecords())
+        );
+    }
+
+    /**
+     * The results repository that keeps the records in memory and counts the reads of the top records.
+     */
+    private static class CountingRepository implements ResultsRepository {
+        // The added records.
+        private final List<PlayerStatsEntry> records = new ArrayList<>();
+        // The amount of reads of the top records.
+        private final AtomicInteger topReads = new AtomicInteger();
+
+        @Override
+        public synchronized long addRecord(PlayerStatsEntry record) {
+            records.add(record);
+            return records.size();
+        }
+
+        @Override
+        public synchronized List<PlayerStatsEntry> getTopRecords() {
+            topReads.incrementAndGet();
+            return records.stream().sorted(LeaderboardResultsRepository.ORDER).limit(10).toList();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
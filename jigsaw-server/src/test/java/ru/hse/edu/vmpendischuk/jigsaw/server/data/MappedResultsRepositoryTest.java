@@ -0,0 +1,113 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardPage;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerProfile;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStatsEntry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Class that contains unit tests for the {@link MappedResultsRepository} class methods.
+ */
+public class MappedResultsRepositoryTest {
+    // The directory of the log files.
+    @TempDir
+    Path directory;
+
+    /**
+     * Checks if the records are recovered from the sorted index and the log records added after it.
+     */
+    @Test
+    @DisplayName("Recovers the records from the index and the log")
+    void recoversRecords() throws SQLException, IOException {
+        Path path = directory.resolve("results.log");
+        Instant now = Instant.parse("2024-03-01T12:00:00Z");
+
+        MappedResultsRepository repository = new MappedResultsRepository(path);
+        repository.addRecords(List.of(
+                new PlayerStatsEntry("Alice", 10, "00:01:00", now),
+                new PlayerStatsEntry("Bob", 12, "00:03:20", now),
+                new PlayerStatsEntry("Alice", 10, "00:00:30", now)));
+        repository.checkpoint();
+        repository.addRecord(new PlayerStatsEntry("Carol", 3, "00:00:10", now));
+        repository.addRecord(new PlayerStatsEntry("Bob", 14, "00:02:00", now.plusSeconds(1)));
+
+        // The repository is not closed, so the last records are only in the log.
+        MappedResultsRepository recovered = new MappedResultsRepository(path);
+        LeaderboardPage first = recovered.getPage(null, 2);
+        LeaderboardPage second = recovered.getPage(first.next(), 10);
+
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(5, recovered.getRecordCount()),
+                () -> Assertions.assertEquals(repository.getTopRecords(), recovered.getTopRecords()),
+                () -> Assertions.assertEquals(List.of("Bob", "Bob"),
+                        first.entries().stream().map(PlayerStatsEntry::username).toList()),
+                () -> Assertions.assertEquals(List.of("00:00:30", "00:01:00", "00:00:10"),
+                        second.entries().stream().map(PlayerStatsEntry::time).toList()),
+                () -> Assertions.assertNull(second.next()),
+                () -> Assertions.assertEquals(3, recovered.getRank(10, "00:00:30")),
+                () -> Assertions.assertEquals(new PlayerStatsEntry("Bob", 14, "00:02:00", now.plusSeconds(1)),
+                        recovered.getBestRecord("Bob")),
+                () -> Assertions.assertEquals("00:00:30", recovered.getBestRecord("Alice").time()),
+                () -> Assertions.assertNull(recovered.getBestRecord("Dave")),
+                () -> Assertions.assertEquals(new PlayerProfile("Alice", 2, 10, "00:00:30", 20, now),
+                        recovered.getProfile("Alice")),
+                () -> Assertions.assertEquals(new PlayerProfile("Bob", 2, 14, "00:02:00", 26, now.plusSeconds(1)),
+                        recovered.getProfile("Bob")),
+                () -> Assertions.assertNull(recovered.getProfile("Dave")),
+                () -> Assertions.assertThrows(SQLDataException.class,
+                        () -> recovered.addRecord(new PlayerStatsEntry("Dave", 1, "1 minute", now)))
+        );
+
+        recovered.close();
+        repository.close();
+    }
+
+    /**
+     * Checks if the records after the first incompletely written one are dropped on recovery.
+     */
+    @Test
+    @DisplayName("Drops the incompletely written records")
+    void dropsIncompleteRecords() throws SQLException, IOException {
+        Path path = directory.resolve("results.log");
+        Instant now = Instant.parse("2024-03-01T12:00:00Z");
+
+        MappedResultsRepository repository = new MappedResultsRepository(path);
+        for (int i = 0; i < 4; i++) {
+            repository.addRecord(new PlayerStatsEntry("Player" + i, i, "00:01:00", now));
+        }
+
+        // Damaging the third record, as if the server had crashed while writing it.
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF}), 64 + 2 * 128 + 9);
+        }
+
+        MappedResultsRepository recovered = new MappedResultsRepository(path);
+        long id = recovered.addRecord(new PlayerStatsEntry("Player4", 4, "00:01:00", now));
+        recovered.close();
+
+        MappedResultsRepository reopened = new MappedResultsRepository(path);
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(3, id),
+                () -> Assertions.assertEquals(3, reopened.getRecordCount()),
+                () -> Assertions.assertEquals(List.of("Player4", "Player1", "Player0"),
+                        reopened.getTopRecords().stream().map(PlayerStatsEntry::username).toList()),
+                () -> Assertions.assertEquals(new PlayerProfile("Player4", 1, 4, "00:01:00", 4, now),
+                        reopened.getProfile("Player4")),
+                () -> Assertions.assertNull(reopened.getProfile("Player3"))
+        );
+        reopened.close();
+    }
+}
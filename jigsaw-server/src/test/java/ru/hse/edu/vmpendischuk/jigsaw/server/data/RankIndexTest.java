@@ -0,0 +1,36 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Class that contains unit tests for the {@link RankIndex} class methods.
+ */
+public class RankIndexTest {
+    /**
+     * Checks if the rank counts the results with a higher score or the same score and a shorter duration.
+     */
+    @Test
+    @DisplayName("Ranks the results by score, then by duration")
+    void ranksResults() {
+        RankIndex index = new RankIndex();
+        index.add(10, 60_000, 2);
+        index.add(10, 30_000, 1);
+        index.add(12, 200_000, 1);
+        index.add(3, 10_000, 5);
+
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(9, index.size()),
+                () -> Assertions.assertEquals(1, index.rank(13, 0)),
+                () -> Assertions.assertEquals(2, index.rank(10, 30_000)),
+                () -> Assertions.assertEquals(3, index.rank(10, 59_000)),
+                () -> Assertions.assertEquals(3, index.rank(10, 60_000)),
+                () -> Assertions.assertEquals(5, index.rank(10, 61_000)),
+                () -> Assertions.assertEquals(10, index.rank(0, 0)),
+                // The out of range scores and durations share the edge buckets.
+                () -> Assertions.assertEquals(1, index.rank(RankIndex.MAX_SCORE + 5, 0)),
+                () -> Assertions.assertEquals(10, index.rank(-1, Integer.MAX_VALUE))
+        );
+    }
+}
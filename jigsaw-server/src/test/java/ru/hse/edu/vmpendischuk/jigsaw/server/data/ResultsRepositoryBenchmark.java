@@ -0,0 +1,191 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.data;
+
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStatsEntry;
+
+import java.nio.file.Path;
+import java.sql.*;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Throughput comparison of the results repository with a connection per call, with pooled connections,
+ *   with the memory-mapped log file and with a database shard per thread.
+ * <p>
+ * Inserts the given amount of records and reads the top 10 records the given amount of times
+ *   from several threads at once, and prints the operations per second.
+ *   Run each mode in a separate JVM:
+ *   {@code ResultsRepositoryBenchmark <unpooled | pooled | mapped | sharded> [threads] [operations per thread] [URL]},
+ *   in the sharded mode the URL is the prefix of the database URLs.
+ */
+public class ResultsRepositoryBenchmark {
+    /**
+     * Benchmark entry point.
+     *
+     * @param args the repository mode, the amount of threads, the amount of operations per thread
+     *   and the database URL (or the log file path in the mapped mode).
+     * @throws Exception if the benchmark has failed.
+     */
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "pooled";
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int operations = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        String url = args.length > 3 ? args[3]
+                : mode.equals("mapped") ? "benchmark.log"
+                : mode.equals("sharded") ? "jdbc:derby:benchmarkShard" : "jdbc:derby:benchmarkDb;create=true";
+
+        ResultsRepository repository = switch (mode) {
+            case "unpooled" -> new UnpooledResultsRepository(url);
+            case "mapped" -> new MappedResultsRepository(Path.of(url));
+            case "sharded" -> {
+                List<ResultsRepository> shards = new ArrayList<>();
+                for (int i = 0; i < threads; i++) {
+                    shards.add(new JdbcResultsRepository(url + i + ";create=true"));
+                }
+                yield new ShardedResultsRepository(shards);
+            }
+            default -> new JdbcResultsRepository(url);
+        };
+
+        // Warming up the database and the statements.
+        run(threads, operations / 10, () -> repository.addRecord(record()));
+        run(threads, operations / 10, repository::getTopRecords);
+
+        double inserts = run(threads, operations, () -> repository.addRecord(record()));
+        double topReads = run(threads, operations, repository::getTopRecords);
+
+        System.out.printf("%s: %d threads, %.0f inserts/s, %.0f top-10 reads/s%n", mode, threads, inserts, topReads);
+        repository.close();
+        JdbcResultsRepository.shutdownEngine();
+    }
+
+    /**
+     * Runs the operation the given amount of times on each of the threads.
+     *
+     * @param threads the amount of threads.
+     * @param operations the amount of operations per thread.
+     * @param operation the repository operation.
+     * @return the operations per second.
+     * @throws InterruptedException if the benchmark has been interrupted.
+     */
+    private static double run(int threads, int operations, Operation operation) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int j = 0; j < operations; j++) {
+                        operation.run();
+                    }
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        return threads * operations / ((System.nanoTime() - startTime) / 1e9);
+    }
+
+    /**
+     * Returns a random game result record.
+     *
+     * @return the record.
+     */
+    private static PlayerStatsEntry record() {
+        int seconds = (int) (Math.random() * 300);
+        return new PlayerStatsEntry("Player" + (int) (Math.random() * 1000), (int) (Math.random() * 40),
+                String.format("00:%02d:%02d", seconds / 60, seconds % 60), Instant.now());
+    }
+
+    /**
+     * A repository operation.
+     */
+    private interface Operation {
+        /**
+         * Runs the operation.
+         *
+         * @throws SQLException if an error in the database communication has occurred.
+         */
+        void run() throws SQLException;
+    }
+
+    /**
+     * The results repository that opens a new connection and prepares its statement on every call
+     *   (the repository before the connection pool).
+     */
+    private static class UnpooledResultsRepository implements ResultsRepository {
+        // The database URL.
+        private final String url;
+
+        /**
+         * Initializes a new {@link UnpooledResultsRepository} instance, creating the results table.
+         *
+         * @param url the database URL.
+         */
+        UnpooledResultsRepository(String url) {
+            this.url = url;
+            new JdbcResultsRepository(url, 1);
+        }
+
+        @Override
+        public long addRecord(PlayerStatsEntry record) throws SQLException {
+            Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("GMT"));
+            try (Connection connection = DriverManager.getConnection(url);
+                 PreparedStatement statement = connection.prepareStatement(
+                         "INSERT INTO RESULTS (USERNAME, FINISH_TIME, SCORE, DURATION, DURATION_MS)"
+                                 + " VALUES (?, ?, ?, ?, ?)",
+                         Statement.RETURN_GENERATED_KEYS)) {
+                statement.setString(1, record.username());
+                statement.setTimestamp(2, Timestamp.from(record.finishedAt()), cal);
+                statement.setInt(3, record.score());
+                statement.setString(4, record.time());
+                statement.setInt(5, JdbcResultsRepository.toMillis(record.time()));
+                statement.executeUpdate();
+                try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+                    generatedKeys.next();
+                    return generatedKeys.getLong(1);
+                }
+            }
+        }
+
+        @Override
+        public List<PlayerStatsEntry> getTopRecords() throws SQLException {
+            Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("GMT"));
+            try (Connection connection = DriverManager.getConnection(url);
+                 Statement statement = connection.createStatement();
+                 ResultSet records = statement.executeQuery("""
+                        SELECT USERNAME, FINISH_TIME, SCORE, DURATION FROM RESULTS
+                            ORDER BY SCORE DESC, DURATION, FINISH_TIME DESC FETCH NEXT 10 ROWS ONLY
+                        """)) {
+                List<PlayerStatsEntry> recordsList = new ArrayList<>();
+                while (records.next()) {
+                    recordsList.add(new PlayerStatsEntry(records.getString("USERNAME"), records.getInt("SCORE"),
+                            records.getString("DURATION"), records.getTimestamp("FINISH_TIME", cal).toInstant()));
+                }
+                return recordsList;
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                DriverManager.getConnection("jdbc:derby:;shutdown=true");
+            } catch (SQLException ex) {
+                // The successful shutdown is reported with an exception.
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardCursor;
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardPage;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStatsEntry;
+
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class that contains unit tests for the {@link ShardedResultsRepository} class methods.
+ */
+public class ShardedResultsRepositoryTest {
+    // The directory of the shard log files.
+    @TempDir
+    Path directory;
+
+    /**
+     * Checks if the records of the shards are merged in the leaderboard order.
+     */
+    @Test
+    @DisplayName("Merges the records of the shards")
+    void mergesShards() throws SQLException {
+        List<ResultsRepository> shards = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            shards.add(new MappedResultsRepository(directory.resolve("shard" + i + ".log")));
+        }
+        ShardedResultsRepository repository = new ShardedResultsRepository(shards);
+        Instant now = Instant.parse("2024-03-01T12:00:00Z");
+
+        // The records of the same score, duration and finish time are spread across the shards.
+        List<PlayerStatsEntry> records = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            records.add(new PlayerStatsEntry("Player" + i, i % 4, "00:01:00", now));
+        }
+        long[] ids = repository.addRecords(records);
+        repository.addRecord(new PlayerStatsEntry("Player0", 9, "00:02:00", now));
+
+        List<PlayerStatsEntry> expected = new ArrayList<>(records);
+        expected.add(new PlayerStatsEntry("Player0", 9, "00:02:00", now));
+        expected.sort(LeaderboardResultsRepository.ORDER);
+
+        // Walking the leaderboard by pages of a few records.
+        List<PlayerStatsEntry> paged = new ArrayList<>();
+        LeaderboardCursor cursor = null;
+        do {
+            LeaderboardPage page = repository.getPage(cursor, 4);
+            paged.addAll(page.entries());
+            cursor = page.next();
+        } while (cursor != null);
+
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(12, Arrays.stream(ids).distinct().count()),
+                // The records with the same score, duration and finish time are ordered by their shard.
+                () -> Assertions.assertEquals(paged.subList(0, LeaderboardResultsRepository.TOP_SIZE),
+                        repository.getTopRecords()),
+                () -> Assertions.assertEquals(expected.size(), paged.size()),
+                () -> Assertions.assertTrue(paged.containsAll(expected)),
+                () -> Assertions.assertEquals(expected.stream().map(PlayerStatsEntry::score).toList(),
+                        paged.stream().map(PlayerStatsEntry::score).toList()),
+                () -> Assertions.assertEquals(5, repository.getRank(2, "00:01:00")),
+                () -> Assertions.assertEquals(9, repository.getBestRecord("Player0").score()),
+                () -> Assertions.assertNull(repository.getBestRecord("Nobody"))
+        );
+
+        repository.close();
+    }
+
+    /**
+     * Checks if the records of the other shards are added and reported when a shard fails.
+     */
+    @Test
+    @DisplayName("Reports the records added by the other shards")
+    void reportsPartialWrites() throws SQLException {
+        List<ResultsRepository> shards = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            shards.add(new MappedResultsRepository(directory.resolve("shard" + i + ".log")));
+        }
+        ShardedResultsRepository repository = new ShardedResultsRepository(shards);
+        Instant now = Instant.parse("2024-03-01T12:00:00Z");
+
+        // The log files have no room for the username, so the whole batch of its shard fails.
+        String rejected = "Player".repeat(20);
+        List<PlayerStatsEntry> records = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            records.add(new PlayerStatsEntry("Player" + i, i, "00:01:00", now));
+        }
+        records.add(new PlayerStatsEntry(rejected, 1, "00:01:00", now));
+        int rejectedShard = Math.floorMod(rejected.hashCode(), 2);
+
+        PartialWriteException exception = Assertions.assertThrows(PartialWriteException.class,
+                () -> repository.addRecords(records));
+        List<String> added = new ArrayList<>();
+        for (int i = 0; i < records.size(); i++) {
+            if (exception.getIds()[i] != PartialWriteException.NOT_ADDED) {
+                added.add(records.get(i).username());
+            }
+        }
+        List<String> expected = records.stream()
+                .map(PlayerStatsEntry::username)
+                .filter(username -> Math.floorMod(username.hashCode(), 2) != rejectedShard)
+                .toList();
+
+        Assertions.assertAll(
+                () -> Assertions.assertFalse(expected.isEmpty()),
+                () -> Assertions.assertEquals(expected, added),
+                () -> Assertions.assertEquals(expected.size(), repository.getPage(null, 100).entries().size()),
+                () -> Assertions.assertEquals(MappedResultsRepository.MAX_USERNAME_BYTES,
+                        repository.getMaxUsernameBytes())
+        );
+
+        repository.close();
+    }
+
+    /**
+     * Checks if closing the JDBC shards leaves the database engine running for the other databases.
+     */
+    @Test
+    @DisplayName("Shuts down only the databases of its shards")
+    void closesShardDatabases() throws SQLException {
+        List<String> urls = List.of("jdbc:derby:memory:shardTestDb0;create=true",
+                "jdbc:derby:memory:shardTestDb1;create=true", "jdbc:derby:memory:otherTestDb;create=true");
+        ShardedResultsRepository repository = new ShardedResultsRepository(List.of(
+                new JdbcResultsRepository(urls.get(0), 1), new JdbcResultsRepository(urls.get(1), 1)));
+        JdbcResultsRepository other = new JdbcResultsRepository(urls.get(2), 1);
+        Instant now = Instant.parse("2024-03-01T12:00:00Z");
+
+        List<PlayerStatsEntry> records = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            records.add(new PlayerStatsEntry("Player" + i, i, "00:01:00", now));
+        }
+        repository.addRecords(records);
+        repository.close();
+
+        other.addRecord(new PlayerStatsEntry("Ivan", 10, "00:01:00", now));
+        Assertions.assertEquals(List.of(new PlayerStatsEntry("Ivan", 10, "00:01:00", now)), other.getTopRecords());
+        other.close();
+
+        for (String url : urls) {
+            try {
+                DriverManager.getConnection(url.replace(";create=true", ";drop=true"));
+            } catch (SQLException ex) {
+                // The successful drop is reported with an exception.
+            }
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStatsEntry;
+
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class that contains unit tests for the {@link WriteBehindResultsRepository} class methods.
+ */
+public class WriteBehindResultsRepositoryTest {
+    /**
+     * Checks if the records queued while a batch is being written are written together and get their IDs.
+     */
+    @Test
+    @Timeout(10)
+    @DisplayName("Writes the queued records in batches and returns their IDs")
+    void writesBatches() throws InterruptedException {
+        RecordingRepository recording = new RecordingRepository();
+        WriteBehindResultsRepository repository = new WriteBehindResultsRepository(recording,
+                WriteBehindResultsRepository.Durability.COMMITTED, 64);
+        List<CompletableFuture<Long>> ids = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            PlayerStatsEntry entry = new PlayerStatsEntry("Player" + i, i, "00:01:00", Instant.now());
+            CompletableFuture<Long> id = new CompletableFuture<>();
+            ids.add(id);
+
+            // Every caller waits for the commit on its own thread.
+            new Thread(() -> {
+                try {
+                    id.complete(repository.addRecord(entry));
+                } catch (SQLException ex) {
+                    id.completeExceptionally(ex);
+                }
+            }).start();
+
+            // Holding the first batch until the rest of the records are queued.
+            if (i == 0) {
+                recording.writing.await();
+            }
+        }
+
+        while (repository.getQueuedRecordCount() < 19) {
+            Thread.onSpinWait();
+        }
+        recording.release.countDown();
+
+        List<Long> returnedIds = ids.stream().map(CompletableFuture::join).sorted().toList();
+        repository.close();
+
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(20, recording.records.size()),
+                () -> Assertions.assertEquals(2, recording.batches.get()),
+                () -> Assertions.assertEquals(20, returnedIds.stream().distinct().count()),
+                () -> Assertions.assertTrue(recording.closed)
+        );
+    }
+
+    /**
+     * Checks if the records are queued without waiting and written on flush and on close.
+     */
+    @Test
+    @Timeout(10)
+    @DisplayName("Returns once the record is queued and writes the queue on close")
+    void writesQueueOnClose() throws SQLException {
+        RecordingRepository recording = new RecordingRepository();
+        recording.release.countDown();
+        WriteBehindResultsRepository repository = new WriteBehindResultsRepository(recording,
+                WriteBehindResultsRepository.Durability.QUEUED, 64);
+
+        Assertions.assertEquals(WriteBehindResultsRepository.PENDING_ID,
+                repository.addRecord(new PlayerStatsEntry("Ivan", 10, "00:01:00", Instant.now())));
+        repository.flush();
+        Assertions.assertEquals(1, repository.getTopRecords().size());
+
+        for (int i = 0; i < 30; i++) {
+            repository.addRecord(new PlayerStatsEntry("Michael", i, "00:01:00", Instant.now()));
+        }
+        repository.close();
+
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(31, recording.records.size()),
+                () -> Assertions.assertThrows(SQLException.class, () -> repository.addRecord(
+                        new PlayerStatsEntry("Wilhelm", 1, "00:01:00", Instant.now())))
+        );
+    }
+
+    /**
+     * Checks if only the reads of a player with queued records wait for the queue.
+     */
+    @Test
+    @Timeout(10)
+    @DisplayName("Waits for the queue only to read the own results of a player")
+    void readsOwnResults() throws SQLException, InterruptedException {
+        RecordingRepository recording = new RecordingRepository();
+        WriteBehindResultsRepository repository = new WriteBehindResultsRepository(recording,
+                WriteBehindResultsRepository.Durability.QUEUED, 64);
+        PlayerStatsEntry entry = new PlayerStatsEntry("Ivan", 10, "00:01:00", Instant.now());
+
+        // The record is held by the wrapped repository until it is released.
+        repository.addRecord(entry);
+        recording.writing.await();
+
+        CompletableFuture<PlayerStatsEntry> best = CompletableFuture.supplyAsync(() -> {
+            try {
+                return repository.getBestRecord("Ivan");
+            } catch (SQLException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(List.of(), repository.getTopRecords()),
+                () -> Assertions.assertNull(repository.getBestRecord("Michael")),
+                () -> Assertions.assertFalse(best.isDone())
+        );
+
+        recording.release.countDown();
+        Assertions.assertEquals(entry, best.join());
+        repository.close();
+    }
+
+    /**
+     * Checks if every record queued while the repository is being closed is either written or rejected.
+     */
+    @Test
+    @Timeout(30)
+    @DisplayName("Completes every record queued while the repository is closed")
+    void completesRecordsOnClose() throws InterruptedException {
+        RecordingRepository recording = new RecordingRepository();
+        recording.release.countDown();
+        WriteBehindResultsRepository repository = new WriteBehindResultsRepository(recording,
+                WriteBehindResultsRepository.Durability.COMMITTED, 4);
+        AtomicInteger written = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < 8; i++) {
+            String username = "Player" + i;
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 200; j++) {
+                    try {
+                        repository.addRecord(new PlayerStatsEntry(username, j, "00:01:00", Instant.now()));
+                        written.incrementAndGet();
+                    } catch (SQLException ex) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        while (written.get() == 0) {
+            Thread.onSpinWait();
+        }
+        repository.close();
+
+        // A record queued after the writer thread has stopped would leave its caller waiting forever.
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(8 * 200, written.get() + rejected.get()),
+                () -> Assertions.assertEquals(written.get(), recording.records.size())
+        );
+    }
+
+    /**
+     * Checks if the other records of a batch rejected by the wrapped repository are written one by one.
+     */
+    @Test
+    @Timeout(10)
+    @DisplayName("Writes the other records of a failed batch")
+    void writesFailedBatchSeparately() throws InterruptedException {
+        RecordingRepository recording = new RecordingRepository();
+        recording.rejected = "Rejected";
+        WriteBehindResultsRepository repository = new WriteBehindResultsRepository(recording,
+                WriteBehindResultsRepository.Durability.COMMITTED, 64);
+        List<CompletableFuture<Long>> ids = new ArrayList<>();
+
+        for (String username : List.of("Ivan", "Michael", "Rejected", "Wilhelm")) {
+            PlayerStatsEntry entry = new PlayerStatsEntry(username, 10, "00:01:00", Instant.now());
+            CompletableFuture<Long> id = new CompletableFuture<>();
+            ids.add(id);
+
+            new Thread(() -> {
+                try {
+                    id.complete(repository.addRecord(entry));
+                } catch (SQLException ex) {
+                    id.completeExceptionally(ex);
+                }
+            }).start();
+
+            // Holding the first batch until the rest of the records are queued.
+            if (ids.size() == 1) {
+                recording.writing.await();
+            }
+        }
+
+        while (repository.getQueuedRecordCount() < 3) {
+            Thread.onSpinWait();
+        }
+        recording.release.countDown();
+
+        CompletableFuture.allOf(ids.get(0), ids.get(1), ids.get(3)).join();
+        repository.close();
+
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(List.of("Ivan", "Michael", "Wilhelm"),
+                        recording.records.stream().map(PlayerStatsEntry::username).sorted().toList()),
+                () -> Assertions.assertEquals(3, recording.batches.get()),
+                () -> Assertions.assertInstanceOf(SQLDataException.class,
+                        Assertions.assertThrows(CompletionException.class, ids.get(2)::join).getCause())
+        );
+    }
+
+    /**
+     * The results repository that keeps the records in memory and counts the batches written to it.
+     */
+    private static class RecordingRepository implements ResultsRepository {
+        // The written records.
+        private final List<PlayerStatsEntry> records = new ArrayList<>();
+        // The amount of batches written.
+        private final AtomicInteger batches = new AtomicInteger();
+        // Signal counted down when the first batch is being written.
+        private final CountDownLatch writing = new CountDownLatch(1);
+        // Signal that lets the batches be written.
+        private final CountDownLatch release = new CountDownLatch(1);
+        // The username of the records the repository rejects along with the records added at once with them.
+        private volatile String rejected;
+        // Flag that denotes if the repository has been closed.
+        private volatile boolean closed = false;
+
+        @Override
+        public long addRecord(PlayerStatsEntry record) throws SQLException {
+            return addRecords(List.of(record))[0];
+        }
+
+        @Override
+        public long[] addRecords(List<PlayerStatsEntry> batch) throws SQLException {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                throw new SQLException(ex);
+            }
+            if (batch.stream().anyMatch(record -> record.username().equals(rejected))) {
+                throw new SQLDataException("Rejected the records of " + rejected);
+            }
+
+            synchronized (records) {
+                batches.incrementAndGet();
+                long[] ids = new long[batch.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    records.add(batch.get(i));
+                    ids[i] = records.size();
+                }
+                return ids;
+            }
+        }
+
+        @Override
+        public List<PlayerStatsEntry> getTopRecords() {
+            synchronized (records) {
+                return List.copyOf(records);
+            }
+        }
+
+        @Override
+        public PlayerStatsEntry getBestRecord(String username) {
+            synchronized (records) {
+                return records.stream()
+                        .filter(record -> record.username().equals(username))
+                        .max(Comparator.comparingInt(PlayerStatsEntry::score))
+                        .orElse(null);
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -3,8 +3,13 @@ package ru.hse.edu.vmpendischuk.jigsaw.server.game;
 import org.junit.jupiter.api.*;
 import ru.hse.edu.vmpendischuk.jigsaw.util.GameResults;
 import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStats;
+import ru.hse.edu.vmpendischuk.jigsaw.util.Shape;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class that contains unit tests for the {@link GameStateManager} class methods.
@@ -13,7 +18,7 @@ import java.time.Instant;
 public class GameStateManagerTest {
     // The game state manager used for testing (the testing subject).
     private static final GameStateManager gameStateManager =
-            new GameStateManager(2, 20, 300, "jdbc:derby:testDb;create=true");
+            new GameStateManager(2, 300, "jdbc:derby:testDb;create=true");
 
     /**
      * Checks if the state manages initializes properly.
@@ -25,6 +30,8 @@ public class GameStateManagerTest {
         Assertions.assertAll(
                 () -> Assertions.assertFalse(gameStateManager.allPlayersConnected()),
                 () -> Assertions.assertFalse(gameStateManager.allPlayersFinished()),
+                () -> Assertions.assertFalse(gameStateManager.whenAllPlayersConnected().isDone()),
+                () -> Assertions.assertFalse(gameStateManager.whenAllPlayersFinished().isDone()),
                 () -> Assertions.assertEquals(300, gameStateManager.getMaxDuration())
         );
     }
@@ -36,36 +43,40 @@ public class GameStateManagerTest {
     @Order(2)
     @DisplayName("Connects players and updates game status accordingly")
     void connectsPlayers() {
-        Assertions.assertAll(
-                () -> Assertions.assertTrue(gameStateManager.connectPlayer("Ivan")),
-                () -> Assertions.assertTrue(gameStateManager.connectPlayer("Michael"))
-        );
+        Assertions.assertTrue(gameStateManager.connectPlayer("Ivan"));
+        Assertions.assertFalse(gameStateManager.whenAllPlayersConnected().isDone());
+        Assertions.assertTrue(gameStateManager.connectPlayer("Michael"));
 
         Assertions.assertAll(
                 () -> Assertions.assertFalse(gameStateManager.connectPlayer("Wilhelm")),
                 () -> Assertions.assertTrue(gameStateManager.allPlayersConnected()),
+                () -> Assertions.assertTrue(gameStateManager.whenAllPlayersConnected().isDone()),
                 () -> Assertions.assertEquals("Ivan", gameStateManager.getAnotherPlayer("Michael")),
                 () -> Assertions.assertEquals("Michael", gameStateManager.getAnotherPlayer("Ivan"))
         );
     }
 
     /**
-     * Checks if the state manager manages the shape queue properly for all players.
+     * Checks if the state manager returns the same shape sequence to all players.
      */
     @Test
     @Order(3)
-    @DisplayName("Manages the shape queue and returns shapes for players")
+    @DisplayName("Returns the same shape sequence to all players")
     void managesShapes() {
-        Assertions.assertNotNull(gameStateManager.getShapeForPlayer("Ivan"));
-        Assertions.assertEquals(19, gameStateManager.getShapeCountForPlayer("Ivan"));
+        Shape first = gameStateManager.getShapeForPlayer("Ivan");
+        List<Shape> ivanShapes = gameStateManager.getShapesForPlayer("Ivan", 40);
 
-        for (int i = 0; i < 20; i++) {
-            gameStateManager.getShapeForPlayer("Michael");
+        List<Shape> michaelShapes = new ArrayList<>();
+        for (int i = 0; i < 41; i++) {
+            michaelShapes.add(gameStateManager.getShapeForPlayer("Michael"));
         }
 
         Assertions.assertAll(
-                () -> Assertions.assertEquals(39, gameStateManager.getShapeCountForPlayer("Ivan")),
-                () -> Assertions.assertEquals(20, gameStateManager.getShapeCountForPlayer("Michael"))
+                () -> Assertions.assertSame(first, michaelShapes.get(0)),
+                () -> Assertions.assertEquals(ivanShapes, michaelShapes.subList(1, 41)),
+                () -> Assertions.assertEquals(41, gameStateManager.getShapeCursorForPlayer("Ivan")),
+                () -> Assertions.assertEquals(41, gameStateManager.getShapeCursorForPlayer("Michael")),
+                () -> Assertions.assertNull(gameStateManager.getShapeForPlayer("Wilhelm"))
         );
     }
 
@@ -79,10 +90,9 @@ public class GameStateManagerTest {
         PlayerStats ivanStats = new PlayerStats(10, "00:01:00", Instant.now());
         PlayerStats michaelStats = new PlayerStats(9, "00:00:20", Instant.now());
 
-        Assertions.assertAll(
-                () -> Assertions.assertTrue(gameStateManager.finishForPlayer("Ivan", ivanStats)),
-                () -> Assertions.assertTrue(gameStateManager.finishForPlayer("Michael", michaelStats))
-        );
+        Assertions.assertTrue(gameStateManager.finishForPlayer("Ivan", ivanStats));
+        Assertions.assertFalse(gameStateManager.whenAllPlayersFinished().isDone());
+        Assertions.assertTrue(gameStateManager.finishForPlayer("Michael", michaelStats));
 
         GameResults results = gameStateManager.getResults();
 
@@ -90,7 +100,82 @@ public class GameStateManagerTest {
                 () -> Assertions.assertTrue(gameStateManager.allPlayersFinished()),
                 () -> Assertions.assertEquals(2, results.stats().size()),
                 () -> Assertions.assertEquals("Ivan", results.winner()),
-                () -> Assertions.assertTrue(results.disconnectedPlayers().isEmpty())
+                () -> Assertions.assertTrue(results.disconnectedPlayers().isEmpty()),
+                () -> Assertions.assertEquals("Ivan", gameStateManager.whenAllPlayersFinished().getNow(null).winner())
+        );
+    }
+
+    /**
+     * Checks if the state manager stays consistent when the players connect and fetch shapes concurrently.
+     */
+    @Test
+    @Order(5)
+    @DisplayName("Connects players and returns shapes concurrently")
+    void connectsPlayersConcurrently() throws InterruptedException {
+        int playerCount = 50;
+        GameStateManager manager = new GameStateManager(playerCount, 300, "jdbc:derby:testDb;create=true");
+        AtomicInteger connected = new AtomicInteger();
+        AtomicInteger nullShapes = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        // Every username tries to connect twice, more players than allowed try to connect.
+        for (int i = 0; i < 4 * playerCount; i++) {
+            String username = "Player" + (i / 2);
+
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+
+                if (manager.connectPlayer(username)) {
+                    connected.incrementAndGet();
+
+                    for (Shape shape : manager.getShapesForPlayer(username, 100)) {
+                        if (shape == null) {
+                            nullShapes.incrementAndGet();
+                        }
+                    }
+                }
+            });
+
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(playerCount, connected.get()),
+                () -> Assertions.assertEquals(0, nullShapes.get()),
+                () -> Assertions.assertTrue(manager.allPlayersConnected()),
+                () -> Assertions.assertTrue(manager.whenAllPlayersConnected().isDone())
+        );
+    }
+
+    /**
+     * Checks if the state manager lowers a score the player could not have reached with the given shapes.
+     */
+    @Test
+    @Order(6)
+    @DisplayName("Lowers unreachable scores")
+    void lowersUnreachableScores() {
+        GameStateManager manager = new GameStateManager(1, 300, "jdbc:derby:testDb;create=true");
+        Assertions.assertTrue(manager.connectPlayer("Ivan"));
+        manager.getShapesForPlayer("Ivan", 5);
+
+        int maxScore = manager.getMaxScoreForPlayer("Ivan");
+        Assertions.assertTrue(manager.finishForPlayer("Ivan", new PlayerStats(1000, "00:01:00", Instant.now())));
+
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(5, maxScore),
+                () -> Assertions.assertEquals(5, manager.getResults().stats().get(0).score()),
+                () -> Assertions.assertEquals(0, manager.getMaxScoreForPlayer("Wilhelm"))
         );
     }
 }
@@ -0,0 +1,55 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.game;
+
+import org.junit.jupiter.api.*;
+import ru.hse.edu.vmpendischuk.jigsaw.server.data.JdbcResultsRepository;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStats;
+
+import java.time.Instant;
+
+/**
+ * Class that contains unit tests for the {@link MatchRegistry} class methods.
+ */
+public class MatchRegistryTest {
+    // The match registry used for testing (the testing subject).
+    private final MatchRegistry matchRegistry = new MatchRegistry(new MatchSettings(2, 300),
+            new JdbcResultsRepository("jdbc:derby:testDb;create=true"));
+
+    /**
+     * Checks if the registry forgets the finished and the abandoned matches.
+     */
+    @Test
+    @DisplayName("Reclaims the finished and the abandoned matches")
+    void reclaimsMatches() {
+        GameStateManager finished = matchRegistry.createMatch(matchRegistry.getDefaultSettings());
+        finished.connectPlayer("Ivan");
+        finished.connectPlayer("Michael");
+        GameStateManager abandoned = matchRegistry.createMatch(matchRegistry.getDefaultSettings());
+        abandoned.connectPlayer("Wilhelm");
+        abandoned.connectPlayer("Pyotr");
+
+        Assertions.assertEquals(2, matchRegistry.getActiveMatchCount());
+
+        finished.finishForPlayer("Ivan", new PlayerStats(10, "00:01:00", Instant.now()));
+        finished.finishForPlayer("Michael", new PlayerStats(9, "00:00:20", Instant.now()));
+        Assertions.assertEquals(1, matchRegistry.getActiveMatchCount());
+
+        matchRegistry.leave(abandoned, "Wilhelm");
+        Assertions.assertEquals(1, matchRegistry.getActiveMatchCount());
+        matchRegistry.leave(abandoned, "Pyotr");
+        Assertions.assertEquals(0, matchRegistry.getActiveMatchCount());
+    }
+
+    /**
+     * Checks if the usernames are limited by the length the results repository stores.
+     */
+    @Test
+    @DisplayName("Accepts only the usernames the results repository stores")
+    void validatesUsernames() {
+        Assertions.assertAll(
+                () -> Assertions.assertTrue(matchRegistry.isValidUsername("Ivan")),
+                () -> Assertions.assertTrue(matchRegistry.isValidUsername("I".repeat(512))),
+                () -> Assertions.assertFalse(matchRegistry.isValidUsername("I".repeat(513))),
+                () -> Assertions.assertFalse(matchRegistry.isValidUsername("\u042F".repeat(300)))
+        );
+    }
+}
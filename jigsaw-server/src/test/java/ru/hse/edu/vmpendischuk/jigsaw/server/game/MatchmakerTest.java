@@ -0,0 +1,219 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.game;
+
+import org.junit.jupiter.api.*;
+import ru.hse.edu.vmpendischuk.jigsaw.server.data.JdbcResultsRepository;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStats;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Class that contains unit tests for the {@link Matchmaker} class methods.
+ */
+public class MatchmakerTest {
+    // The match registry that creates the matches.
+    private final MatchRegistry matchRegistry = new MatchRegistry(new MatchSettings(2, 300),
+            new JdbcResultsRepository("jdbc:derby:testDb;create=true"));
+    // The matchmaker used for testing (the testing subject).
+    private final Matchmaker matchmaker = matchRegistry.getMatchmaker();
+
+    /**
+     * Checks if the matchmaker puts the waiting players into full matches.
+     */
+    @Test
+    @DisplayName("Pairs the waiting players into full matches")
+    void pairsPlayers() {
+        MatchSettings settings = matchRegistry.getDefaultSettings();
+        Matchmaker.Ticket ivan = matchmaker.enqueue("Ivan", settings);
+
+        Assertions.assertFalse(ivan.match().isDone());
+
+        Matchmaker.Ticket michael = matchmaker.enqueue("Michael", settings);
+        GameStateManager match = ivan.match().getNow(null);
+
+        Assertions.assertAll(
+                () -> Assertions.assertNotNull(match),
+                () -> Assertions.assertSame(match, michael.match().getNow(null)),
+                () -> Assertions.assertTrue(match.allPlayersConnected()),
+                () -> Assertions.assertEquals("Michael", match.getAnotherPlayer("Ivan")),
+                () -> Assertions.assertEquals(2, matchmaker.getStats().matchedPlayers()),
+                () -> Assertions.assertEquals(0, matchmaker.getStats().waitingPlayers())
+        );
+    }
+
+    /**
+     * Checks if the matchmaker only pairs the players that have requested the same settings.
+     */
+    @Test
+    @DisplayName("Separates the players by the requested settings")
+    void separatesSettings() {
+        Matchmaker.Ticket ivan = matchmaker.enqueue("Ivan", matchRegistry.getDefaultSettings());
+        Matchmaker.Ticket michael = matchmaker.enqueue("Michael", new MatchSettings(2, 60));
+        Matchmaker.Ticket wilhelm = matchmaker.enqueue("Wilhelm", new MatchSettings(1, 60));
+
+        Assertions.assertAll(
+                () -> Assertions.assertFalse(ivan.match().isDone()),
+                () -> Assertions.assertFalse(michael.match().isDone()),
+                () -> Assertions.assertEquals(60, wilhelm.match().getNow(null).getMaxDuration()),
+                () -> Assertions.assertThrows(IllegalArgumentException.class, () -> new MatchSettings(3, 60))
+        );
+    }
+
+    /**
+     * Checks if the matchmaker rejects a waiting username and forgets the cancelled tickets.
+     */
+    @Test
+    @DisplayName("Rejects a waiting username and cancels tickets")
+    void cancelsTickets() {
+        MatchSettings settings = matchRegistry.getDefaultSettings();
+        Matchmaker.Ticket ivan = matchmaker.enqueue("Ivan", settings);
+
+        Assertions.assertNull(matchmaker.enqueue("Ivan", settings));
+
+        matchmaker.cancel(ivan);
+        Matchmaker.Ticket michael = matchmaker.enqueue("Michael", settings);
+
+        Assertions.assertAll(
+                () -> Assertions.assertTrue(ivan.match().isDone()),
+                () -> Assertions.assertNull(ivan.match().getNow(null)),
+                () -> Assertions.assertFalse(michael.match().isDone()),
+                () -> Assertions.assertNotNull(matchmaker.enqueue("Ivan", settings)),
+                () -> Assertions.assertTrue(michael.match().isDone())
+        );
+    }
+
+    /**
+     * Checks if the matchmaker keeps the username of a player reserved until the player leaves the match.
+     */
+    @Test
+    @DisplayName("Reserves the usernames of the players until they leave their matches")
+    void reservesUsernamesInMatches() {
+        MatchSettings settings = matchRegistry.getDefaultSettings();
+        Matchmaker.Ticket ivan = matchmaker.enqueue("Ivan", settings);
+        matchmaker.enqueue("Michael", settings);
+        GameStateManager finished = ivan.match().getNow(null);
+        Matchmaker.Ticket wilhelm = matchmaker.enqueue("Wilhelm", settings);
+        matchmaker.enqueue("Pyotr", settings);
+
+        Assertions.assertAll(
+                () -> Assertions.assertNull(matchmaker.enqueue("Ivan", settings)),
+                () -> Assertions.assertNull(matchmaker.enqueue("Wilhelm", settings)),
+                () -> Assertions.assertEquals(0, matchmaker.getStats().waitingPlayers())
+        );
+
+        finished.finishForPlayer("Ivan", new PlayerStats(10, "00:01:00", Instant.now()));
+        Assertions.assertNull(matchmaker.enqueue("Ivan", settings));
+        finished.finishForPlayer("Michael", new PlayerStats(9, "00:00:20", Instant.now()));
+        matchmaker.cancel(wilhelm);
+
+        Assertions.assertAll(
+                () -> Assertions.assertNotNull(matchmaker.enqueue("Ivan", settings)),
+                () -> Assertions.assertNotNull(matchmaker.enqueue("Michael", settings)),
+                () -> Assertions.assertNotNull(matchmaker.enqueue("Wilhelm", settings)),
+                () -> Assertions.assertNull(matchmaker.enqueue("Pyotr", settings)),
+                () -> Assertions.assertEquals(1, matchmaker.getStats().waitingPlayers())
+        );
+    }
+
+    /**
+     * Checks if the matchmaker pairs every player of a burst of concurrent registrations.
+     */
+    @Test
+    @Timeout(30)
+    @DisplayName("Pairs a burst of concurrent registrations")
+    void pairsBurst() throws InterruptedException {
+        int threadCount = 8;
+        int playersPerThread = 500;
+        ConcurrentLinkedQueue<Matchmaker.Ticket> tickets = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < threadCount; i++) {
+            int threadNumber = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+
+                for (int j = 0; j < playersPerThread; j++) {
+                    tickets.add(matchmaker.enqueue("Player" + threadNumber + "-" + j,
+                            matchRegistry.getDefaultSettings()));
+                }
+            });
+
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Set<GameStateManager> matches = new HashSet<>();
+        for (Matchmaker.Ticket ticket : tickets) {
+            matches.add(ticket.match().join());
+        }
+
+        MatchmakerStats stats = matchmaker.getStats();
+
+        Assertions.assertAll(
+                () -> Assertions.assertEquals(threadCount * playersPerThread / 2, matches.size()),
+                () -> Assertions.assertTrue(matches.stream().allMatch(GameStateManager::allPlayersConnected)),
+                () -> Assertions.assertEquals(threadCount * playersPerThread, stats.matchedPlayers()),
+                () -> Assertions.assertEquals(0, stats.waitingPlayers()),
+                () -> Assertions.assertTrue(stats.medianWaitMillis() <= stats.maxWaitMillis())
+        );
+    }
+
+    /**
+     * Checks if the registrations that run into a cancellation or a statistics snapshot are still paired.
+     */
+    @Test
+    @Timeout(30)
+    @DisplayName("Pairs the registrations racing cancellations and statistics")
+    void pairsRacingCancellations() throws InterruptedException {
+        int playerCount = 10000;
+        Matchmaker.Ticket cancelled = matchmaker.enqueue("Cancelled", new MatchSettings(2, 60));
+        List<Matchmaker.Ticket> tickets = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean registering = new AtomicBoolean(true);
+
+        // The thread that keeps taking the pass lock while the players register.
+        Thread canceller = new Thread(() -> {
+            try {
+                start.await();
+            } catch (InterruptedException ex) {
+                return;
+            }
+
+            while (registering.get()) {
+                matchmaker.cancel(cancelled);
+                matchmaker.getStats();
+            }
+        });
+        canceller.start();
+
+        start.countDown();
+        for (int i = 0; i < playerCount; i++) {
+            tickets.add(matchmaker.enqueue("Player" + i, matchRegistry.getDefaultSettings()));
+        }
+        registering.set(false);
+        canceller.join();
+
+        // Every registration has returned, so no ticket may be left in the incoming queue.
+        Assertions.assertAll(
+                () -> Assertions.assertTrue(tickets.stream().allMatch(ticket -> ticket.match().getNow(null) != null)),
+                () -> Assertions.assertEquals(playerCount, matchmaker.getStats().matchedPlayers()),
+                () -> Assertions.assertEquals(0, matchmaker.getStats().waitingPlayers())
+        );
+    }
+}
@@ -0,0 +1,38 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.game;
+
+import org.junit.jupiter.api.*;
+import ru.hse.edu.vmpendischuk.jigsaw.util.Shape;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Class that contains unit tests for the {@link ShapeSequence} class methods.
+ */
+public class ShapeSequenceTest {
+    /**
+     * Checks if the sequence is reproduced from the seed and covers all shape models.
+     */
+    @Test
+    @DisplayName("Reproduces the shapes from the seed")
+    void reproducesShapes() {
+        ShapeSequence sequence = new ShapeSequence(42);
+        ShapeSequence sameSequence = new ShapeSequence(42);
+        ShapeSequence otherSequence = new ShapeSequence(43);
+        Set<Shape> shapes = new HashSet<>();
+        int differentShapes = 0;
+
+        for (int i = 0; i < 10_000; i++) {
+            Shape shape = sequence.shapeAt(i);
+            shapes.add(shape);
+
+            Assertions.assertSame(shape, sameSequence.shapeAt(i));
+            if (shape != otherSequence.shapeAt(i)) {
+                differentShapes++;
+            }
+        }
+
+        Assertions.assertEquals(Shape.COUNT, shapes.size());
+        Assertions.assertTrue(differentShapes > 9000);
+    }
+}
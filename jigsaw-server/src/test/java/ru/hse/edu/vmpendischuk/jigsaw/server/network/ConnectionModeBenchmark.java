@@ -0,0 +1,134 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.network;
+
+import ru.hse.edu.vmpendischuk.jigsaw.server.data.ResultsRepository;
+import ru.hse.edu.vmpendischuk.jigsaw.server.game.MatchRegistry;
+import ru.hse.edu.vmpendischuk.jigsaw.server.game.MatchSettings;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStatsEntry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Load comparison of the server connection modes.
+ * <p>
+ * Opens the given amount of idle client connections, then measures the STATUS request
+ *   round trips over all of them, the amount of live platform threads and the used heap.
+ *   Run each mode in a separate JVM:
+ *   {@code ConnectionModeBenchmark <thread | virtual | selector> [connections] [rounds]}.
+ */
+public class ConnectionModeBenchmark {
+    /**
+     * Benchmark entry point.
+     *
+     * @param args the server mode, the amount of connections and the amount of request rounds.
+     * @throws Exception if the benchmark has failed.
+     */
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "thread";
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        MatchRegistry matchRegistry = new MatchRegistry(new MatchSettings(2, 300), new InMemoryResultsRepository());
+        long heapBefore = usedHeap();
+        int threadsBefore = Thread.activeCount();
+
+        Closeable server;
+        int port;
+        switch (mode) {
+            case "selector" -> {
+                SelectorServer selectorServer = new SelectorServer(0, 4, matchRegistry);
+                new Thread(selectorServer::run).start();
+                server = selectorServer;
+                port = selectorServer.getPort();
+            }
+            case "virtual" -> {
+                BlockingServer blockingServer = new BlockingServer(0,
+                        ConnectionExecutors.virtualThreadPerConnection(), matchRegistry);
+                new Thread(blockingServer::acceptClients).start();
+                server = blockingServer;
+                port = blockingServer.getPort();
+            }
+            default -> {
+                BlockingServer blockingServer = new BlockingServer(0,
+                        ConnectionExecutors.threadPerConnection(), matchRegistry);
+                new Thread(blockingServer::acceptClients).start();
+                server = blockingServer;
+                port = blockingServer.getPort();
+            }
+        }
+
+        List<Socket> sockets = new ArrayList<>();
+        List<ObjectInputStream> inputStreams = new ArrayList<>();
+        List<ObjectOutputStream> outputStreams = new ArrayList<>();
+
+        long connectStart = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            Socket socket = new Socket("localhost", port);
+            sockets.add(socket);
+            inputStreams.add(new ObjectInputStream(socket.getInputStream()));
+            outputStreams.add(new ObjectOutputStream(socket.getOutputStream()));
+        }
+        long connectMillis = (System.nanoTime() - connectStart) / 1_000_000;
+
+        long requestStart = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (ObjectOutputStream outputStream : outputStreams) {
+                outputStream.writeUTF("STATUS");
+                outputStream.flush();
+            }
+            for (ObjectInputStream inputStream : inputStreams) {
+                inputStream.readBoolean();
+            }
+        }
+        long requestNanos = System.nanoTime() - requestStart;
+
+        int serverThreads = Thread.activeCount() - threadsBefore;
+        long heapMb = (usedHeap() - heapBefore) / (1024 * 1024);
+
+        System.out.printf("mode=%s connections=%d connect=%dms requests/s=%.0f platform threads=%d heap=%dMB%n",
+                mode, connections, connectMillis,
+                connections * (double) rounds / (requestNanos / 1e9), serverThreads, heapMb);
+
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        server.close();
+        matchRegistry.close();
+        System.exit(0);
+    }
+
+    /**
+     * Results repository that keeps the database out of the measurements.
+     */
+    private static class InMemoryResultsRepository implements ResultsRepository {
+        @Override
+        public long addRecord(PlayerStatsEntry record) {
+            return 0;
+        }
+
+        @Override
+        public List<PlayerStatsEntry> getTopRecords() {
+            return List.of();
+        }
+
+        @Override
+        public void close() { }
+    }
+
+    /**
+     * Returns the amount of heap memory in use after a garbage collection.
+     *
+     * @return the amount of heap memory in use.
+     */
+    private static long usedHeap() throws InterruptedException {
+        System.gc();
+        Thread.sleep(200);
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,209 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.network;
+
+import org.junit.jupiter.api.*;
+import ru.hse.edu.vmpendischuk.jigsaw.server.data.JdbcResultsRepository;
+import ru.hse.edu.vmpendischuk.jigsaw.server.game.MatchRegistry;
+import ru.hse.edu.vmpendischuk.jigsaw.server.game.MatchSettings;
+import ru.hse.edu.vmpendischuk.jigsaw.util.Shape;
+import ru.hse.edu.vmpendischuk.jigsaw.util.protocol.Codec;
+import ru.hse.edu.vmpendischuk.jigsaw.util.protocol.FrameReader;
+import ru.hse.edu.vmpendischuk.jigsaw.util.protocol.FrameWriter;
+import ru.hse.edu.vmpendischuk.jigsaw.util.protocol.Handshake;
+import ru.hse.edu.vmpendischuk.jigsaw.util.protocol.Opcode;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class that contains unit tests for the {@link SelectorServer} class methods.
+ */
+public class SelectorServerTest {
+    // The match registry used by the server.
+    private static final MatchRegistry matchRegistry = new MatchRegistry(new MatchSettings(1, 300),
+            new JdbcResultsRepository("jdbc:derby:testDb;create=true"));
+    // The server used for testing (the testing subject).
+    private static SelectorServer server;
+
+    /**
+     * Starts the server on a free port before all tests.
+     *
+     * @throws IOException if the server could not be started.
+     */
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = new SelectorServer(0, 2, matchRegistry);
+        new Thread(server::run).start();
+    }
+
+    /**
+     * Stops the server after all tests.
+     *
+     * @throws IOException if the server could not be stopped.
+     */
+    @AfterAll
+    static void stopServer() throws IOException {
+        server.close();
+    }
+
+    /**
+     * Checks if a registered player is served shapes over the non-blocking connection.
+     */
+    @Test
+    @DisplayName("Registers a player and serves shapes")
+    void servesPlayer() throws IOException, ClassNotFoundException {
+        try (Socket socket = new Socket("localhost", server.getPort());
+             ObjectInputStream inputStream = new ObjectInputStream(socket.getInputStream());
+             ObjectOutputStream outputStream = new ObjectOutputStream(socket.getOutputStream())) {
+            outputStream.writeUTF("REGISTER");
+            outputStream.writeUTF("Ivan");
+            outputStream.flush();
+
+            Assertions.assertEquals("READY", inputStream.readUTF());
+            Assertions.assertEquals("", inputStream.readUTF());
+            Assertions.assertEquals(300, inputStream.readInt());
+
+            for (int i = 0; i < 100; i++) {
+                outputStream.writeUTF("GET SHAPE");
+                outputStream.flush();
+                Assertions.assertNotNull(((Shape) inputStream.readObject()).getModel());
+            }
+
+            outputStream.writeUTF("DISCONNECT");
+            outputStream.flush();
+        }
+    }
+
+    /**
+     * Checks if a binary protocol client is served over the non-blocking connection.
+     */
+    @Test
+    @DisplayName("Serves a binary protocol client")
+    void servesBinaryClient() throws IOException {
+        try (Socket socket = new Socket("localhost", server.getPort());
+             DataInputStream inputStream = new DataInputStream(socket.getInputStream());
+             DataOutputStream outputStream = new DataOutputStream(socket.getOutputStream())) {
+            Handshake.readServerGreeting(inputStream);
+            Handshake.writeClientHello(outputStream);
+
+            FrameReader frameReader = new FrameReader(inputStream);
+            FrameWriter frameWriter = new FrameWriter(outputStream);
+
+            frameWriter.write(Opcode.REGISTER, 1, output -> output.writeUTF("Ivan"));
+            Assertions.assertEquals(Opcode.READY, frameReader.readFrame());
+            Assertions.assertEquals(1, frameReader.correlationId());
+            Assertions.assertEquals("", frameReader.payload().readUTF());
+            Assertions.assertEquals(300, frameReader.payload().readInt());
+
+            // Pipelining the requests, each response carries the correlation ID of its request.
+            for (int i = 2; i < 100; i++) {
+                frameWriter.write(Opcode.GET_SHAPE, i);
+            }
+            frameWriter.write(Opcode.TOP, 100);
+
+            for (int i = 2; i < 100; i++) {
+                Assertions.assertEquals(Opcode.SHAPE, frameReader.readFrame());
+                Assertions.assertEquals(i, frameReader.correlationId());
+                Assertions.assertNotNull(Codec.readShape(frameReader.payload()).getModel());
+            }
+            Assertions.assertEquals(Opcode.TOP_RECORDS, frameReader.readFrame());
+            Assertions.assertEquals(100, frameReader.correlationId());
+
+            frameWriter.write(Opcode.DISCONNECT, 101);
+        }
+    }
+
+    /**
+     * Checks if the clients that have stopped in the middle of a request do not hold the workers.
+     */
+    @Test
+    @Timeout(30)
+    @DisplayName("Serves the clients while others stall in the middle of a request")
+    void servesPastStalledClients() throws IOException {
+        List<Socket> stalledSockets = new ArrayList<>();
+
+        try {
+            // More stalled clients than the workers, each sending only a part of its first frame.
+            for (int i = 0; i < 3; i++) {
+                Socket socket = new Socket("localhost", server.getPort());
+                stalledSockets.add(socket);
+
+                DataOutputStream outputStream = new DataOutputStream(socket.getOutputStream());
+                Handshake.readServerGreeting(new DataInputStream(socket.getInputStream()));
+                Handshake.writeClientHello(outputStream);
+                outputStream.writeInt(100);
+                outputStream.write(new byte[] {Opcode.REGISTER, 0, 0});
+                outputStream.flush();
+            }
+
+            try (Socket socket = new Socket("localhost", server.getPort());
+                 DataInputStream inputStream = new DataInputStream(socket.getInputStream());
+                 DataOutputStream outputStream = new DataOutputStream(socket.getOutputStream())) {
+                // The blocked socket read is not interrupted by the test timeout.
+                socket.setSoTimeout(10_000);
+                Handshake.readServerGreeting(inputStream);
+                Handshake.writeClientHello(outputStream);
+
+                FrameReader frameReader = new FrameReader(inputStream);
+                FrameWriter frameWriter = new FrameWriter(outputStream);
+
+                frameWriter.write(Opcode.REGISTER, 1, output -> output.writeUTF("Michael"));
+                Assertions.assertEquals(Opcode.READY, frameReader.readFrame());
+
+                frameWriter.write(Opcode.GET_SHAPE, 2);
+                Assertions.assertEquals(Opcode.SHAPE, frameReader.readFrame());
+                Assertions.assertEquals(2, frameReader.correlationId());
+
+                frameWriter.write(Opcode.DISCONNECT, 3);
+            }
+        } finally {
+            for (Socket socket : stalledSockets) {
+                socket.close();
+            }
+        }
+    }
+
+    /**
+     * Checks if many idle connections are kept open and served by the fixed amount of threads.
+     */
+    @Test
+    @Timeout(60)
+    @DisplayName("Serves many connections with a fixed amount of threads")
+    void servesManyConnections() throws IOException {
+        List<Socket> sockets = new ArrayList<>();
+        List<ObjectInputStream> inputStreams = new ArrayList<>();
+        List<ObjectOutputStream> outputStreams = new ArrayList<>();
+        int threadsBefore = Thread.activeCount();
+
+        try {
+            for (int i = 0; i < 200; i++) {
+                Socket socket = new Socket("localhost", server.getPort());
+                sockets.add(socket);
+                inputStreams.add(new ObjectInputStream(socket.getInputStream()));
+                outputStreams.add(new ObjectOutputStream(socket.getOutputStream()));
+            }
+
+            for (int round = 0; round < 20; round++) {
+                for (ObjectOutputStream outputStream : outputStreams) {
+                    outputStream.writeUTF("STATUS");
+                    outputStream.flush();
+                }
+
+                for (ObjectInputStream inputStream : inputStreams) {
+                    inputStream.readBoolean();
+                }
+            }
+
+            Assertions.assertTrue(Thread.activeCount() - threadsBefore <= 2);
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ru.hse.edu.vmpendischuk.jigsaw.server.network;
+
+import org.junit.jupiter.api.*;
+import ru.hse.edu.vmpendischuk.jigsaw.server.data.JdbcResultsRepository;
+import ru.hse.edu.vmpendischuk.jigsaw.server.game.MatchRegistry;
+import ru.hse.edu.vmpendischuk.jigsaw.server.game.MatchSettings;
+import ru.hse.edu.vmpendischuk.jigsaw.util.Shape;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.ref.WeakReference;
+import java.net.Socket;
+import java.util.List;
+
+/**
+ * Class that contains unit tests for the {@link SerializedClientSession} class methods.
+ */
+public class SerializedClientSessionTest {
+    // The amount of shapes requested by the soak test.
+    private static final int SHAPE_REQUESTS = 100_000;
+    // The amount of requests sent before reading the responses.
+    private static final int BATCH_SIZE = 1000;
+    // The match registry used by the server.
+    private static final MatchRegistry matchRegistry = new MatchRegistry(new MatchSettings(1, 300),
+            new JdbcResultsRepository("jdbc:derby:testDb;create=true"));
+    // The server used for testing.
+    private static BlockingServer server;
+
+    /**
+     * Starts the server on a free port before all tests.
+     *
+     * @throws IOException if the server could not be started.
+     */
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = new BlockingServer(0, ConnectionExecutors.threadPerConnection(), matchRegistry);
+        new Thread(server::acceptClients).start();
+    }
+
+    /**
+     * Stops the server after all tests.
+     *
+     * @throws IOException if the server could not be stopped.
+     */
+    @AfterAll
+    static void stopServer() throws IOException {
+        server.close();
+    }
+
+    /**
+     * Checks if the object streams do not keep the sent objects reachable over a long session.
+     * <p>
+     * The client's object input stream holds every received object until the server resets its stream,
+     *   so the received top records list can only be collected if the server keeps resetting.
+     *   Every received shape must be resolved to the canonical instance, whether the server has sent
+     *   the shape itself or a back reference to it.
+     */
+    @Test
+    @Timeout(120)
+    @DisplayName("Does not retain the sent objects over a long session")
+    void doesNotRetainObjects() throws IOException, ClassNotFoundException, InterruptedException {
+        try (Socket socket = new Socket("localhost", server.getPort());
+             ObjectInputStream inputStream = new ObjectInputStream(socket.getInputStream());
+             ObjectOutputStream outputStream = new ObjectOutputStream(socket.getOutputStream())) {
+            outputStream.writeUTF("REGISTER");
+            outputStream.writeUTF("Ivan");
+            outputStream.flush();
+
+            Assertions.assertEquals("READY", inputStream.readUTF());
+            inputStream.readUTF();
+            inputStream.readInt();
+
+            outputStream.writeUTF("TOP");
+            outputStream.flush();
+            WeakReference<List<?>> topRecords = new WeakReference<>((List<?>) inputStream.readObject());
+
+            for (int sent = 0; sent < SHAPE_REQUESTS; sent += BATCH_SIZE) {
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    outputStream.writeUTF("GET SHAPE");
+                }
+                outputStream.flush();
+
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    Shape shape = (Shape) inputStream.readObject();
+                    Assertions.assertSame(Shape.of(shape.getId()), shape);
+                }
+            }
+
+            for (int i = 0; i < 10 && topRecords.get() != null; i++) {
+                System.gc();
+                Thread.sleep(50);
+            }
+
+            Assertions.assertNull(topRecords.get());
+
+            outputStream.writeUTF("DISCONNECT");
+            outputStream.flush();
+        }
+    }
+}
@@ -1,3 +1,4 @@
 module ru.hse.edu.vmpendischuk.jigsaw.util {
     exports ru.hse.edu.vmpendischuk.jigsaw.util;
-}
\ No newline at end of file
+    exports ru.hse.edu.vmpendischuk.jigsaw.util.protocol;
+}
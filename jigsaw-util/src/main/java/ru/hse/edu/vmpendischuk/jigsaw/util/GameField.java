@@ -0,0 +1,169 @@
+package ru.hse.edu.vmpendischuk.jigsaw.util;
+
+/**
+ * Class that represents the 9x9 Jigsaw game field as a bitboard.
+ * <p>
+ * The cell in the row {@code r} and the column {@code c} is the bit {@code r * 9 + c}
+ *   of the 81-bit field state, the bits 0-63 are stored in the {@code low} word
+ *   and the bits 64-80 in the {@code high} word (1 = taken, 0 = free).
+ * <p>
+ * Every shape is pre-shifted to every anchor (the top left corner of its bounding box)
+ *   at which it fits into the field, so checking and placing a shape takes a couple
+ *   of AND/OR operations instead of walking the shape's model, and checking if a shape
+ *   can be placed anywhere takes at most 81 such checks.
+ */
+public final class GameField {
+    // The amount of rows (and columns) of the field.
+    public static final int SIZE = 9;
+    // The amount of cells of the field.
+    public static final int CELL_COUNT = SIZE * SIZE;
+    // The amount of cells stored in the low word.
+    private static final int LOW_BITS = Long.SIZE;
+    // The low words of the shape masks, indexed by (shape id * 81 + anchor), 0 if the shape does not fit.
+    private static final long[] LOW_MASKS = new long[(Shape.COUNT + 1) * CELL_COUNT];
+    // The high words of the shape masks, indexed the same way as the low words.
+    private static final long[] HIGH_MASKS = new long[(Shape.COUNT + 1) * CELL_COUNT];
+    // The mask indices of the anchors at which the shape fits into the field, indexed by shape id.
+    private static final int[][] PLACEMENTS = new int[Shape.COUNT + 1][];
+    static {
+        for (int id = 1; id <= Shape.COUNT; ++id) {
+            Shape shape = Shape.of(id);
+            int[][] model = shape.getModel();
+            PLACEMENTS[id] = new int[(SIZE - shape.getHeight() + 1) * (SIZE - shape.getWidth() + 1)];
+            int placement = 0;
+
+            for (int row = 0; row + shape.getHeight() <= SIZE; ++row) {
+                for (int col = 0; col + shape.getWidth() <= SIZE; ++col) {
+                    int mask = id * CELL_COUNT + row * SIZE + col;
+                    PLACEMENTS[id][placement++] = mask;
+
+                    for (int i = 0; i < shape.getHeight(); ++i) {
+                        for (int j = 0; j < shape.getWidth(); ++j) {
+                            if (model[i][j] == 1) {
+                                int cell = (row + i) * SIZE + col + j;
+                                if (cell < LOW_BITS) {
+                                    LOW_MASKS[mask] |= 1L << cell;
+                                } else {
+                                    HIGH_MASKS[mask] |= 1L << (cell - LOW_BITS);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // The cells 0-63 of the field.
+    private long low;
+    // The cells 64-80 of the field.
+    private long high;
+
+    /**
+     * Checks if the cell is taken.
+     *
+     * @param row index of the row of the cell.
+     * @param col index of the column of the cell.
+     * @return flag that denotes if the cell is taken.
+     */
+    public boolean isTaken(int row, int col) {
+        int cell = row * SIZE + col;
+
+        return cell < LOW_BITS ? (low & 1L << cell) != 0 : (high & 1L << (cell - LOW_BITS)) != 0;
+    }
+
+    /**
+     * Checks if the shape can be placed with the top left corner of its bounding box at the given cell.
+     *
+     * @param shape the shape.
+     * @param row index of the row of the anchor cell.
+     * @param col index of the column of the anchor cell.
+     * @return flag that denotes if the shape fits into the field and all of its cells are free.
+     */
+    public boolean canPlace(Shape shape, int row, int col) {
+        if (row < 0 || col < 0 || row >= SIZE || col >= SIZE) {
+            return false;
+        }
+
+        int mask = shape.getId() * CELL_COUNT + row * SIZE + col;
+        long shapeLow = LOW_MASKS[mask];
+        long shapeHigh = HIGH_MASKS[mask];
+
+        return (shapeLow | shapeHigh) != 0 && (low & shapeLow) == 0 && (high & shapeHigh) == 0;
+    }
+
+    /**
+     * Places the shape with the top left corner of its bounding box at the given cell if it can be placed.
+     *
+     * @param shape the shape.
+     * @param row index of the row of the anchor cell.
+     * @param col index of the column of the anchor cell.
+     * @return flag that denotes if the shape has been placed.
+     */
+    public boolean place(Shape shape, int row, int col) {
+        if (!canPlace(shape, row, col)) {
+            return false;
+        }
+
+        int mask = shape.getId() * CELL_COUNT + row * SIZE + col;
+        low |= LOW_MASKS[mask];
+        high |= HIGH_MASKS[mask];
+
+        return true;
+    }
+
+    /**
+     * Checks if the shape can be placed anywhere on the field.
+     *
+     * @param shape the shape.
+     * @return flag that denotes if there is an anchor at which the shape fits and all of its cells are free.
+     */
+    public boolean hasLegalMove(Shape shape) {
+        if (CELL_COUNT - getTakenCellCount() < shape.getCellCount()) {
+            return false;
+        }
+
+        for (int mask : PLACEMENTS[shape.getId()]) {
+            if ((low & LOW_MASKS[mask]) == 0 && (high & HIGH_MASKS[mask]) == 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the cells 0-63 of the field, the cell {@code r * 9 + c} is the bit {@code r * 9 + c}.
+     *
+     * @return the low word of the field state.
+     */
+    public long getLowWord() {
+        return low;
+    }
+
+    /**
+     * Returns the cells 64-80 of the field, the cell {@code r * 9 + c} is the bit {@code r * 9 + c - 64}.
+     *
+     * @return the high word of the field state.
+     */
+    public long getHighWord() {
+        return high;
+    }
+
+    /**
+     * Returns the amount of taken cells.
+     *
+     * @return the amount of taken cells.
+     */
+    public int getTakenCellCount() {
+        return Long.bitCount(low) + Long.bitCount(high);
+    }
+
+    /**
+     * Frees all cells of the field.
+     */
+    public void clear() {
+        low = 0;
+        high = 0;
+    }
+}
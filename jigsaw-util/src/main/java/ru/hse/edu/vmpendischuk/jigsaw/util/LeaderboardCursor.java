@@ -0,0 +1,18 @@
+package ru.hse.edu.vmpendischuk.jigsaw.util;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Record used to point at a game result in the leaderboard order, the next page of the leaderboard
+ *   starts right after it.
+ * <p>
+ * The leaderboard is sorted by score descending, then by duration, then by finish time descending,
+ *   and the ID of the result breaks the remaining ties.
+ *
+ * @param score the score of the result.
+ * @param durationMillis the game duration of the result in milliseconds.
+ * @param finishedAt the finish time of the result.
+ * @param id the ID of the result in the database.
+ */
+public record LeaderboardCursor(int score, int durationMillis, Instant finishedAt, long id) implements Serializable { }
@@ -0,0 +1,12 @@
+package ru.hse.edu.vmpendischuk.jigsaw.util;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Record used to store a page of the leaderboard - the game results and the cursor of the next page.
+ *
+ * @param entries the game results in the leaderboard order.
+ * @param next the cursor of the next page, or {@code null} if this page is the last one.
+ */
+public record LeaderboardPage(List<PlayerStatsEntry> entries, LeaderboardCursor next) implements Serializable { }
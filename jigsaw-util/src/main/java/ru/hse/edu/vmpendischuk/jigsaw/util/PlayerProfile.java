@@ -0,0 +1,26 @@
+package ru.hse.edu.vmpendischuk.jigsaw.util;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Record used to store the aggregate statistics of all game results of a player.
+ *
+ * @param username the player's username.
+ * @param games the amount of games the player has finished.
+ * @param bestScore the highest score of the player.
+ * @param bestTime the shortest game duration of the player in the "HH:MM:SS" format.
+ * @param totalScore the sum of the scores of the player.
+ * @param lastPlayed the finish time of the last game of the player.
+ */
+public record PlayerProfile(String username, long games, int bestScore, String bestTime, long totalScore,
+                            Instant lastPlayed) implements Serializable {
+    /**
+     * Returns the mean score of the player.
+     *
+     * @return the mean score, or 0 if the player has not finished any games.
+     */
+    public double meanScore() {
+        return games == 0 ? 0 : (double) totalScore / games;
+    }
+}
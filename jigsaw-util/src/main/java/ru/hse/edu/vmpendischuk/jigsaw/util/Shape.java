@@ -1,9 +1,13 @@
 package ru.hse.edu.vmpendischuk.jigsaw.util;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serial;
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Class that represents a shape in the Jigsaw game.
@@ -11,189 +15,378 @@ import java.util.Random;
  * Shape is represented by its model - a 2D array (matrix),
  *   where 1 denotes a part of the shape.
  * <p>
- * The amount of shapes is limited - 31 shape models are used,
- *   each of them denoted with an <b>"S(num in range 1-31)"</b> key,
- *   called {@code typeId}.
+ * The amount of shapes is limited - 31 shape models are used, each of them denoted
+ *   with a one-byte {@code id} in range 1-31 (the <b>"S(id)"</b> key is called {@code typeId}).
+ *   Every model has a single canonical immutable instance, obtained with {@link #of(int)},
+ *   so the shapes are compared by reference and are never allocated during a game.
+ * <p>
+ * The serialized form of a shape is its {@code typeId}, as sent by the older Jigsaw versions,
+ *   and a deserialized shape is resolved to the canonical instance.
  */
-public class Shape implements Serializable {
+public final class Shape implements Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
-    // A Random class instance used to generate random numbers.
-    private static final Random random = new Random();
-    // Map that stores models of shapes available for generation.
-    public static HashMap<String, int[][]> shapeModels;
-    static {
-        // Initializing the map.
-        shapeModels = new HashMap<>();
-        shapeModels.put("S1", new int[][]{
+    // The serialized fields of a shape (compatible with the older Jigsaw versions).
+    @Serial
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("typeId", String.class)
+    };
+    // The prefix of the shape model type IDs.
+    private static final String TYPE_ID_PREFIX = "S";
+    // The amount of shape models available for generation.
+    public static final int COUNT = 31;
+    // The models of the shapes available for generation, indexed by (id - 1).
+    private static final int[][][] MODELS = {
+            // S1.
+            {
                 {1, 1},
                 {1, 0},
                 {1, 0}
-        });
-        shapeModels.put("S2", new int[][]{
+            },
+            // S2.
+            {
                 {1, 0, 0},
                 {1, 1, 1}
-        });
-        shapeModels.put("S3", new int[][]{
+            },
+            // S3.
+            {
                 {0, 1},
                 {0, 1},
                 {1, 1}
-        });
-        shapeModels.put("S4", new int[][]{
+            },
+            // S4.
+            {
                 {1, 1, 1},
                 {0, 0, 1}
-        });
-        shapeModels.put("S5", new int[][]{
+            },
+            // S5.
+            {
                 {1, 1},
                 {0, 1},
                 {0, 1}
-        });
-        shapeModels.put("S6", new int[][]{
+            },
+            // S6.
+            {
                 {0, 0, 1},
                 {1, 1, 1}
-        });
-        shapeModels.put("S7", new int[][]{
+            },
+            // S7.
+            {
                 {1, 0},
                 {1, 0},
                 {1, 1}
-        });
-        shapeModels.put("S8", new int[][]{
+            },
+            // S8.
+            {
                 {1, 1, 1},
                 {1, 0, 0}
-        });
-        shapeModels.put("S9", new int[][]{
+            },
+            // S9.
+            {
                 {1, 0},
                 {1, 1},
                 {0, 1}
-        });
-        shapeModels.put("S10", new int[][]{
+            },
+            // S10.
+            {
                 {0, 1, 1},
                 {1, 1, 0}
-        });
-        shapeModels.put("S11", new int[][]{
+            },
+            // S11.
+            {
                 {0, 1},
                 {1, 1},
                 {1, 0}
-        });
-        shapeModels.put("S12", new int[][]{
+            },
+            // S12.
+            {
                 {1, 1, 0},
                 {0, 1, 1}
-        });
-        shapeModels.put("S13", new int[][]{
+            },
+            // S13.
+            {
                 {0, 0, 1},
                 {0, 0, 1},
                 {1, 1, 1}
-        });
-        shapeModels.put("S14", new int[][]{
+            },
+            // S14.
+            {
                 {1, 0, 0},
                 {1, 0, 0},
                 {1, 1, 1}
-        });
-        shapeModels.put("S15", new int[][]{
+            },
+            // S15.
+            {
                 {1, 1, 1},
                 {1, 0, 0},
                 {1, 0, 0}
-        });
-        shapeModels.put("S16", new int[][]{
+            },
+            // S16.
+            {
                 {1, 1, 1},
                 {0, 0, 1},
                 {0, 0, 1}
-        });
-        shapeModels.put("S17", new int[][]{
+            },
+            // S17.
+            {
                 {0, 1, 0},
                 {0, 1, 0},
                 {1, 1, 1}
-        });
-        shapeModels.put("S18", new int[][]{
+            },
+            // S18.
+            {
                 {1, 1, 1},
                 {0, 1, 0},
                 {0, 1, 0}
-        });
-        shapeModels.put("S19", new int[][]{
+            },
+            // S19.
+            {
                 {1, 0, 0},
                 {1, 1, 1},
                 {1, 0, 0}
-        });
-        shapeModels.put("S20", new int[][]{
+            },
+            // S20.
+            {
                 {0, 0, 1},
                 {1, 1, 1},
                 {0, 0, 1}
-        });
-        shapeModels.put("S21", new int[][]{
+            },
+            // S21.
+            {
                 {1, 1, 1}
-        });
-        shapeModels.put("S22", new int[][]{
+            },
+            // S22.
+            {
                 {1},
                 {1},
                 {1}
-        });
-        shapeModels.put("S23", new int[][]{
+            },
+            // S23.
+            {
                 {1}
-        });
-        shapeModels.put("S24", new int[][]{
+            },
+            // S24.
+            {
                 {1, 1},
                 {1, 0}
-        });
-        shapeModels.put("S25", new int[][]{
+            },
+            // S25.
+            {
                 {1, 1},
                 {0, 1}
-        });
-        shapeModels.put("S26", new int[][]{
+            },
+            // S26.
+            {
                 {0, 1},
                 {1, 1}
-        });
-        shapeModels.put("S27", new int[][]{
+            },
+            // S27.
+            {
                 {1, 0},
                 {1, 1}
-        });
-        shapeModels.put("S28", new int[][]{
+            },
+            // S28.
+            {
                 {1, 0},
                 {1, 1},
                 {1, 0}
-        });
-        shapeModels.put("S29", new int[][]{
+            },
+            // S29.
+            {
                 {1, 1, 1},
                 {0, 1, 0}
-        });
-        shapeModels.put("S30", new int[][]{
+            },
+            // S30.
+            {
                 {0, 1},
                 {1, 1},
                 {0, 1}
-        });
-        shapeModels.put("S31", new int[][]{
+            },
+            // S31.
+            {
                 {0, 1, 0},
                 {1, 1, 1}
-        });
+            }
+    };
+    // The canonical shape instances, indexed by id (index 0 is unused).
+    private static final Shape[] CATALOG = new Shape[COUNT + 1];
+    static {
+        for (int id = 1; id <= COUNT; ++id) {
+            CATALOG[id] = new Shape((byte) id);
+        }
     }
 
+    // Shape's model id, assigned on creation or on deserialization.
+    private transient byte id;
     // Shape's model type ID.
-    public String typeId;
+    private final transient String typeId;
+    // Shape's model matrix.
+    private final transient int[][] model;
+    // The amount of cells covered by the shape.
+    private final transient int cellCount;
+
+    /**
+     * Initializes the canonical {@code Shape} instance with given model id.
+     *
+     * @param id shape model id.
+     */
+    private Shape(byte id) {
+        this.id = id;
+        typeId = TYPE_ID_PREFIX + id;
+        model = MODELS[id - 1];
+
+        int cells = 0;
+        for (int[] row : model) {
+            for (int cell : row) {
+                cells += cell;
+            }
+        }
+        cellCount = cells;
+    }
+
+    /**
+     * Returns the canonical shape with given model id.
+     *
+     * @param id shape model id (1-31).
+     * @return the shape.
+     * @throws IllegalArgumentException if there is no shape model with given id.
+     */
+    public static Shape of(int id) {
+        if (!isValidId(id)) {
+            throw new IllegalArgumentException("Unknown shape model id " + id);
+        }
+
+        return CATALOG[id];
+    }
+
+    /**
+     * Checks if there is a shape model with given id.
+     *
+     * @param id shape model id.
+     * @return flag that denotes if there is a shape model with given id.
+     */
+    public static boolean isValidId(int id) {
+        return id >= 1 && id <= COUNT;
+    }
 
     /**
-     * Initializes a new {@code Shape} instance with given model type ID.
+     * Generates a shape with a random model.
+     * <p>
+     * Uses the random generator of the current thread, so the threads do not contend.
      *
-     * @param typeId shape model type ID.
+     * @return the generated shape.
      */
-    public Shape(String typeId) {
-        this.typeId = typeId;
+    public static Shape getRandomShape() {
+        return CATALOG[ThreadLocalRandom.current().nextInt(1, COUNT + 1)];
+    }
+
+    /**
+     * Returns shape's model id.
+     *
+     * @return shape's model id (1-31).
+     */
+    public byte getId() {
+        return id;
+    }
+
+    /**
+     * Returns shape's model type ID.
+     *
+     * @return shape's model type ID ("S1"-"S31").
+     */
+    public String getTypeId() {
+        return typeId;
     }
 
     /**
      * Returns shape's model matrix.
+     * <p>
+     * The matrix is shared by all users of the shape and must not be modified.
      *
      * @return shape's model matrix.
      */
     public int[][] getModel() {
-        return shapeModels.get(typeId);
+        return model;
     }
 
     /**
-     * Generates a shape with a random model type ID.
+     * Returns the amount of cells covered by the shape.
      *
-     * @return the generated shape.
+     * @return the amount of cells covered by the shape.
      */
-    public static Shape getRandomShape() {
-        int modelId = random.nextInt(32 - 1) + 1;
-        return new Shape("S" + modelId);
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * Returns the width of the shape's bounding box.
+     *
+     * @return the amount of columns in the shape's model.
+     */
+    public int getWidth() {
+        return model[0].length;
+    }
+
+    /**
+     * Returns the height of the shape's bounding box.
+     *
+     * @return the amount of rows in the shape's model.
+     */
+    public int getHeight() {
+        return model.length;
+    }
+
+    @Override
+    public String toString() {
+        return typeId;
+    }
+
+    /**
+     * Writes the shape as its model type ID.
+     *
+     * @param output the object output stream.
+     * @throws IOException if the shape could not be written.
+     */
+    @Serial
+    private void writeObject(ObjectOutputStream output) throws IOException {
+        ObjectOutputStream.PutField fields = output.putFields();
+        fields.put("typeId", typeId);
+        output.writeFields();
+    }
+
+    /**
+     * Reads the model type ID of the shape.
+     *
+     * @param input the object input stream.
+     * @throws IOException if the shape could not be read or its model type ID is unknown.
+     * @throws ClassNotFoundException if the class of a serialized field could not be found.
+     */
+    @Serial
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        String serializedTypeId = (String) input.readFields().get("typeId", null);
+
+        int serializedId;
+        try {
+            serializedId = serializedTypeId.startsWith(TYPE_ID_PREFIX)
+                    ? Integer.parseInt(serializedTypeId.substring(TYPE_ID_PREFIX.length()))
+                    : 0;
+        } catch (RuntimeException ex) {
+            serializedId = 0;
+        }
+
+        if (!isValidId(serializedId)) {
+            throw new InvalidObjectException("Unknown shape type " + serializedTypeId);
+        }
+        id = (byte) serializedId;
+    }
+
+    /**
+     * Replaces a deserialized shape with the canonical instance.
+     *
+     * @return the canonical shape with the same model.
+     */
+    @Serial
+    private Object readResolve() {
+        return CATALOG[id];
     }
 }
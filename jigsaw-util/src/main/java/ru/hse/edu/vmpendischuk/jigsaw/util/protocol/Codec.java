@@ -0,0 +1,383 @@
+package ru.hse.edu.vmpendischuk.jigsaw.util.protocol;
+
+import ru.hse.edu.vmpendischuk.jigsaw.util.GameResults;
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardCursor;
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardPage;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerProfile;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStats;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStatsEntry;
+import ru.hse.edu.vmpendischuk.jigsaw.util.Shape;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encoding of the Jigsaw domain objects in the binary protocol frame payloads.
+ * <p>
+ * A shape is sent as its one-byte model number (0 for no shape), the player stats
+ *   as the {@code int} score, the {@code int} game duration in seconds and the {@code long}
+ *   finish time in epoch milliseconds, the strings as modified UTF-8 and the lists
+ *   as an unsigned {@code short} size followed by the elements. An optional leaderboard cursor
+ *   is sent as a {@code boolean} presence flag followed by the cursor fields if it is present.
+ */
+public final class Codec {
+    // The maximum amount of elements in a list.
+    private static final int MAX_LIST_SIZE = 0xFFFF;
+
+    private Codec() { }
+
+    /**
+     * Writes a shape.
+     *
+     * @param output the frame output.
+     * @param shape the shape, may be {@code null}.
+     * @throws IOException if the shape could not be written.
+     */
+    public static void writeShape(DataOutput output, Shape shape) throws IOException {
+        if (shape == null) {
+            output.writeByte(0);
+            return;
+        }
+
+        output.writeByte(shape.getId());
+    }
+
+    /**
+     * Reads a shape.
+     *
+     * @param input the frame payload input.
+     * @return the shape, or {@code null} if no shape was sent.
+     * @throws IOException if the shape could not be read.
+     */
+    public static Shape readShape(DataInput input) throws IOException {
+        int modelNumber = input.readUnsignedByte();
+
+        if (modelNumber == 0) {
+            return null;
+        }
+
+        if (!Shape.isValidId(modelNumber)) {
+            throw new ProtocolException("Unknown shape type S" + modelNumber);
+        }
+
+        return Shape.of(modelNumber);
+    }
+
+    /**
+     * Writes a batch of shapes.
+     *
+     * @param output the frame output.
+     * @param shapes the shapes.
+     * @throws IOException if the shapes could not be written.
+     */
+    public static void writeShapes(DataOutput output, List<Shape> shapes) throws IOException {
+        if (shapes.size() > Opcode.MAX_SHAPE_BATCH) {
+            throw new ProtocolException("Batch of " + shapes.size() + " shapes exceeds the limit");
+        }
+
+        output.writeByte(shapes.size());
+
+        for (Shape shape : shapes) {
+            writeShape(output, shape);
+        }
+    }
+
+    /**
+     * Reads a batch of shapes.
+     *
+     * @param input the frame payload input.
+     * @return the shapes.
+     * @throws IOException if the shapes could not be read.
+     */
+    public static List<Shape> readShapes(DataInput input) throws IOException {
+        int size = input.readUnsignedByte();
+        List<Shape> shapes = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            shapes.add(readShape(input));
+        }
+
+        return shapes;
+    }
+
+    /**
+     * Writes the player stats.
+     *
+     * @param output the frame output.
+     * @param stats the player stats.
+     * @throws IOException if the stats could not be written.
+     */
+    public static void writeStats(DataOutput output, PlayerStats stats) throws IOException {
+        output.writeInt(stats.score());
+        output.writeInt(toSeconds(stats.time()));
+        output.writeLong(stats.finishedAt().toEpochMilli());
+    }
+
+    /**
+     * Reads the player stats.
+     *
+     * @param input the frame payload input.
+     * @return the player stats.
+     * @throws IOException if the stats could not be read.
+     */
+    public static PlayerStats readStats(DataInput input) throws IOException {
+        int score = input.readInt();
+        String time = formatTime(input.readInt());
+        Instant finishedAt = Instant.ofEpochMilli(input.readLong());
+
+        return new PlayerStats(score, time, finishedAt);
+    }
+
+    /**
+     * Writes the player stats entry.
+     *
+     * @param output the frame output.
+     * @param entry the player stats entry.
+     * @throws IOException if the entry could not be written.
+     */
+    public static void writeEntry(DataOutput output, PlayerStatsEntry entry) throws IOException {
+        output.writeUTF(entry.username());
+        output.writeInt(entry.score());
+        output.writeInt(toSeconds(entry.time()));
+        output.writeLong(entry.finishedAt().toEpochMilli());
+    }
+
+    /**
+     * Reads the player stats entry.
+     *
+     * @param input the frame payload input.
+     * @return the player stats entry.
+     * @throws IOException if the entry could not be read.
+     */
+    public static PlayerStatsEntry readEntry(DataInput input) throws IOException {
+        String username = input.readUTF();
+        return new PlayerStatsEntry(readStats(input), username);
+    }
+
+    /**
+     * Writes the list of player stats entries.
+     *
+     * @param output the frame output.
+     * @param entries the player stats entries.
+     * @throws IOException if the entries could not be written.
+     */
+    public static void writeEntries(DataOutput output, List<PlayerStatsEntry> entries) throws IOException {
+        writeSize(output, entries.size());
+
+        for (PlayerStatsEntry entry : entries) {
+            writeEntry(output, entry);
+        }
+    }
+
+    /**
+     * Reads the list of player stats entries.
+     *
+     * @param input the frame payload input.
+     * @return the player stats entries.
+     * @throws IOException if the entries could not be read.
+     */
+    public static List<PlayerStatsEntry> readEntries(DataInput input) throws IOException {
+        int size = input.readUnsignedShort();
+        List<PlayerStatsEntry> entries = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            entries.add(readEntry(input));
+        }
+
+        return entries;
+    }
+
+    /**
+     * Writes the game results.
+     *
+     * @param output the frame output.
+     * @param results the game results.
+     * @throws IOException if the results could not be written.
+     */
+    public static void writeResults(DataOutput output, GameResults results) throws IOException {
+        output.writeUTF(results.winner());
+        writeEntries(output, results.stats());
+        writeSize(output, results.disconnectedPlayers().size());
+
+        for (String username : results.disconnectedPlayers()) {
+            output.writeUTF(username);
+        }
+    }
+
+    /**
+     * Reads the game results.
+     *
+     * @param input the frame payload input.
+     * @return the game results.
+     * @throws IOException if the results could not be read.
+     */
+    public static GameResults readResults(DataInput input) throws IOException {
+        String winner = input.readUTF();
+        List<PlayerStatsEntry> stats = readEntries(input);
+        int size = input.readUnsignedShort();
+        List<String> disconnectedPlayers = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            disconnectedPlayers.add(input.readUTF());
+        }
+
+        return new GameResults(winner, stats, disconnectedPlayers);
+    }
+
+    /**
+     * Writes a leaderboard cursor.
+     *
+     * @param output the frame output.
+     * @param cursor the leaderboard cursor, may be {@code null}.
+     * @throws IOException if the cursor could not be written.
+     */
+    public static void writeCursor(DataOutput output, LeaderboardCursor cursor) throws IOException {
+        output.writeBoolean(cursor != null);
+
+        if (cursor == null) {
+            return;
+        }
+
+        output.writeInt(cursor.score());
+        output.writeInt(cursor.durationMillis());
+        output.writeLong(cursor.finishedAt().toEpochMilli());
+        output.writeLong(cursor.id());
+    }
+
+    /**
+     * Reads a leaderboard cursor.
+     *
+     * @param input the frame payload input.
+     * @return the leaderboard cursor, or {@code null} if no cursor was sent.
+     * @throws IOException if the cursor could not be read.
+     */
+    public static LeaderboardCursor readCursor(DataInput input) throws IOException {
+        if (!input.readBoolean()) {
+            return null;
+        }
+
+        int score = input.readInt();
+        int durationMillis = input.readInt();
+        Instant finishedAt = Instant.ofEpochMilli(input.readLong());
+
+        return new LeaderboardCursor(score, durationMillis, finishedAt, input.readLong());
+    }
+
+    /**
+     * Writes a page of the leaderboard.
+     *
+     * @param output the frame output.
+     * @param page the page of the leaderboard.
+     * @throws IOException if the page could not be written.
+     */
+    public static void writePage(DataOutput output, LeaderboardPage page) throws IOException {
+        writeEntries(output, page.entries());
+        writeCursor(output, page.next());
+    }
+
+    /**
+     * Reads a page of the leaderboard.
+     *
+     * @param input the frame payload input.
+     * @return the page of the leaderboard.
+     * @throws IOException if the page could not be read.
+     */
+    public static LeaderboardPage readPage(DataInput input) throws IOException {
+        List<PlayerStatsEntry> entries = readEntries(input);
+        return new LeaderboardPage(entries, readCursor(input));
+    }
+
+    /**
+     * Writes the aggregate statistics of a player.
+     *
+     * @param output the frame output.
+     * @param profile the player profile, may be {@code null}.
+     * @throws IOException if the profile could not be written.
+     */
+    public static void writeProfile(DataOutput output, PlayerProfile profile) throws IOException {
+        output.writeBoolean(profile != null);
+
+        if (profile == null) {
+            return;
+        }
+
+        output.writeUTF(profile.username());
+        output.writeLong(profile.games());
+        output.writeInt(profile.bestScore());
+        output.writeInt(toSeconds(profile.bestTime()));
+        output.writeLong(profile.totalScore());
+        output.writeLong(profile.lastPlayed().toEpochMilli());
+    }
+
+    /**
+     * Reads the aggregate statistics of a player.
+     *
+     * @param input the frame payload input.
+     * @return the player profile, or {@code null} if no profile was sent.
+     * @throws IOException if the profile could not be read.
+     */
+    public static PlayerProfile readProfile(DataInput input) throws IOException {
+        if (!input.readBoolean()) {
+            return null;
+        }
+
+        String username = input.readUTF();
+        long games = input.readLong();
+        int bestScore = input.readInt();
+        String bestTime = formatTime(input.readInt());
+        long totalScore = input.readLong();
+
+        return new PlayerProfile(username, games, bestScore, bestTime, totalScore,
+                Instant.ofEpochMilli(input.readLong()));
+    }
+
+    /**
+     * Writes the size of a list.
+     *
+     * @param output the frame output.
+     * @param size the size of the list.
+     * @throws IOException if the size could not be written.
+     */
+    private static void writeSize(DataOutput output, int size) throws IOException {
+        if (size > MAX_LIST_SIZE) {
+            throw new ProtocolException("List of " + size + " elements exceeds the limit");
+        }
+
+        output.writeShort(size);
+    }
+
+    /**
+     * Converts the game duration in the "HH:MM:SS" format to seconds.
+     *
+     * @param time the game duration in the "HH:MM:SS" format.
+     * @return the game duration in seconds.
+     * @throws ProtocolException if the duration is not in the "HH:MM:SS" format.
+     */
+    private static int toSeconds(String time) throws ProtocolException {
+        String[] parts = time.split(":");
+
+        if (parts.length != 3) {
+            throw new ProtocolException("Invalid game duration " + time);
+        }
+
+        try {
+            return Integer.parseInt(parts[0]) * 3600 + Integer.parseInt(parts[1]) * 60 + Integer.parseInt(parts[2]);
+        } catch (NumberFormatException ex) {
+            throw new ProtocolException("Invalid game duration " + time);
+        }
+    }
+
+    /**
+     * Formats the game duration in seconds as "HH:MM:SS".
+     *
+     * @param seconds the game duration in seconds.
+     * @return the game duration in the "HH:MM:SS" format.
+     */
+    private static String formatTime(int seconds) {
+        return String.format("%02d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+}
@@ -0,0 +1,21 @@
+package ru.hse.edu.vmpendischuk.jigsaw.util.protocol;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Action that writes the payload of a binary protocol frame.
+ */
+@FunctionalInterface
+public interface FramePayload {
+    // The payload of the frames that consist of the opcode only.
+    FramePayload EMPTY = output -> { };
+
+    /**
+     * Writes the payload to the given frame output.
+     *
+     * @param output the frame output.
+     * @throws IOException if the payload could not be written.
+     */
+    void writeTo(DataOutput output) throws IOException;
+}
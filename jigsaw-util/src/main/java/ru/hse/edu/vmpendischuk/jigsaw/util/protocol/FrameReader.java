@@ -0,0 +1,122 @@
+package ru.hse.edu.vmpendischuk.jigsaw.util.protocol;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the Jigsaw binary protocol frames written by the {@link FrameWriter}.
+ * <p>
+ * The whole frame is read into a reusable buffer before it is decoded, so decoding
+ *   never blocks on the connection and can not read past the end of the frame.
+ * <p>
+ * The reader is not thread-safe.
+ */
+public class FrameReader {
+    // The stream the frames are read from.
+    private final DataInputStream inputStream;
+    // The stream over the current frame payload.
+    private final PayloadStream payloadStream = new PayloadStream();
+    // The input used to decode the current frame payload.
+    private final DataInputStream payload = new DataInputStream(payloadStream);
+    // The buffer holding the current frame.
+    private byte[] frame = new byte[256];
+    // The correlation ID of the current frame.
+    private int correlationId;
+
+    /**
+     * Initializes a new {@link FrameReader} instance.
+     *
+     * @param inputStream the stream the frames are read from.
+     */
+    public FrameReader(InputStream inputStream) {
+        this.inputStream = new DataInputStream(inputStream);
+    }
+
+    /**
+     * Reads the next frame, blocking until it is fully received.
+     *
+     * @return the frame opcode.
+     * @throws EOFException if the stream has ended before the frame.
+     * @throws IOException if the frame could not be read or is malformed.
+     */
+    public byte readFrame() throws IOException {
+        int length = inputStream.readInt();
+
+        if (length < FrameWriter.HEADER_LENGTH || length > FrameWriter.MAX_FRAME_LENGTH) {
+            throw new ProtocolException("Invalid frame length " + length);
+        }
+
+        if (frame.length < length) {
+            frame = new byte[Math.max(length, frame.length * 2)];
+        }
+
+        inputStream.readFully(frame, 0, length);
+        payloadStream.setFrameLength(length);
+        correlationId = (frame[1] & 0xFF) << 24 | (frame[2] & 0xFF) << 16 | (frame[3] & 0xFF) << 8 | frame[4] & 0xFF;
+
+        return frame[0];
+    }
+
+    /**
+     * Returns the correlation ID of the last read frame.
+     *
+     * @return the correlation ID of the last read frame.
+     */
+    public int correlationId() {
+        return correlationId;
+    }
+
+    /**
+     * Returns the input used to decode the payload of the last read frame.
+     *
+     * @return the input used to decode the payload of the last read frame.
+     */
+    public DataInput payload() {
+        return payload;
+    }
+
+    /**
+     * Stream over the payload part of the frame buffer.
+     */
+    private class PayloadStream extends InputStream {
+        // The position of the next payload byte in the frame buffer.
+        private int position;
+        // The end of the payload in the frame buffer.
+        private int limit;
+
+        /**
+         * Points the stream at the payload of the frame of given length.
+         *
+         * @param length the frame length.
+         */
+        void setFrameLength(int length) {
+            position = FrameWriter.HEADER_LENGTH;
+            limit = length;
+        }
+
+        @Override
+        public int read() {
+            return position < limit ? frame[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (position >= limit) {
+                return length == 0 ? 0 : -1;
+            }
+
+            int count = Math.min(length, limit - position);
+            System.arraycopy(frame, position, bytes, offset, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return limit - position;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package ru.hse.edu.vmpendischuk.jigsaw.util.protocol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the Jigsaw binary protocol frames.
+ * <p>
+ * A frame is a big-endian {@code int} length followed by the one-byte opcode, the {@code int}
+ *   correlation ID and the payload, the length covering all of them. The response to a request
+ *   carries the request's correlation ID, so several requests can be in flight over one connection
+ *   and answered in any order. The frame is assembled in a reusable buffer and
+ *   written with a single call, so every frame costs one write of the underlying stream.
+ * <p>
+ * The writer is not thread-safe, the callers sharing it must order the frames themselves.
+ */
+public class FrameWriter {
+    // The maximum length of a frame (opcode, correlation ID and payload).
+    public static final int MAX_FRAME_LENGTH = 1024 * 1024;
+    // The length of the frame header following the frame length (opcode and correlation ID).
+    static final int HEADER_LENGTH = Byte.BYTES + Integer.BYTES;
+    // The stream the frames are written to.
+    private final OutputStream outputStream;
+    // The buffer used to assemble the frame.
+    private final FrameBuffer buffer = new FrameBuffer();
+    // The output used to write the frame into the buffer.
+    private final DataOutputStream frameOutput = new DataOutputStream(buffer);
+
+    /**
+     * Initializes a new {@link FrameWriter} instance.
+     *
+     * @param outputStream the stream the frames are written to.
+     */
+    public FrameWriter(OutputStream outputStream) {
+        this.outputStream = outputStream;
+    }
+
+    /**
+     * Writes a frame without a payload and flushes the stream.
+     *
+     * @param opcode the frame opcode.
+     * @param correlationId the ID of the request, also sent with the response to it.
+     * @throws IOException if the frame could not be written.
+     */
+    public void write(byte opcode, int correlationId) throws IOException {
+        write(opcode, correlationId, FramePayload.EMPTY);
+    }
+
+    /**
+     * Writes a frame and flushes the stream.
+     *
+     * @param opcode the frame opcode.
+     * @param correlationId the ID of the request, also sent with the response to it.
+     * @param payload the action that writes the frame payload.
+     * @throws IOException if the frame could not be written.
+     */
+    public void write(byte opcode, int correlationId, FramePayload payload) throws IOException {
+        buffer.reset();
+        frameOutput.writeInt(0);
+        frameOutput.writeByte(opcode);
+        frameOutput.writeInt(correlationId);
+        payload.writeTo(frameOutput);
+
+        int length = buffer.size() - Integer.BYTES;
+        if (length > MAX_FRAME_LENGTH) {
+            throw new ProtocolException("Frame of " + length + " bytes exceeds the limit");
+        }
+
+        buffer.setLength(length);
+        buffer.writeTo(outputStream);
+        outputStream.flush();
+    }
+
+    /**
+     * Byte array stream that allows to fill in the frame length after the payload is written.
+     */
+    private static class FrameBuffer extends ByteArrayOutputStream {
+        /**
+         * Initializes a new {@link FrameBuffer} instance.
+         */
+        FrameBuffer() {
+            super(256);
+        }
+
+        /**
+         * Writes the frame length into the first four bytes of the buffer.
+         *
+         * @param length the frame length.
+         */
+        void setLength(int length) {
+            buf[0] = (byte) (length >>> 24);
+            buf[1] = (byte) (length >>> 16);
+            buf[2] = (byte) (length >>> 8);
+            buf[3] = (byte) length;
+        }
+    }
+}
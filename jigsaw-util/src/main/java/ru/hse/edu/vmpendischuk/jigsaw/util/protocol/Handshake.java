@@ -0,0 +1,90 @@
+package ru.hse.edu.vmpendischuk.jigsaw.util.protocol;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectStreamConstants;
+
+/**
+ * The opening exchange of a Jigsaw connection, which selects the protocol used by the connection.
+ * <p>
+ * The server greets every client with the Java serialization stream header, since the clients
+ *   using the serialized protocol wait for it before sending their own header. A binary protocol
+ *   client checks the greeting and answers with the protocol magic number and version, while
+ *   a serialized protocol client answers with its stream header, so the server can tell them apart
+ *   by the first four bytes it receives.
+ */
+public final class Handshake {
+    // The magic number sent by the binary protocol clients ("JIGS" in ASCII).
+    public static final int MAGIC = 0x4A494753;
+    // The version of the binary protocol.
+    public static final byte VERSION = 2;
+    // The Java serialization stream header, used as the server greeting.
+    private static final int STREAM_HEADER =
+            (ObjectStreamConstants.STREAM_MAGIC & 0xFFFF) << 16 | ObjectStreamConstants.STREAM_VERSION;
+
+    private Handshake() { }
+
+    /**
+     * Writes the server greeting.
+     *
+     * @param output the connection output.
+     * @throws IOException if the greeting could not be written.
+     */
+    public static void writeServerGreeting(DataOutput output) throws IOException {
+        output.writeInt(STREAM_HEADER);
+    }
+
+    /**
+     * Reads and checks the server greeting.
+     *
+     * @param input the connection input.
+     * @throws IOException if the greeting could not be read or is not a Jigsaw server greeting.
+     */
+    public static void readServerGreeting(DataInput input) throws IOException {
+        if (input.readInt() != STREAM_HEADER) {
+            throw new ProtocolException("Unexpected server greeting");
+        }
+    }
+
+    /**
+     * Writes the binary protocol client hello.
+     *
+     * @param output the connection output.
+     * @throws IOException if the hello could not be written.
+     */
+    public static void writeClientHello(DataOutput output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+    }
+
+    /**
+     * Reads the client hello and determines the protocol used by the client.
+     * <p>
+     * The serialized protocol client stream header is consumed as well,
+     *   so the caller must read the rest of the serialized stream without a header.
+     *
+     * @param input the connection input.
+     * @return {@code true} if the client uses the binary protocol,
+     *   {@code false} if the client uses the serialized protocol.
+     * @throws IOException if the hello could not be read or is not a Jigsaw client hello.
+     */
+    public static boolean readClientHello(DataInput input) throws IOException {
+        int header = input.readInt();
+
+        if (header == STREAM_HEADER) {
+            return false;
+        }
+
+        if (header != MAGIC) {
+            throw new ProtocolException("Unexpected client hello");
+        }
+
+        byte version = input.readByte();
+        if (version != VERSION) {
+            throw new ProtocolException("Unsupported protocol version " + version);
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,78 @@
+package ru.hse.edu.vmpendischuk.jigsaw.util.protocol;
+
+/**
+ * One-byte operation codes of the Jigsaw binary protocol frames.
+ * <p>
+ * The request codes are dense, so the server dispatches them with a single table switch.
+ *   The response codes are kept in a separate range to make a desynchronized stream easy to spot.
+ */
+public final class Opcode {
+    // Request: register the player with the given username (UTF username).
+    public static final byte REGISTER = 1;
+    // Request: check if the player is still waiting for the other players (no payload).
+    public static final byte STATUS = 2;
+    // Request: get a new shape for the player to place (no payload).
+    public static final byte GET_SHAPE = 3;
+    // Request: finish the game for the player (player stats).
+    public static final byte FINISH = 4;
+    // Request: disconnect the player, the server does not answer (no payload).
+    public static final byte DISCONNECT = 5;
+    // Request: restart the game for the player (no payload).
+    public static final byte RESTART = 6;
+    // Request: get the top 10 (or less) game results (no payload).
+    public static final byte TOP = 7;
+    // Request: get the given amount of new shapes for the player to place (unsigned byte amount).
+    public static final byte GET_SHAPES = 8;
+    // Request: register the player in a match with the given settings
+    // (UTF username, unsigned byte player count, unsigned short max duration).
+    public static final byte JOIN = 9;
+    // Request: get a page of the leaderboard
+    // (boolean "has cursor" flag, leaderboard cursor if set, unsigned byte page size).
+    public static final byte LEADERBOARD_PAGE = 10;
+    // Request: get the rank of the best result of the player with the given username (UTF username).
+    public static final byte PLAYER_RANK = 11;
+    // Request: get the rank of the given result (player stats).
+    public static final byte RESULT_RANK = 12;
+    // Request: get the aggregate statistics of the player with the given username (UTF username).
+    public static final byte PLAYER_PROFILE = 13;
+
+    // Response: all players have connected (UTF opponent username, int max duration).
+    public static final byte READY = 65;
+    // Response: the connection status of the players (boolean "still waiting" flag).
+    public static final byte CONNECTION_STATUS = 66;
+    // Response: a new shape for the player to place (byte shape ID).
+    public static final byte SHAPE = 67;
+    // Response: all players have finished the game (game results).
+    public static final byte RESULTS = 68;
+    // Response: the top 10 (or less) game results (list of player stats entries).
+    public static final byte TOP_RECORDS = 69;
+    // Response: new shapes for the player to place (unsigned byte amount, byte shape IDs).
+    public static final byte SHAPES = 70;
+    // Response: a page of the leaderboard (list of player stats entries, boolean "has next" flag,
+    // leaderboard cursor of the next page if set).
+    public static final byte LEADERBOARD_RECORDS = 71;
+    // Response: the rank of a result in the leaderboard (long rank, 0 if the player has no results).
+    public static final byte RANK = 72;
+    // Response: the aggregate statistics of a player (boolean "has profile" flag, player profile if set).
+    public static final byte PROFILE = 73;
+    // Response: the request was rejected (byte reason).
+    public static final byte REJECTED = 127;
+
+    // The maximum amount of shapes requested by a single GET_SHAPES request.
+    public static final int MAX_SHAPE_BATCH = 64;
+    // The maximum amount of results requested by a single LEADERBOARD_PAGE request.
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // Rejection reason: the game has already got the necessary amount of players.
+    public static final byte REASON_MAX_PLAYER_COUNT_REACHED = 1;
+    // Rejection reason: the game has already been finished.
+    public static final byte REASON_GAME_ALREADY_FINISHED = 2;
+    // Rejection reason: a player with the same username is waiting for the match.
+    public static final byte REASON_USERNAME_TAKEN = 3;
+    // Rejection reason: the requested match settings are out of the allowed bounds.
+    public static final byte REASON_INVALID_SETTINGS = 4;
+    // Rejection reason: the username is longer than the server stores.
+    public static final byte REASON_INVALID_USERNAME = 5;
+
+    private Opcode() { }
+}
@@ -0,0 +1,21 @@
+package ru.hse.edu.vmpendischuk.jigsaw.util.protocol;
+
+import java.io.IOException;
+import java.io.Serial;
+
+/**
+ * Exception thrown when the data received from the other side does not follow the Jigsaw binary protocol.
+ */
+public class ProtocolException extends IOException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Initializes a new {@link ProtocolException} instance.
+     *
+     * @param message the exception message.
+     */
+    public ProtocolException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,93 @@
+package ru.hse.edu.vmpendischuk.jigsaw.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class that contains unit tests for the {@link GameField} class methods.
+ */
+class GameFieldTest {
+    /**
+     * Checks if every shape is placed onto its model cells at every anchor where it fits.
+     */
+    @Test
+    @DisplayName("Places every shape onto its model cells at every anchor")
+    void placesShapes() {
+        for (int id = 1; id <= Shape.COUNT; ++id) {
+            Shape shape = Shape.of(id);
+            int[][] model = shape.getModel();
+
+            for (int row = 0; row < GameField.SIZE; ++row) {
+                for (int col = 0; col < GameField.SIZE; ++col) {
+                    GameField field = new GameField();
+                    boolean fits = row + shape.getHeight() <= GameField.SIZE
+                            && col + shape.getWidth() <= GameField.SIZE;
+
+                    assertEquals(fits, field.place(shape, row, col));
+                    assertEquals(fits ? shape.getCellCount() : 0, field.getTakenCellCount());
+
+                    for (int i = 0; fits && i < GameField.SIZE; ++i) {
+                        for (int j = 0; j < GameField.SIZE; ++j) {
+                            boolean covered = i >= row && i < row + shape.getHeight()
+                                    && j >= col && j < col + shape.getWidth()
+                                    && model[i - row][j - col] == 1;
+                            assertEquals(covered, field.isTaken(i, j));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if a shape is not placed over the taken cells, including the cells stored in the high word.
+     */
+    @Test
+    @DisplayName("Does not place a shape over the taken cells")
+    void doesNotPlaceOverTakenCells() {
+        GameField field = new GameField();
+        Shape line = Shape.of(21);
+
+        assertTrue(field.place(line, 8, 6));
+        assertTrue(field.isTaken(8, 8));
+        assertFalse(field.canPlace(line, 8, 6));
+        assertFalse(field.place(Shape.of(22), 6, 8));
+        assertTrue(field.place(Shape.of(22), 5, 8));
+        assertFalse(field.canPlace(Shape.of(23), -1, 0));
+
+        field.clear();
+        assertEquals(0, field.getTakenCellCount());
+        assertTrue(field.canPlace(line, 8, 6));
+    }
+
+    /**
+     * Checks if the legal moves are found until the field has no place left for the shape.
+     */
+    @Test
+    @DisplayName("Detects when a shape has no place left on the field")
+    void detectsLegalMoves() {
+        GameField field = new GameField();
+        Shape square = Shape.of(24);
+        Shape dot = Shape.of(23);
+
+        // Filling every row but the last one with horizontal lines.
+        for (int row = 0; row < GameField.SIZE - 1; ++row) {
+            for (int col = 0; col < GameField.SIZE; col += 3) {
+                assertTrue(field.place(Shape.of(21), row, col));
+            }
+        }
+
+        assertFalse(field.hasLegalMove(square));
+        assertTrue(field.hasLegalMove(dot));
+        assertTrue(field.hasLegalMove(Shape.of(21)));
+
+        for (int col = 0; col < GameField.SIZE; ++col) {
+            assertTrue(field.place(dot, GameField.SIZE - 1, col));
+        }
+
+        assertEquals(GameField.CELL_COUNT, field.getTakenCellCount());
+        assertFalse(field.hasLegalMove(dot));
+    }
+}
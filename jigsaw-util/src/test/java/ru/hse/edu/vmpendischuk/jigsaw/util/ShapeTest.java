@@ -3,26 +3,49 @@ package ru.hse.edu.vmpendischuk.jigsaw.util;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
-import java.util.Arrays;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
 
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Class that contains unit tests for the {@link Shape} class methods.
  */
 class ShapeTest {
     /**
-     * Checks if the shape's model matrix is validly returned for each of the type IDs.
+     * Checks if the shape's model and its precomputed properties are validly returned for each of the ids.
      */
     @Test
     @DisplayName("Correctly returns shape model")
     void getsModel() {
-        for (int i = 1; i <= 31; ++i) {
-            Shape shape = new Shape("S" + i);
+        for (int i = 1; i <= Shape.COUNT; ++i) {
+            Shape shape = Shape.of(i);
             int[][] model = shape.getModel();
-            int[][] expectedModel = Shape.shapeModels.get("S" + i);
-            assertTrue(Arrays.deepEquals(model, expectedModel));
+            int cells = 0;
+            for (int[] row : model) {
+                for (int cell : row) {
+                    cells += cell;
+                }
+            }
+
+            assertSame(shape, Shape.of(i));
+            assertEquals(i, shape.getId());
+            assertEquals("S" + i, shape.getTypeId());
+            assertEquals(model.length, shape.getHeight());
+            assertEquals(model[0].length, shape.getWidth());
+            assertEquals(cells, shape.getCellCount());
         }
+
+        assertAll(
+                () -> assertEquals(1, Shape.of(23).getCellCount()),
+                () -> assertEquals(5, Shape.of(19).getCellCount()),
+                () -> assertThrows(IllegalArgumentException.class, () -> Shape.of(0)),
+                () -> assertThrows(IllegalArgumentException.class, () -> Shape.of(Shape.COUNT + 1))
+        );
     }
 
     /**
@@ -32,6 +55,29 @@ class ShapeTest {
     @DisplayName("Correctly generates a valid shape from the static shape models list")
     void getsRandomShape() {
         Shape shape = Shape.getRandomShape();
-        assertTrue(Shape.shapeModels.containsKey(shape.typeId));
+        assertSame(Shape.of(shape.getId()), shape);
+    }
+
+    /**
+     * Checks if a shape is serialized as its type ID and deserialized to the canonical instance.
+     */
+    @Test
+    @DisplayName("Keeps the serialized form and resolves deserialized shapes")
+    void serializesShape() throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(Shape.of(17));
+        }
+
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertSame(Shape.of(17), input.readObject());
+        }
+
+        ObjectStreamClass streamClass = ObjectStreamClass.lookup(Shape.class);
+        assertAll(
+                () -> assertEquals(1L, streamClass.getSerialVersionUID()),
+                () -> assertEquals(1, streamClass.getFields().length),
+                () -> assertEquals(String.class, streamClass.getField("typeId").getType())
+        );
     }
 }
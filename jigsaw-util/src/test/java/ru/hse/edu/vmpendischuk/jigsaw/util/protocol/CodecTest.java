@@ -0,0 +1,83 @@
+package ru.hse.edu.vmpendischuk.jigsaw.util.protocol;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.hse.edu.vmpendischuk.jigsaw.util.GameResults;
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardCursor;
+import ru.hse.edu.vmpendischuk.jigsaw.util.LeaderboardPage;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerProfile;
+import ru.hse.edu.vmpendischuk.jigsaw.util.PlayerStatsEntry;
+import ru.hse.edu.vmpendischuk.jigsaw.util.Shape;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class that contains unit tests for the {@link Codec}, {@link FrameWriter} and {@link FrameReader} classes.
+ */
+class CodecTest {
+    /**
+     * Checks if the domain objects are the same after being sent in the frames.
+     */
+    @Test
+    @DisplayName("Encodes and decodes the domain objects in frames")
+    void roundTrips() throws IOException {
+        Instant finishedAt = Instant.ofEpochMilli(1_650_000_000_000L);
+        PlayerStatsEntry ivan = new PlayerStatsEntry("Ivan", 10, "00:01:00", finishedAt);
+        PlayerStatsEntry michael = new PlayerStatsEntry("Michael", 9, "00:04:59", finishedAt);
+        GameResults results = new GameResults("Ivan", List.of(ivan, michael), List.of("Wilhelm"));
+        LeaderboardPage page = new LeaderboardPage(List.of(ivan, michael),
+                new LeaderboardCursor(9, 299_000, finishedAt, 42));
+        LeaderboardPage lastPage = new LeaderboardPage(List.of(), null);
+        PlayerProfile profile = new PlayerProfile("Ivan", 3, 10, "00:01:00", 24, finishedAt);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FrameWriter writer = new FrameWriter(bytes);
+        writer.write(Opcode.SHAPE, 1, output -> Codec.writeShape(output, Shape.of(31)));
+        writer.write(Opcode.RESULTS, 2, output -> Codec.writeResults(output, results));
+        writer.write(Opcode.LEADERBOARD_RECORDS, 3, output -> Codec.writePage(output, page));
+        writer.write(Opcode.LEADERBOARD_RECORDS, 4, output -> Codec.writePage(output, lastPage));
+        writer.write(Opcode.PROFILE, 5, output -> Codec.writeProfile(output, profile));
+        writer.write(Opcode.PROFILE, 6, output -> Codec.writeProfile(output, null));
+        writer.write(Opcode.STATUS, -1);
+
+        FrameReader reader = new FrameReader(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertEquals(Opcode.SHAPE, reader.readFrame());
+        assertEquals(1, reader.correlationId());
+        assertSame(Shape.of(31), Codec.readShape(reader.payload()));
+        assertEquals(Opcode.RESULTS, reader.readFrame());
+        assertEquals(2, reader.correlationId());
+        assertEquals(results, Codec.readResults(reader.payload()));
+        assertEquals(Opcode.LEADERBOARD_RECORDS, reader.readFrame());
+        assertEquals(page, Codec.readPage(reader.payload()));
+        assertEquals(Opcode.LEADERBOARD_RECORDS, reader.readFrame());
+        assertEquals(lastPage, Codec.readPage(reader.payload()));
+        assertEquals(Opcode.PROFILE, reader.readFrame());
+        assertEquals(profile, Codec.readProfile(reader.payload()));
+        assertEquals(Opcode.PROFILE, reader.readFrame());
+        assertNull(Codec.readProfile(reader.payload()));
+        assertEquals(Opcode.STATUS, reader.readFrame());
+        assertEquals(-1, reader.correlationId());
+    }
+
+    /**
+     * Checks if the frames with invalid lengths are rejected.
+     */
+    @Test
+    @DisplayName("Rejects frames with invalid lengths")
+    void rejectsInvalidFrames() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeInt(FrameWriter.MAX_FRAME_LENGTH + 1);
+
+        FrameReader reader = new FrameReader(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertThrows(ProtocolException.class, reader::readFrame);
+    }
+}